@@ -0,0 +1,666 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A bitmask representation of a Board's layout and of the shapes of the ominos placed on it.
+ * Every cell of the layout's bounding box, plus a ring of one cell all the way around it, gets an
+ *  index; a set of cells is then a long[] holding one bit per cell, so any size of board can be
+ *  handled simply by using more words.
+ * The ring of padding cells is never part of the layout, so a piece shifted by one cell can never
+ *  wrap around onto a usable cell of a neighbouring row.
+ * Shape and border masks are stored relative to the lowest cell they touch and are only shifted
+ *  into place when tested against a board, so the same masks serve every position of a piece.
+ * Each piece is also given a shape class from a ShapeCatalog, shared by all identically shaped
+ *  pieces without a unique ID, and a row of random Zobrist keys per cell for its shape class; a
+ *  board's hash is the XOR of the keys of its pieces' origins, so a shift updates it with two XORs.
+ * The canonical form of a state lists the origin cells class by class, sorted within each class,
+ *  so that states differing only by swapped interchangeable pieces have the same canonical form.
+ * It also keeps one Tile for every cell, so that a Board can record where its pieces are without
+ *  creating a new Tile for every shift.
+ * Instances are never modified after construction, and are shared between copies of a Board.
+ * @author bfallstrom
+ *
+ */
+public final class BitBoard {
+	private static final Direction[] DIRECTIONS = Direction.values();	// values() copies the array on every call
+	public static final int EMPTY = -1;			// occupancy value of a free cell of the layout
+	public static final int OFF_LAYOUT = -2;	// occupancy value of a cell that is not in the layout
+
+	private final int minX;
+	private final int minY;
+	private final int stride;	// number of cells in one row, including the padding on both sides
+	private final int numCells;
+	private final long[] layoutMask;
+	private final Tile[] tiles;		// [cell] the shared Tile for that cell
+
+	private final Omino[] pieces;
+	private int[] shapeClasses;				// [piece] shape class, numbered from zero
+	private int[] canonicalSlots;			// [piece] first slot of its class in the canonical form
+	private int[][] classMembers;			// [class] the pieces of that class, in piece order
+	private int[] slotPieces;				// [canonical slot] the piece given that slot when unpacking
+	private long[][] zobristKeys;			// [piece] random key per origin cell; shared within a shape class
+	private final int[][] shapeOffsets;		// [piece] cell offset of each tile of the shape from the origin
+	private final long[][] shapeMasks;		// [piece] relative shape mask
+	private final int[] shapeBases;			// [piece] offset of bit 0 of the shape mask from the origin
+	private final long[][][] borderMasks;	// [piece][direction ordinal] relative border mask
+	private final int[][] borderBases;		// [piece][direction ordinal]
+	private final int[] directionOffsets;	// [direction ordinal] change in cell index for one step
+
+	/**
+	 * Builds the masks for a layout and the ominos placed on it.
+	 * @param layout The tiles of the layout. Must not be empty.
+	 * @param pieces The ominos, in the order the Board indexes them.
+	 */
+	public BitBoard(Set<Tile> layout, List<Omino> pieces)
+	{
+		if(layout.isEmpty())
+			throw new IllegalArgumentException("Error: Cannot build a BitBoard without a layout!");
+		int lowX = Integer.MAX_VALUE;
+		int lowY = Integer.MAX_VALUE;
+		int highX = Integer.MIN_VALUE;
+		int highY = Integer.MIN_VALUE;
+		for(Tile tile : layout)
+		{
+			lowX = Math.min(lowX, tile.getX());
+			lowY = Math.min(lowY, tile.getY());
+			highX = Math.max(highX, tile.getX());
+			highY = Math.max(highY, tile.getY());
+		}
+		this.minX = lowX;
+		this.minY = lowY;
+		this.stride = highX - lowX + 3;
+		this.numCells = this.stride * (highY - lowY + 3);
+		this.layoutMask = new long[wordsFor(this.numCells)];
+		for(Tile tile : layout)
+			setBit(this.layoutMask, cellIndex(tile));
+		this.tiles = new Tile[this.numCells];
+		for(int cell = 0; cell < this.numCells; cell++)
+			this.tiles[cell] = new Tile(cellX(cell), cellY(cell));
+
+		this.directionOffsets = new int[Direction.values().length];
+		this.directionOffsets[Direction.UP.ordinal()] = this.stride;
+		this.directionOffsets[Direction.DOWN.ordinal()] = -this.stride;
+		this.directionOffsets[Direction.LEFT.ordinal()] = -1;
+		this.directionOffsets[Direction.RIGHT.ordinal()] = 1;
+
+		int numPieces = pieces.size();
+		this.pieces = new Omino[numPieces];
+		this.shapeOffsets = new int[numPieces][];
+		this.shapeMasks = new long[numPieces][];
+		this.shapeBases = new int[numPieces];
+		this.borderMasks = new long[numPieces][][];
+		this.borderBases = new int[numPieces][];
+		for(int i = 0; i < numPieces; i++)
+			buildPiece(i, pieces.get(i));
+		buildClasses();
+	}
+
+	/**
+	 * Copies an existing BitBoard and adds the masks for one more piece, which gets the next index.
+	 *  The layout arrays and the masks of the existing pieces are shared, not copied.
+	 */
+	private BitBoard(BitBoard old, Omino added)
+	{
+		int numPieces = old.shapeMasks.length + 1;
+		this.minX = old.minX;
+		this.minY = old.minY;
+		this.stride = old.stride;
+		this.numCells = old.numCells;
+		this.layoutMask = old.layoutMask;
+		this.tiles = old.tiles;
+		this.directionOffsets = old.directionOffsets;
+		this.pieces = Arrays.copyOf(old.pieces, numPieces);
+		this.shapeOffsets = Arrays.copyOf(old.shapeOffsets, numPieces);
+		this.shapeMasks = Arrays.copyOf(old.shapeMasks, numPieces);
+		this.shapeBases = Arrays.copyOf(old.shapeBases, numPieces);
+		this.borderMasks = Arrays.copyOf(old.borderMasks, numPieces);
+		this.borderBases = Arrays.copyOf(old.borderBases, numPieces);
+		buildPiece(numPieces - 1, added);
+		buildClasses();
+	}
+
+	/**
+	 * Creates a BitBoard with the same layout and pieces as this one, plus the given omino as the
+	 *  last piece. This one is left unchanged.
+	 * @param omino The omino to add.
+	 * @return The new BitBoard.
+	 */
+	public BitBoard withPiece(Omino omino)
+	{
+		return new BitBoard(this, omino);
+	}
+
+	/**
+	 * Fills in the offsets and masks of one piece; only called from the constructors.
+	 */
+	private void buildPiece(int index, Omino omino)
+	{
+		this.pieces[index] = omino;
+		int[] offsets = new int[omino.getNumTiles()];
+		for(int i = 0; i < offsets.length; i++)
+			offsets[i] = cellOffset(omino.getPackedTile(i));
+		this.shapeOffsets[index] = offsets;
+		this.shapeBases[index] = lowestOffset(offsets);
+		this.shapeMasks[index] = relativeMask(offsets, this.shapeBases[index]);
+		this.borderMasks[index] = new long[Direction.values().length][];
+		this.borderBases[index] = new int[Direction.values().length];
+		for(Direction direction : Direction.values())
+		{
+			int d = direction.ordinal();
+			offsets = new int[omino.getNumBorderTiles(direction)];
+			for(int i = 0; i < offsets.length; i++)
+				offsets[i] = cellOffset(omino.getPackedBorderTile(direction, i));
+			this.borderBases[index][d] = lowestOffset(offsets);
+			this.borderMasks[index][d] = relativeMask(offsets, this.borderBases[index][d]);
+		}
+	}
+
+	/**
+	 * Sorts the pieces into shape classes and lays out the canonical form; only called from the
+	 *  constructors, once all the pieces are known.
+	 */
+	private void buildClasses()
+	{
+		ShapeCatalog catalog = new ShapeCatalog();
+		this.shapeClasses = new int[this.pieces.length];
+		for(int i = 0; i < this.pieces.length; i++)
+			this.shapeClasses[i] = catalog.classOf(this.pieces[i]);
+		int[] classSizes = new int[catalog.getNumClasses()];
+		for(int i = 0; i < this.pieces.length; i++)
+			classSizes[this.shapeClasses[i]]++;
+		this.classMembers = new int[classSizes.length][];
+		long[][] classKeys = new long[classSizes.length][];
+		int[] classStarts = new int[classSizes.length];
+		for(int c = 0, slot = 0; c < classSizes.length; c++)
+		{
+			this.classMembers[c] = new int[classSizes[c]];
+			classStarts[c] = slot;
+			slot += classSizes[c];
+			classKeys[c] = new long[this.numCells];
+			for(int cell = 0; cell < this.numCells; cell++)
+				classKeys[c][cell] = scramble(((long)c << 32) | cell);
+			classSizes[c] = 0;	// reused below as a fill count
+		}
+		this.canonicalSlots = new int[this.pieces.length];
+		this.slotPieces = new int[this.pieces.length];
+		this.zobristKeys = new long[this.pieces.length][];
+		for(int i = 0; i < this.pieces.length; i++)
+		{
+			int c = this.shapeClasses[i];
+			this.slotPieces[classStarts[c] + classSizes[c]] = i;
+			this.classMembers[c][classSizes[c]++] = i;
+			this.canonicalSlots[i] = classStarts[c];
+			this.zobristKeys[i] = classKeys[c];	// interchangeable pieces hash alike
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of pieces this BitBoard holds masks for.
+	 */
+	public int getNumPieces()
+	{
+		return this.shapeMasks.length;
+	}
+
+	/**
+	 * Gets the shape class of a piece. Pieces in the same class are interchangeable.
+	 * @param piece The index of the piece.
+	 * @return The shape class of the piece, numbered from zero in order of first appearance.
+	 */
+	public int getShapeClass(int piece)
+	{
+		return this.shapeClasses[piece];
+	}
+
+	/**
+	 *
+	 * @return The number of distinct shape classes among the pieces.
+	 */
+	public int getNumShapeClasses()
+	{
+		return this.classMembers.length;
+	}
+
+	/**
+	 * Builds the canonical form of a state: the origin cells class by class, sorted within each
+	 *  class. Slot k of the canonical form belongs to the piece canonicalPiece(k).
+	 * @param origins The cell index of the origin of each piece, in piece order.
+	 * @return A new array holding the canonical form.
+	 */
+	public int[] canonicalize(int[] origins)
+	{
+		int[] canonical = new int[origins.length];
+		for(int c = 0; c < this.classMembers.length; c++)
+		{
+			int[] members = this.classMembers[c];
+			int start = this.canonicalSlots[members[0]];
+			for(int k = 0; k < members.length; k++)
+				canonical[start + k] = origins[members[k]];
+			Arrays.sort(canonical, start, start + members.length);
+		}
+		return canonical;
+	}
+
+	/**
+	 * Gets the piece a slot of the canonical form is given to when a state is unpacked: within
+	 *  each class, the pieces take the sorted cells in piece order.
+	 * @param slot The slot in the canonical form.
+	 * @return The index of the piece.
+	 */
+	public int canonicalPiece(int slot)
+	{
+		return this.slotPieces[slot];
+	}
+
+	/**
+	 * Turns a canonical form back into per-piece origins, giving the sorted cells of each class to
+	 *  its pieces in piece order.
+	 * @param canonical A canonical form built by canonicalize.
+	 * @return A new array holding the origin cell of each piece, in piece order.
+	 */
+	public int[] originsOf(int[] canonical)
+	{
+		int[] origins = new int[canonical.length];
+		for(int slot = 0; slot < canonical.length; slot++)
+			origins[this.slotPieces[slot]] = canonical[slot];
+		return origins;
+	}
+
+	/**
+	 * Finds the slot of the canonical form holding a piece's origin.
+	 * @param canonical The canonical form of the state.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's origin.
+	 * @return The slot within the piece's class segment holding that cell.
+	 */
+	public int slotOf(int[] canonical, int piece, int origin)
+	{
+		int slot = this.canonicalSlots[piece];
+		while(canonical[slot] != origin)
+			slot++;
+		return slot;
+	}
+
+	/**
+	 * Keeps a canonical form sorted after one piece has moved; moves the cell within its class
+	 *  segment with a single insertion-sort pass, so it is proportional to the class size.
+	 * @param canonical The canonical form to update.
+	 * @param piece The index of the piece that moved.
+	 * @param from The cell index of its old origin.
+	 * @param to The cell index of its new origin.
+	 * @return The slot the new origin ended up in.
+	 */
+	public int moveCanonical(int[] canonical, int piece, int from, int to)
+	{
+		int start = this.canonicalSlots[piece];
+		int end = start + this.classMembers[this.shapeClasses[piece]].length;
+		int slot = start;
+		while(canonical[slot] != from)
+			slot++;
+		while(slot > start && canonical[slot - 1] > to)
+		{
+			canonical[slot] = canonical[slot - 1];
+			slot--;
+		}
+		while(slot + 1 < end && canonical[slot + 1] < to)
+		{
+			canonical[slot] = canonical[slot + 1];
+			slot++;
+		}
+		canonical[slot] = to;
+		return slot;
+	}
+
+	/**
+	 * Gets the Zobrist key of a piece with its origin on the given cell.
+	 * @param piece The index of the piece.
+	 * @param cell The cell index of its origin.
+	 * @return The random key for that piece's shape class on that cell.
+	 */
+	public long zobristKey(int piece, int cell)
+	{
+		return this.zobristKeys[piece][cell];
+	}
+
+	/**
+	 * Computes the Zobrist hash of a whole state from scratch. Boards keep it up to date as they
+	 *  shift pieces, so this is only needed when building or unpacking a board.
+	 * @param origins The cell index of the origin of each piece, in piece order.
+	 * @return The XOR of the keys of all the pieces.
+	 */
+	public long stateHash(int[] origins)
+	{
+		long hash = 0;
+		for(int i = 0; i < origins.length; i++)
+			hash ^= this.zobristKeys[i][origins[i]];
+		return hash;
+	}
+
+	/**
+	 *
+	 * @return The total number of cells, including padding, covered by the masks.
+	 */
+	public int getNumCells()
+	{
+		return this.numCells;
+	}
+
+	/**
+	 *
+	 * @return The number of cells in one row, including the padding column on each side.
+	 */
+	public int getStride()
+	{
+		return this.stride;
+	}
+
+	/**
+	 * Gets the index of the cell for the given absolute coordinates.
+	 * @return The cell index, or -1 if the coordinates fall outside of the padded bounding box.
+	 */
+	public int cellIndex(int x, int y)
+	{
+		int column = x - this.minX + 1;
+		int row = y - this.minY + 1;
+		if(column < 0 || column >= this.stride || row < 0 || this.stride * row + column >= this.numCells)
+			return -1;
+		return this.stride * row + column;
+	}
+
+	/**
+	 * Gets the index of the cell for the given absolute tile.
+	 * @return The cell index, or -1 if the tile falls outside of the padded bounding box.
+	 */
+	public int cellIndex(Tile tile)
+	{
+		return cellIndex(tile.getX(), tile.getY());
+	}
+
+	/**
+	 *
+	 * @return The absolute X coordinate of the given cell index.
+	 */
+	public int cellX(int cell)
+	{
+		return cell % this.stride + this.minX - 1;
+	}
+
+	/**
+	 *
+	 * @return The absolute Y coordinate of the given cell index.
+	 */
+	public int cellY(int cell)
+	{
+		return cell / this.stride + this.minY - 1;
+	}
+
+	/**
+	 * Gets the shared Tile for a cell. The same instance is returned every time, for any board
+	 *  using this BitBoard, so nothing is allocated.
+	 * @param cell A cell index of this BitBoard.
+	 * @return The absolute Tile at that cell.
+	 */
+	public Tile tileAt(int cell)
+	{
+		return this.tiles[cell];
+	}
+
+	/**
+	 *
+	 * @return The change in cell index caused by moving one step in the given direction.
+	 */
+	public int directionOffset(Direction direction)
+	{
+		return this.directionOffsets[direction.ordinal()];
+	}
+
+	/**
+	 * Creates the mask of cells that pieces cannot move into: every cell outside the layout, and
+	 *  every cell covered by one of the given pieces.
+	 * @param origins The cell index of the origin of each piece, in piece order.
+	 * @return A new blocked-cell mask.
+	 */
+	public long[] newBlockedMask(int[] origins)
+	{
+		long[] blocked = new long[this.layoutMask.length];
+		for(int i = 0; i < blocked.length; i++)
+			blocked[i] = ~this.layoutMask[i];
+		for(int i = 0; i < origins.length; i++)
+			toggle(blocked, this.shapeMasks[i], origins[i] + this.shapeBases[i]);
+		return blocked;
+	}
+
+	/**
+	 * Creates the occupancy array: for every cell, the index of the piece covering it, EMPTY for a
+	 *  free cell of the layout, or OFF_LAYOUT for a cell outside of the layout.
+	 * @param origins The cell index of the origin of each piece, in piece order.
+	 * @return A new occupancy array.
+	 */
+	public int[] newOccupancy(int[] origins)
+	{
+		int[] occupancy = new int[this.numCells];
+		for(int cell = 0; cell < this.numCells; cell++)
+			occupancy[cell] = (this.layoutMask[cell >>> 6] & (1L << (cell & 63))) != 0 ? EMPTY : OFF_LAYOUT;
+		for(int i = 0; i < origins.length; i++)
+			fillShape(occupancy, i, origins[i], i);
+		return occupancy;
+	}
+
+	/**
+	 * Sets the occupancy of every cell covered by a piece to the given value.
+	 * @param occupancy The occupancy array to update.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's origin.
+	 * @param value The value to write: the piece index when placing it, or EMPTY when lifting it.
+	 */
+	public void fillShape(int[] occupancy, int piece, int origin, int value)
+	{
+		int[] offsets = this.shapeOffsets[piece];
+		for(int i = 0; i < offsets.length; i++)
+			occupancy[origin + offsets[i]] = value;
+	}
+
+	/**
+	 * Adds a piece to a blocked-cell mask; the piece must not overlap anything already blocked.
+	 * @param blocked The blocked-cell mask to update.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's origin.
+	 */
+	public void place(long[] blocked, int piece, int origin)
+	{
+		toggle(blocked, this.shapeMasks[piece], origin + this.shapeBases[piece]);
+	}
+
+	/**
+	 * Tests whether a piece could be shifted one step, by checking its border in that direction
+	 *  against a blocked-cell mask.
+	 * @param blocked The blocked-cell mask of the board.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's current origin.
+	 * @param direction The direction to shift in.
+	 * @return true iff no cell of the border is blocked.
+	 */
+	public boolean canShift(long[] blocked, int piece, int origin, Direction direction)
+	{
+		int d = direction.ordinal();
+		return !intersects(blocked, this.borderMasks[piece][d], origin + this.borderBases[piece][d]);
+	}
+
+	/**
+	 * Moves a piece one step within a blocked-cell mask. The move must already have been checked
+	 *  with canShift.
+	 * @param blocked The blocked-cell mask to update.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's current origin.
+	 * @param direction The direction to shift in.
+	 * @return The cell index of the piece's new origin.
+	 */
+	public int shift(long[] blocked, int piece, int origin, Direction direction)
+	{
+		int from = origin + this.shapeBases[piece];
+		int to = from + this.directionOffsets[direction.ordinal()];
+		toggle(blocked, this.shapeMasks[piece], from);
+		toggle(blocked, this.shapeMasks[piece], to);
+		return origin + this.directionOffsets[direction.ordinal()];
+	}
+
+	/**
+	 * Finds every origin a piece can reach by sliding on its own, any number of steps, while all
+	 *  the other pieces stay where they are. A breadth-first search over the cells, so following
+	 *  the result back from any cell gives a shortest slide to it.
+	 * @param blocked The blocked-cell mask of the board, with the piece in place; not changed.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index of the piece's current origin.
+	 * @return For each cell index, the ordinal of the direction of the last step of a shortest
+	 *  slide there; the number of directions for the starting cell, and -1 where it cannot go.
+	 */
+	public int[] slideTree(long[] blocked, int piece, int origin)
+	{
+		long[] others = blocked.clone();
+		place(others, piece, origin);	// toggles the piece back out, leaving only what is in its way
+		return slideSearch(others, piece, origin, false);
+	}
+
+	/**
+	 * Finds how many single-tile shifts a piece needs to reach each origin on the empty layout,
+	 *  with no other pieces in the way. Shifts can always be undone, so this is also the distance
+	 *  from each cell back to the given one; a lower bound on the moves that piece needs.
+	 * @param piece The index of the piece.
+	 * @param origin The cell index to measure from.
+	 * @return For each cell index, the number of shifts, or -1 where the piece cannot go.
+	 */
+	public int[] slideDistances(int piece, int origin)
+	{
+		return slideSearch(newBlockedMask(new int[0]), piece, origin, true);
+	}
+
+	/**
+	 * The breadth-first search behind slideTree and slideDistances.
+	 * @param others The blocked-cell mask without the piece itself.
+	 * @param distances Whether to record distances, or the direction of the last step.
+	 */
+	private int[] slideSearch(long[] others, int piece, int origin, boolean distances)
+	{
+		Direction[] directions = DIRECTIONS;
+		int[] reached = new int[this.numCells];
+		Arrays.fill(reached, -1);
+		int[] queue = new int[this.numCells];
+		int head = 0;
+		int tail = 0;
+		reached[origin] = distances ? 0 : directions.length;
+		queue[tail++] = origin;
+		while(head < tail)
+		{
+			int cell = queue[head++];
+			for(Direction direction : directions)
+			{
+				int next = cell + this.directionOffsets[direction.ordinal()];
+				if(reached[next] < 0 && canShift(others, piece, cell, direction))
+				{
+					reached[next] = distances ? reached[cell] + 1 : direction.ordinal();
+					queue[tail++] = next;
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * The lowest of a set of cell offsets; the offset of bit 0 of their mask.
+	 */
+	private static int lowestOffset(int[] offsets)
+	{
+		int lowest = Integer.MAX_VALUE;
+		for(int offset : offsets)
+			lowest = Math.min(lowest, offset);
+		return lowest;
+	}
+
+	/**
+	 * Builds the mask of a set of cell offsets, with bit 0 standing for the given offset.
+	 */
+	private static long[] relativeMask(int[] offsets, int base)
+	{
+		int highest = 0;
+		for(int offset : offsets)
+			highest = Math.max(highest, offset - base);
+		long[] mask = new long[wordsFor(highest + 1)];
+		for(int offset : offsets)
+			setBit(mask, offset - base);
+		return mask;
+	}
+
+	/**
+	 * Turns a relative tile packed by Omino into an offset in cell index from the origin.
+	 */
+	private int cellOffset(int packedTile)
+	{
+		return Omino.packedX(packedTile) + Omino.packedY(packedTile) * this.stride;
+	}
+
+	/**
+	 * The SplitMix64 finalizer; turns a counter into well-spread pseudo-random bits, so that the
+	 *  keys are the same on every run without storing a seed.
+	 */
+	private static long scramble(long value)
+	{
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int wordsFor(int bits)
+	{
+		return (bits + 63) >>> 6;
+	}
+
+	private static void setBit(long[] mask, int bit)
+	{
+		mask[bit >>> 6] |= 1L << (bit & 63);
+	}
+
+	/**
+	 * Tests whether a relative mask, shifted left by the given number of bits, has any bit in
+	 *  common with the target mask. Nothing is allocated.
+	 */
+	static boolean intersects(long[] target, long[] relative, int shift)
+	{
+		int word = shift >>> 6;
+		int bit = shift & 63;
+		for(int i = 0; i < relative.length; i++)
+		{
+			long r = relative[i];
+			if(r == 0)
+				continue;
+			if((target[word + i] & (r << bit)) != 0)
+				return true;
+			if(bit != 0 && (r >>> (64 - bit)) != 0 && (target[word + i + 1] & (r >>> (64 - bit))) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Flips every bit of the target mask that is set in the relative mask shifted left by the given
+	 *  number of bits. Nothing is allocated.
+	 */
+	static void toggle(long[] target, long[] relative, int shift)
+	{
+		int word = shift >>> 6;
+		int bit = shift & 63;
+		for(int i = 0; i < relative.length; i++)
+		{
+			long r = relative[i];
+			if(r == 0)
+				continue;
+			target[word + i] ^= r << bit;
+			if(bit != 0 && (r >>> (64 - bit)) != 0)
+				target[word + i + 1] ^= r >>> (64 - bit);
+		}
+	}
+}
@@ -1,35 +1,66 @@
 package com.github.bfallstrom.ominoslide.areastructure;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.github.bfallstrom.ominoslide.solver.Move;
 
 public class Board {
-	protected Map<Omino, Tile> allPieces = new HashMap<Omino, Tile>(); // Every piece inserted into the map should
-	protected List<Omino> pieceOrder = new ArrayList<Omino>(); // immediately be inserted into the list as well.
+	protected List<Tile> positions = new ArrayList<Tile>(); // Every piece's position inserted into this list should
+	protected List<Omino> pieceOrder = new ArrayList<Omino>(); // immediately have its omino inserted into this one.
 	
 	protected Set<Tile> layout = new HashSet<Tile>();
 	int lastPieceMoved = -1;
 	
+	private BitBoard bits = null;		// built lazily from the layout and pieces; shared between copies
+	private long[] blocked = null;		// cells that no piece may move into, as a mask over bits
+	private int[] occupancy = null;		// cell index -> index of the piece covering it, or a BitBoard constant;
+										//  not copied, but rebuilt on a copy the first time it is looked at
+	private long stateHash = 0;			// Zobrist hash of the piece positions, kept up to date by every shift
+	private int[] canonical = null;		// origin cells by shape class, sorted within each class
+	
 	Move theMoveThatGotUsHere = null;
 
 	public Board(Board oldBoard)
 	{
 		this.layout = oldBoard.layout; // we expect the board itself to be stable
 		this.lastPieceMoved = oldBoard.lastPieceMoved;
-		this.allPieces = new HashMap<Omino, Tile>(oldBoard.allPieces);
+		this.positions = new ArrayList<Tile>(oldBoard.positions);	// a plain array copy, no hashing
 		this.pieceOrder = oldBoard.pieceOrder; // we expect the pieces to be stable
+		if(!oldBoard.layout.isEmpty())
+		{
+			this.bits = oldBoard.getBitBoard();	// built once on the original, then shared
+			this.blocked = oldBoard.blocked.clone();
+			this.stateHash = oldBoard.stateHash;
+			this.canonical = oldBoard.canonical.clone();
+		}
 	}
 	
 	public Board() {
 	}
 	
+	/**
+	 * Builds a board around an existing BitBoard, with the pieces at the given origin cells. For
+	 *  turning an ImmutableBoard back into a Board without rebuilding the masks.
+	 */
+	Board(Set<Tile> layout, List<Omino> pieces, BitBoard bits, int[] origins, int lastPieceMoved)
+	{
+		this.layout = layout;
+		this.pieceOrder = pieces;
+		for(int i = 0; i < origins.length; i++)
+			this.positions.add(bits.tileAt(origins[i]));
+		this.bits = bits;
+		this.blocked = bits.newBlockedMask(origins);
+		this.stateHash = bits.stateHash(origins);
+		this.canonical = bits.canonicalize(origins);
+		this.lastPieceMoved = lastPieceMoved;
+	}
+	
 	public Board(Collection<Tile> tiles)
 	{
 		layout.addAll(tiles);
@@ -44,6 +75,7 @@ public class Board {
 	 */
 	public boolean addTile(Tile tile)
 	{
+		invalidateBits();
 		return layout.add(tile);
 	}
 	
@@ -55,6 +87,7 @@ public class Board {
 	 */
 	public boolean addTiles(Collection<Tile> tiles)
 	{
+		invalidateBits();
 		return layout.addAll(tiles);
 	}
 	
@@ -67,6 +100,7 @@ public class Board {
 	 */
 	public boolean removeTile(Tile tile)
 	{
+		invalidateBits();
 		return layout.remove(tile);
 	}
 	
@@ -78,6 +112,7 @@ public class Board {
 	 */
 	public boolean removeTiles(Collection<Tile> tiles)
 	{
+		invalidateBits();
 		return layout.removeAll(tiles);
 	}
 
@@ -101,14 +136,23 @@ public class Board {
 	 */
 	public boolean placeOmino(Omino newOmino, Tile origin)
 	{
-		Set<Tile> shape = newOmino.getShape();
-		for(Tile tile : shape)
+		if(layout.isEmpty())
+			return false;
+		for(int i = 0; i < newOmino.getNumTiles(); i++)
 		{
-			if(!isAvailable(new Tile(tile,origin)))
+			int tile = newOmino.getPackedTile(i);
+			if(!isAvailable(Omino.packedX(tile) + origin.getX(), Omino.packedY(tile) + origin.getY()))
 				return false;
 		}
-		allPieces.put(newOmino, origin);
+		BitBoard bitBoard = getBitBoard();
+		int cell = bitBoard.cellIndex(origin);
+		positions.add(bitBoard.tileAt(cell));
 		pieceOrder.add(newOmino);
+		bits = bitBoard.withPiece(newOmino);	// only the new piece's masks are built
+		bits.place(blocked, pieceOrder.size() - 1, cell);
+		bits.fillShape(getOccupancy(), pieceOrder.size() - 1, cell, pieceOrder.size() - 1);
+		stateHash ^= bits.zobristKey(pieceOrder.size() - 1, cell);
+		canonical = bits.canonicalize(originCells());	// the shape classes may have changed
 		return true;
 	}
 	
@@ -151,7 +195,7 @@ public class Board {
 	{
 		if(index < 0 || index >= pieceOrder.size())
 			return null;
-		return allPieces.get(pieceOrder.get(index));
+		return positions.get(index);
 	}
 	
 	/**
@@ -174,7 +218,10 @@ public class Board {
 	 */
 	public Tile getOminoPosition(Omino omino)
 	{
-		return allPieces.get(omino);
+		int index = pieceOrder.indexOf(omino);
+		if(index < 0)
+			return null;
+		return positions.get(index);
 	}
 	
 	/**
@@ -241,40 +288,203 @@ public class Board {
 	 */
 	public boolean shiftOmino(int ominoIndex, Direction direction)
 	{
-		Omino omino;
-		Set<Tile> borderCheck;
-		Tile translation;
-		if(ominoIndex < 0 || ominoIndex >= pieceOrder.size())
+		if(ominoIndex < 0 || ominoIndex >= pieceOrder.size() || direction == null)
 			return false;
-		omino = pieceOrder.get(ominoIndex);
-		switch (direction) {
-		case UP:
-			borderCheck = omino.getBorderUp();
-			translation = Tile.UP;
-			break;
-		case DOWN:
-			borderCheck = omino.getBorderDown();
-			translation = Tile.DOWN;
-			break;
-		case LEFT:
-			borderCheck = omino.getBorderLeft();
-			translation = Tile.LEFT;
-			break;
-		case RIGHT:
-			borderCheck = omino.getBorderRight();
-			translation = Tile.RIGHT;
-			break;
-		default:
+		BitBoard bitBoard = getBitBoard();
+		int origin = bitBoard.cellIndex(positions.get(ominoIndex));
+		if(!bitBoard.canShift(blocked, ominoIndex, origin, direction))	// a few shifts and ANDs of the border
 			return false;
-		}
-		for(Tile tile : borderCheck)
+		applyShift(bitBoard, ominoIndex, origin, direction);
+		return true;
+	}
+	
+	/**
+	 * Makes a copy of this board with the omino with the given index shifted in the given direction,
+	 *  if it can be. The shift is only checked once, and nothing is copied for a blocked one, so this
+	 *  is the cheapest way to generate the positions a board leads to.
+	 * @param ominoIndex The index in the internal List of ominos for this board.
+	 * @param direction The direction to shift in.
+	 * @return The shifted copy, or null if the shift is blocked and nothing was copied.
+	 */
+	public Board shiftedCopy(int ominoIndex, Direction direction)
+	{
+		if(ominoIndex < 0 || ominoIndex >= pieceOrder.size() || direction == null)
+			return null;
+		BitBoard bitBoard = getBitBoard();
+		int origin = bitBoard.cellIndex(positions.get(ominoIndex));
+		if(!bitBoard.canShift(blocked, ominoIndex, origin, direction))
+			return null;
+		Board copy = new Board(this);
+		copy.applyShift(bitBoard, ominoIndex, origin, direction);
+		return copy;
+	}
+	
+	/**
+	 * Shifts an omino whose shift has already been checked, updating every view of the state.
+	 */
+	private void applyShift(BitBoard bitBoard, int ominoIndex, int origin, Direction direction)
+	{
+		int newOrigin = bitBoard.shift(blocked, ominoIndex, origin, direction);
+		if(occupancy != null)	// kept up to date once it has been built
 		{
-			if(!isAvailable(new Tile(tile, allPieces.get(omino))))
-				return false;
+			bitBoard.fillShape(occupancy, ominoIndex, origin, BitBoard.EMPTY);
+			bitBoard.fillShape(occupancy, ominoIndex, newOrigin, ominoIndex);
 		}
-		allPieces.put(omino,  new Tile(allPieces.get(omino), translation));
+		stateHash ^= bitBoard.zobristKey(ominoIndex, origin) ^ bitBoard.zobristKey(ominoIndex, newOrigin);
+		bitBoard.moveCanonical(canonical, ominoIndex, origin, newOrigin);
+		positions.set(ominoIndex, bitBoard.tileAt(newOrigin));	// shared tiles, so a shift allocates nothing
 		lastPieceMoved = ominoIndex;
-		return true;
+	}
+	
+	/**
+	 * Tests whether the omino with the given index could be shifted in the given direction,
+	 *  without changing anything. Lets callers avoid copying a board for a move that is blocked.
+	 * @param ominoIndex The index in the internal List of ominos for this board.
+	 * @param direction The direction to test.
+	 * @return true iff shiftOmino would succeed with the same arguments.
+	 */
+	public boolean canShiftOmino(int ominoIndex, Direction direction)
+	{
+		if(ominoIndex < 0 || ominoIndex >= pieceOrder.size() || direction == null)
+			return false;
+		BitBoard bitBoard = getBitBoard();
+		return bitBoard.canShift(blocked, ominoIndex, bitBoard.cellIndex(positions.get(ominoIndex)), direction);
+	}
+	
+	/**
+	 * Finds a shortest way to slide one omino to the given position, moving nothing else.
+	 * @param ominoIndex The index in the internal List of ominos for this board.
+	 * @param target The absolute tile its origin should end up on.
+	 * @return The directions of the single-tile shifts to make, in order; empty if it is already
+	 *  there, or null if it cannot get there on its own.
+	 */
+	public List<Direction> getSlidePath(int ominoIndex, Tile target)
+	{
+		BitBoard bitBoard = getBitBoard();
+		int cell = bitBoard.cellIndex(target);
+		if(cell < 0)
+			return null;
+		int[] tree = bitBoard.slideTree(blocked, ominoIndex, bitBoard.cellIndex(positions.get(ominoIndex)));
+		if(tree[cell] < 0)
+			return null;
+		Direction[] directions = Direction.values();
+		List<Direction> path = new ArrayList<Direction>();
+		while(tree[cell] < directions.length)
+		{
+			Direction step = directions[tree[cell]];
+			path.add(step);
+			cell -= bitBoard.directionOffset(step);
+		}
+		Collections.reverse(path);
+		return path;
+	}
+	
+	/**
+	 * Gets the BitBoard cell index of the origin of the specified omino. For packing board states.
+	 * @param index The index in the internal list of the omino.
+	 * @return The cell index of its origin.
+	 */
+	int getOriginCell(int index)
+	{
+		return getBitBoard().cellIndex(positions.get(index));
+	}
+	
+	/**
+	 * Gets one slot of the canonical form of this board's state: the origin cells grouped by shape
+	 *  class and sorted within each class. For packing board states.
+	 * @param slot The slot of the canonical form.
+	 * @return The cell index in that slot.
+	 */
+	int getCanonicalCell(int slot)
+	{
+		getBitBoard();
+		return canonical[slot];
+	}
+	
+	/**
+	 * Gets the index the specified omino would have on a board unpacked from this board's canonical
+	 *  form. Pieces in the same shape class may trade places when a state is unpacked, so this is
+	 *  how to follow a piece from a board to its unpacked copy.
+	 * @param index The index in the internal list of the omino.
+	 * @return The index of the interchangeable omino that takes over its position when unpacked.
+	 */
+	public int getCanonicalIndex(int index)
+	{
+		BitBoard bitBoard = getBitBoard();
+		return bitBoard.canonicalPiece(bitBoard.slotOf(canonical, index, bitBoard.cellIndex(positions.get(index))));
+	}
+	
+	/**
+	 * Moves every omino at once to the given origin cells, which must come from a valid state of a
+	 *  board with the same layout and pieces. For unpacking board states.
+	 * @param origins The BitBoard cell index of the origin of each omino, in order.
+	 */
+	void setOriginCells(int[] origins)
+	{
+		BitBoard bitBoard = getBitBoard();
+		for(int i = 0; i < origins.length; i++)
+			positions.set(i, bitBoard.tileAt(origins[i]));
+		blocked = bitBoard.newBlockedMask(origins);
+		occupancy = null;
+		stateHash = bitBoard.stateHash(origins);
+		canonical = bitBoard.canonicalize(origins);
+		lastPieceMoved = -1;
+		theMoveThatGotUsHere = null;
+	}
+	
+	/**
+	 * Gets the bitmask form of this board's layout and pieces, building it first if the layout or
+	 *  the pieces have changed since it was last built.
+	 * @return The BitBoard for this board.
+	 */
+	public BitBoard getBitBoard()
+	{
+		if(bits == null || blocked == null || bits.getNumPieces() != pieceOrder.size())
+		{
+			bits = new BitBoard(layout, pieceOrder);
+			int[] origins = originCells();
+			blocked = bits.newBlockedMask(origins);
+			occupancy = bits.newOccupancy(origins);
+			stateHash = bits.stateHash(origins);
+			canonical = bits.canonicalize(origins);
+		}
+		return bits;
+	}
+	
+	/**
+	 * Gets the occupancy array, building it from the piece positions if this board has not needed
+	 *  it yet. Copies leave it to be built here, since most copies made by a search are never
+	 *  looked at tile by tile.
+	 */
+	private int[] getOccupancy()
+	{
+		BitBoard bitBoard = getBitBoard();
+		if(occupancy == null)
+			occupancy = bitBoard.newOccupancy(originCells());
+		return occupancy;
+	}
+	
+	/**
+	 * Looks up the cell index of every omino's origin in the current BitBoard.
+	 */
+	private int[] originCells()
+	{
+		int[] origins = new int[pieceOrder.size()];
+		for(int i = 0; i < origins.length; i++)
+			origins[i] = bits.cellIndex(positions.get(i));
+		return origins;
+	}
+	
+	/**
+	 * Drops the bitmask form of the board; called whenever the layout or the pieces change, so that
+	 *  it gets rebuilt the next time it is needed.
+	 */
+	private void invalidateBits()
+	{
+		bits = null;
+		blocked = null;
+		occupancy = null;
+		canonical = null;
 	}
 	
 	public void setPreviousMove(Move move)
@@ -288,53 +498,80 @@ public class Board {
 	}
 	
 	
+	/**
+	 * Gets the index of the omino covering the given tile, in constant time.
+	 * @param tile The absolute tile to look up.
+	 * @return The index in the internal list of the omino on that tile, or a negative number if
+	 *  the tile is free (BitBoard.EMPTY) or not part of the layout (BitBoard.OFF_LAYOUT).
+	 */
+	public int getOminoIndexAt(Tile tile)
+	{
+		return getOminoIndexAt(tile.getX(), tile.getY());
+	}
+	
+	/**
+	 * Gets the index of the omino covering the given coordinates, in constant time and without
+	 *  creating a Tile.
+	 * @param x The absolute X coordinate to look up.
+	 * @param y The absolute Y coordinate to look up.
+	 * @return The index in the internal list of the omino there, or a negative number if the spot
+	 *  is free (BitBoard.EMPTY) or not part of the layout (BitBoard.OFF_LAYOUT).
+	 */
+	public int getOminoIndexAt(int x, int y)
+	{
+		if(layout.isEmpty())
+			return BitBoard.OFF_LAYOUT;
+		int cell = getBitBoard().cellIndex(x, y);
+		if(cell < 0)
+			return BitBoard.OFF_LAYOUT;
+		return getOccupancy()[cell];
+	}
+	
 	/**
 	 * Tests if a tile can be used for moving or placing a piece. If the tile is not in the layout
 	 * or if an omino is already on the tile, it returns false; otherwise true.
-	 * @param tile The absolute tile to test
+	 * @param x The absolute X coordinate to test
+	 * @param y The absolute Y coordinate to test
 	 * @return true if the space is open and usable, false if used or outside the board
 	 */
-	private boolean isAvailable(Tile tile)
+	private boolean isAvailable(int x, int y)
 	{
-		if(!layout.contains(tile))
-			return false;
-		for(Omino existing : pieceOrder)
-		{
-			if(existing.isInOmino(tile, allPieces.get(existing))) // We do not need to exclude a piece being moved, because the border we test is guaranteed to be entirely outside the piece due to how it is generated! 
-				return false;
-		}
-		return true;
+		return getOminoIndexAt(x, y) == BitBoard.EMPTY;	// a single array lookup, however many pieces there are
 	}
 	
 	/**
 	 * Overrides Object.equals to return true if the layout is exactly the same, with identically-shaped
 	 *  ominos placed in the same location being treated as identical for this purpose.
+	 * Both boards keep their state in canonical form, so past the piece check this is a single
+	 *  array compare.
 	 */
 	public boolean equals(Object otherBoard)
 	{
 		if(!(otherBoard instanceof Board) || ((Board)otherBoard).pieceOrder.size() != this.pieceOrder.size())
 			return false;
 		for (int i = 0; i < this.pieceOrder.size(); i++) {
-			Omino o = this.pieceOrder.get(i);
-			if(((Board)otherBoard).pieceOrder.get(i) != o)	// must be exact same references!
+			if(((Board)otherBoard).pieceOrder.get(i) != this.pieceOrder.get(i))	// must be exact same references!
 				return false;
-			if(!((Board)otherBoard).allPieces.get(o).equals(this.allPieces.get(o)))
-			{
-				boolean matchFound = false;
-				for(Omino possibleShape : this.pieceOrder)
-				{
-					Tile pos = ((Board)otherBoard).allPieces.get(possibleShape);
-					if(pos != null && pos.equals(this.allPieces.get(o)) && o.isSameShape(possibleShape))
-					{
-						matchFound = true;
-						break;
-					}
-				}
-				if(!matchFound)
-					return false;
-			}
 		}
-		return true;
+		if(this.layout.isEmpty() || ((Board)otherBoard).layout.isEmpty())
+			return this.positions.equals(((Board)otherBoard).positions);
+		this.getBitBoard();
+		((Board)otherBoard).getBitBoard();
+		return Arrays.equals(this.canonical, ((Board)otherBoard).canonical);
+	}
+	
+	/**
+	 * Gets the 64-bit Zobrist hash of the piece positions. Identically-shaped pieces without unique
+	 *  IDs share their keys, so Boards that are considered equal get the same value. It is updated
+	 *  with two XORs on every shift rather than recomputed.
+	 * @return The Zobrist hash of this board's state.
+	 */
+	public long getStateHash()
+	{
+		if(layout.isEmpty())
+			return 0;
+		getBitBoard();
+		return stateHash;
 	}
 	
 	/**
@@ -344,11 +581,7 @@ public class Board {
 	 */
 	public int hashCode()
 	{
-		int hash = 0;
-		for(Omino each : this.pieceOrder)
-		{	// An identically-shaped piece XORed with an identical Tile location makes the same value in the sum.
-			hash += each.getLayoutHash() ^ allPieces.get(each).hashCode();
-		}
-		return hash;
+		long hash = getStateHash();
+		return (int)(hash ^ (hash >>> 32));	// O(1); no loop over the pieces
 	}
 }
\ No newline at end of file
@@ -4,5 +4,23 @@ public enum Direction {
 	UP,
 	DOWN,
 	LEFT,
-	RIGHT
+	RIGHT;
+	
+	/**
+	 * Gets the direction that undoes a shift in this one.
+	 * @return The opposite direction.
+	 */
+	public Direction opposite()
+	{
+		switch (this) {
+		case UP:
+			return DOWN;
+		case DOWN:
+			return UP;
+		case LEFT:
+			return RIGHT;
+		default:
+			return LEFT;
+		}
+	}
 }
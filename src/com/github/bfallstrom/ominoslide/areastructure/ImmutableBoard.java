@@ -0,0 +1,275 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A board state that never changes once built. The positions of the pieces are kept as an array of
+ *  BitBoard cell indices; everything else--the layout, the pieces and their BitBoard--is shared by
+ *  every state derived from the same starting board. A shift returns a new ImmutableBoard that only
+ *  copies the positions, the blocked mask and the canonical form, a few dozen words in all.
+ * All fields are final and nothing reachable from them is changed after construction, so instances
+ *  can be handed between threads and kept in shared caches without any locking. The ominos must
+ *  not have their unique IDs changed once they are on a board, as for Board.
+ * Equality follows Board: the same layout and pieces, with identically-shaped pieces treated as
+ *  interchangeable.
+ * @author bfallstrom
+ *
+ */
+public final class ImmutableBoard {
+	private final Set<Tile> layout;			// shared, unmodifiable
+	private final List<Omino> pieces;		// shared, unmodifiable
+	private final BitBoard bits;			// shared; never modified
+	private final int[] origins;			// [piece] cell index of its origin
+	private final long[] blocked;			// cells that no piece may move into, as a mask over bits
+	private final int[] canonical;			// origin cells by shape class, sorted within each class
+	private final long stateHash;
+	private final int lastPieceMoved;
+	
+	/**
+	 * Takes a snapshot of a Board. The Board itself is not kept, so it may be changed afterwards.
+	 * @param board The board to copy. Must have a layout.
+	 */
+	public ImmutableBoard(Board board)
+	{
+		if(board.layout.isEmpty())
+			throw new IllegalArgumentException("Error: cannot take a snapshot of a board without a layout.");
+		this.layout = Collections.unmodifiableSet(new HashSet<Tile>(board.layout));
+		this.pieces = Collections.unmodifiableList(new ArrayList<Omino>(board.pieceOrder));
+		this.bits = board.getBitBoard();
+		this.origins = new int[pieces.size()];
+		for(int i = 0; i < origins.length; i++)
+			this.origins[i] = board.getOriginCell(i);
+		this.blocked = bits.newBlockedMask(origins);
+		this.canonical = bits.canonicalize(origins);
+		this.stateHash = board.getStateHash();
+		this.lastPieceMoved = board.getLastPieceIndex();
+	}
+	
+	/**
+	 * Builds the state with one piece moved to a new origin; only called once the move has been
+	 *  checked.
+	 */
+	private ImmutableBoard(ImmutableBoard old, int piece, int to)
+	{
+		this.layout = old.layout;
+		this.pieces = old.pieces;
+		this.bits = old.bits;
+		this.origins = old.origins.clone();
+		this.blocked = old.blocked.clone();
+		this.canonical = old.canonical.clone();
+		int from = old.origins[piece];
+		bits.place(this.blocked, piece, from);	// toggles it out
+		bits.place(this.blocked, piece, to);
+		this.origins[piece] = to;
+		bits.moveCanonical(this.canonical, piece, from, to);
+		this.stateHash = old.stateHash ^ bits.zobristKey(piece, from) ^ bits.zobristKey(piece, to);
+		this.lastPieceMoved = piece;
+	}
+	
+	/**
+	 * Gets the state after shifting one omino by one tile. This board is not changed.
+	 * @param ominoIndex The index of the omino to shift.
+	 * @param direction The direction to shift it.
+	 * @return The new state, or null if the shift is blocked.
+	 */
+	public ImmutableBoard withShift(int ominoIndex, Direction direction)
+	{
+		if(!canShiftOmino(ominoIndex, direction))
+			return null;
+		return new ImmutableBoard(this, ominoIndex, origins[ominoIndex] + bits.directionOffset(direction));
+	}
+	
+	/**
+	 * Finds every origin an omino can reach by sliding on its own, any number of tile-steps, while
+	 *  the others stay put.
+	 * @param ominoIndex The index of the omino to slide.
+	 * @return The BitBoard cell indices of the new origins, ascending, not counting the one it is
+	 *  on; empty if it cannot move at all.
+	 */
+	public int[] getSlideTargets(int ominoIndex)
+	{
+		int[] tree = bits.slideTree(blocked, ominoIndex, origins[ominoIndex]);
+		int count = 0;
+		for(int cell = 0; cell < tree.length; cell++)
+		{
+			if(tree[cell] >= 0 && cell != origins[ominoIndex])
+				tree[count++] = cell;	// only cells already passed are overwritten
+		}
+		return Arrays.copyOf(tree, count);
+	}
+	
+	/**
+	 * Gets the state after sliding one omino to a new origin. This board is not changed.
+	 * @param ominoIndex The index of the omino to slide.
+	 * @param cell One of the cells getSlideTargets gives for it.
+	 * @return The new state.
+	 */
+	public ImmutableBoard withSlide(int ominoIndex, int cell)
+	{
+		return new ImmutableBoard(this, ominoIndex, cell);
+	}
+	
+	/**
+	 * Tests whether the omino with the given index could be shifted in the given direction.
+	 * @param ominoIndex The index of the omino.
+	 * @param direction The direction to test.
+	 * @return true iff withShift would return a new state.
+	 */
+	public boolean canShiftOmino(int ominoIndex, Direction direction)
+	{
+		if(ominoIndex < 0 || ominoIndex >= origins.length || direction == null)
+			return false;
+		return bits.canShift(blocked, ominoIndex, origins[ominoIndex], direction);
+	}
+	
+	/**
+	 * Builds a mutable Board in the same state, sharing the pieces' BitBoard with this one.
+	 * @return A new Board.
+	 */
+	public Board toBoard()
+	{
+		return new Board(new HashSet<Tile>(layout), new ArrayList<Omino>(pieces), bits, origins, lastPieceMoved);
+	}
+	
+	/**
+	 *
+	 * @return The number of ominos on the board.
+	 */
+	public int getNumPieces()
+	{
+		return origins.length;
+	}
+	
+	/**
+	 * Gets the omino with the specified index.
+	 * @param index The index of the omino.
+	 * @return The Omino.
+	 */
+	public Omino getOmino(int index)
+	{
+		return pieces.get(index);
+	}
+	
+	/**
+	 * Gets the position of the specified omino, without creating a Tile.
+	 * @param index The index of the omino.
+	 * @return The absolute tile of its origin.
+	 */
+	public Tile getOminoPosition(int index)
+	{
+		return bits.tileAt(origins[index]);
+	}
+	
+	/**
+	 * Gets the position of the specified omino, looked up by reference.
+	 * @param omino The omino to look for.
+	 * @return The absolute tile of its origin, or null if it is not on this board.
+	 */
+	public Tile getOminoPosition(Omino omino)
+	{
+		int index = pieces.indexOf(omino);
+		if(index < 0)
+			return null;
+		return getOminoPosition(index);
+	}
+	
+	/**
+	 *
+	 * @return The index of the last piece that was moved, or -1 if none has been.
+	 */
+	public int getLastPieceIndex()
+	{
+		return lastPieceMoved;
+	}
+	
+	/**
+	 *
+	 * @return An unmodifiable view of the layout.
+	 */
+	public Set<Tile> getLayout()
+	{
+		return layout;
+	}
+	
+	/**
+	 *
+	 * @return The BitBoard shared by this state.
+	 */
+	public BitBoard getBitBoard()
+	{
+		return bits;
+	}
+	
+	/**
+	 * Gets the BitBoard cell index of the origin of the specified omino.
+	 * @param index The index of the omino.
+	 * @return The cell index of its origin.
+	 */
+	public int getOriginCell(int index)
+	{
+		return origins[index];
+	}
+	
+	/**
+	 * Gets one slot of the canonical form of this state, as for Board. For packing states.
+	 * @param slot The slot of the canonical form.
+	 * @return The cell index in that slot.
+	 */
+	int getCanonicalCell(int slot)
+	{
+		return canonical[slot];
+	}
+	
+	/**
+	 * Gets the index the specified omino would have on a board unpacked from this state's canonical
+	 *  form, as for Board.
+	 * @param index The index of the omino.
+	 * @return The index of the interchangeable omino that takes over its position when unpacked.
+	 */
+	public int getCanonicalIndex(int index)
+	{
+		return bits.canonicalPiece(bits.slotOf(canonical, index, origins[index]));
+	}
+	
+	/**
+	 * Gets the 64-bit Zobrist hash of the piece positions, the same value a Board in this state gives.
+	 * @return The Zobrist hash of this state.
+	 */
+	public long getStateHash()
+	{
+		return stateHash;
+	}
+	
+	/**
+	 * Overrides Object.equals to return true if the other state has the same layout and pieces, with
+	 *  identically-shaped ominos placed in the same location being treated as identical.
+	 */
+	public boolean equals(Object other)
+	{
+		if(this == other)
+			return true;
+		if(!(other instanceof ImmutableBoard))
+			return false;
+		ImmutableBoard otherBoard = (ImmutableBoard)other;
+		if(otherBoard.stateHash != this.stateHash || otherBoard.pieces.size() != this.pieces.size())
+			return false;
+		for(int i = 0; i < this.pieces.size(); i++) {
+			if(otherBoard.pieces.get(i) != this.pieces.get(i))	// must be exact same references!
+				return false;
+		}
+		return Arrays.equals(this.canonical, otherBoard.canonical);
+	}
+	
+	/**
+	 * Overrides hashCode to match equals; the folded Zobrist hash.
+	 */
+	public int hashCode()
+	{
+		return (int)(stateHash ^ (stateHash >>> 32));
+	}
+}
@@ -1,7 +1,10 @@
 package com.github.bfallstrom.ominoslide.areastructure;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public final class Omino {
@@ -13,6 +16,18 @@ public final class Omino {
 	Set<Tile> borderRight = new HashSet<Tile>();
 	
 	Integer uniqueId = null;
+	
+	// The shape again as a grid over its bounding box, so tiles can be tested without creating any.
+	private int gridMinX;
+	private int gridMinY;
+	private int gridWidth;
+	private int gridHeight;
+	private boolean[] grid;
+	
+	// The shape and borders again as packed coordinates (see pack), in Tile order, so they can be
+	//  walked by index without copying a set.
+	private int[] packedShape;
+	private int[][] packedBorders;	// [direction ordinal]
 
 	/**
 	 * Creats a default omino with a single tile at its origin.
@@ -21,6 +36,8 @@ public final class Omino {
 	{
 		shape.add(Tile.ZERO);
 		generateBorders();
+		generateGrid();
+		generatePacked();
 	}
 	
 	
@@ -40,6 +57,8 @@ public final class Omino {
 				shape.add(tile);
 		}
 		generateBorders();
+		generateGrid();
+		generatePacked();
 	}
 	
 	/**
@@ -47,14 +66,24 @@ public final class Omino {
 	 *  many identically-shaped pieces. The solving algorithm will be much less efficient
 	 *  if you create ominos with the same shape but different relative points of origin,
 	 *  since it will not recognize them as the same shape when comparing board equivalence.
+	 * The shape and border sets are never changed once built, so they are shared with the old
+	 *  omino rather than copied. The unique ID is not carried over.
 	 * @param oldOmino
 	 */
 	public Omino(Omino oldOmino)
 	{
-		for (Tile tile : oldOmino.shape) {
-			this.shape.add(new Tile(tile));
-		}
-		this.generateBorders();
+		this.shape = oldOmino.shape;
+		this.borderUp = oldOmino.borderUp;
+		this.borderDown = oldOmino.borderDown;
+		this.borderLeft = oldOmino.borderLeft;
+		this.borderRight = oldOmino.borderRight;
+		this.gridMinX = oldOmino.gridMinX;
+		this.gridMinY = oldOmino.gridMinY;
+		this.gridWidth = oldOmino.gridWidth;
+		this.gridHeight = oldOmino.gridHeight;
+		this.grid = oldOmino.grid;
+		this.packedShape = oldOmino.packedShape;
+		this.packedBorders = oldOmino.packedBorders;
 	}
 	
 	/**
@@ -75,8 +104,25 @@ public final class Omino {
 	 */
 	public boolean isInOmino(Tile testTile, Tile originPoint)
 	{
-		Tile relativeTile = testTile.minus(originPoint);
-		return isInOmino(relativeTile);
+		return isInOmino(testTile.getX(), testTile.getY(), originPoint.getX(), originPoint.getY());
+	}
+	
+	/**
+	 * Tests if a tile is part of this omino, assuming this omino's origin is at a given point.
+	 *  Works on plain coordinates, so no Tile is created.
+	 * @param x The X coordinate of the tile to be tested.
+	 * @param y The Y coordinate of the tile to be tested.
+	 * @param originX The X coordinate where this omino's origin should be assumed to be.
+	 * @param originY The Y coordinate where this omino's origin should be assumed to be.
+	 * @return true if the tile is within this omino's bounds.
+	 */
+	public boolean isInOmino(int x, int y, int originX, int originY)
+	{
+		int column = x - originX - gridMinX;
+		int row = y - originY - gridMinY;
+		if(column < 0 || column >= gridWidth || row < 0 || row >= gridHeight)
+			return false;
+		return grid[row * gridWidth + column];
 	}
 	
 	/**
@@ -97,6 +143,66 @@ public final class Omino {
 		return this.shape.size();
 	}
 	
+	/**
+	 * Gets one tile of this omino as packed coordinates, without copying anything. Together with
+	 *  getNumTiles this walks the shape in Tile order.
+	 * @param index The index of the tile, from 0 to getNumTiles() - 1.
+	 * @return The relative tile, packed; unpack it with packedX and packedY.
+	 */
+	public int getPackedTile(int index)
+	{
+		return this.packedShape[index];
+	}
+	
+	/**
+	 * Returns the number of tiles in the border in the given direction.
+	 * @param direction The direction the border faces.
+	 * @return the number of tiles in that border
+	 */
+	public int getNumBorderTiles(Direction direction)
+	{
+		return this.packedBorders[direction.ordinal()].length;
+	}
+	
+	/**
+	 * Gets one tile of the border in the given direction as packed coordinates, without copying
+	 *  anything.
+	 * @param direction The direction the border faces.
+	 * @param index The index of the tile, from 0 to getNumBorderTiles(direction) - 1.
+	 * @return The relative tile, packed; unpack it with packedX and packedY.
+	 */
+	public int getPackedBorderTile(Direction direction, int index)
+	{
+		return this.packedBorders[direction.ordinal()][index];
+	}
+	
+	/**
+	 * Packs a pair of relative coordinates into one int: X in the high 16 bits, Y in the low 16.
+	 *  Both must fit in a short, which any omino does.
+	 */
+	static int pack(int x, int y)
+	{
+		return (x << 16) | (y & 0xFFFF);
+	}
+	
+	/**
+	 * 
+	 * @return The X coordinate of a tile packed by this class.
+	 */
+	public static int packedX(int packed)
+	{
+		return packed >> 16;
+	}
+	
+	/**
+	 * 
+	 * @return The Y coordinate of a tile packed by this class.
+	 */
+	public static int packedY(int packed)
+	{
+		return (short)packed;
+	}
+	
 	/**
 	 * Gets a shallow copy of the upper border.
 	 * @return The tiles contained in the upper border to this omino.
@@ -133,6 +239,27 @@ public final class Omino {
 		return new HashSet<Tile>(this.borderRight);
 	}
 	
+	/**
+	 * Gets a shallow copy of the border in the given direction.
+	 * @param direction The direction the border faces.
+	 * @return The tiles contained in that border to this omino.
+	 */
+	public Set<Tile> getBorder(Direction direction)
+	{
+		switch (direction) {
+		case UP:
+			return getBorderUp();
+		case DOWN:
+			return getBorderDown();
+		case LEFT:
+			return getBorderLeft();
+		case RIGHT:
+			return getBorderRight();
+		default:
+			return new HashSet<Tile>();
+		}
+	}
+	
 	/**
 	 * Sets a unique ID for tracking win conditions
 	 * @param id the id to set
@@ -185,6 +312,52 @@ public final class Omino {
 		}
 	}
 	
+	/**
+	 * Should only be called at the end of the constructor; lays the shape out on a grid for isInOmino.
+	 */
+	private void generateGrid()
+	{
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		gridMinX = Integer.MAX_VALUE;
+		gridMinY = Integer.MAX_VALUE;
+		for(Tile tile : shape)
+		{
+			gridMinX = Math.min(gridMinX, tile.getX());
+			gridMinY = Math.min(gridMinY, tile.getY());
+			maxX = Math.max(maxX, tile.getX());
+			maxY = Math.max(maxY, tile.getY());
+		}
+		gridWidth = maxX - gridMinX + 1;
+		gridHeight = maxY - gridMinY + 1;
+		grid = new boolean[gridWidth * gridHeight];
+		for(Tile tile : shape)
+			grid[(tile.getY() - gridMinY) * gridWidth + tile.getX() - gridMinX] = true;
+	}
+	
+	/**
+	 * Should only be called at the end of the constructor; packs the shape and borders into arrays.
+	 */
+	private void generatePacked()
+	{
+		packedShape = packTiles(shape);
+		packedBorders = new int[Direction.values().length][];
+		packedBorders[Direction.UP.ordinal()] = packTiles(borderUp);
+		packedBorders[Direction.DOWN.ordinal()] = packTiles(borderDown);
+		packedBorders[Direction.LEFT.ordinal()] = packTiles(borderLeft);
+		packedBorders[Direction.RIGHT.ordinal()] = packTiles(borderRight);
+	}
+	
+	private static int[] packTiles(Set<Tile> tiles)
+	{
+		List<Tile> sorted = new ArrayList<Tile>(tiles);
+		Collections.sort(sorted);
+		int[] packed = new int[sorted.size()];
+		for(int i = 0; i < packed.length; i++)
+			packed[i] = pack(sorted.get(i).getX(), sorted.get(i).getY());
+		return packed;
+	}
+	
 	/**
 	 * Compares two ominos by shape. The .equals method is not used because it would wreak havoc with
 	 *  the Map used in implementing the Board and must remain the default Object implementation of
@@ -200,6 +373,8 @@ public final class Omino {
 				return true;	// Ids MUST be made unique or results will be unpredictable!
 			return false;
 		}
+		if(this.shape == other.shape)
+			return true;	// shared through the copy constructor or a ShapeCatalog
 		if(this.shape.size() != other.shape.size())
 			return false;
 		for(Tile tile : this.shape)
@@ -0,0 +1,79 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Interns omino shapes and numbers them. Every distinct shape gets one integer shape class, and
+ *  ominos created through the catalog share a single copy of their shape and borders, so they can
+ *  be recognized as interchangeable by reference.
+ * An omino with a unique ID (as used for the pieces of a WinningPosition) always gets a class of
+ *  its own, whatever its shape.
+ * Class numbers are handed out in the order shapes are first seen, starting at zero.
+ * @author bfallstrom
+ *
+ */
+public final class ShapeCatalog {
+	private Map<Set<Tile>, Omino> prototypes = new HashMap<Set<Tile>, Omino>();
+	private Map<Set<Tile>, Integer> shapeClasses = new HashMap<Set<Tile>, Integer>();
+	private Map<Integer, Integer> uniqueClasses = new HashMap<Integer, Integer>();	// unique ID -> class
+	private int numClasses = 0;
+	
+	/**
+	 * Creates a new omino with the given shape. All ominos made here with the same shape share the
+	 *  same tile and border sets; each is still a separate piece.
+	 * @param tiles The shape of the omino; must include the relative tile {0,0}.
+	 * @return A new Omino with the interned shape.
+	 */
+	public Omino newOmino(Collection<Tile> tiles)
+	{
+		Set<Tile> shape = new HashSet<Tile>(tiles);
+		Omino prototype = prototypes.get(shape);
+		if(prototype == null)
+		{
+			prototype = new Omino(shape);
+			prototypes.put(shape, prototype);
+		}
+		return new Omino(prototype);
+	}
+	
+	/**
+	 * Gets the shape class of an omino, giving its shape a new class if it has not been seen before.
+	 * @param omino The omino to classify.
+	 * @return The shape class: equal for two ominos exactly when Omino.isSameShape is true.
+	 */
+	public int classOf(Omino omino)
+	{
+		Integer shapeClass;
+		if(omino.getUniqueId() != null)
+		{
+			shapeClass = uniqueClasses.get(omino.getUniqueId());
+			if(shapeClass == null)
+			{
+				shapeClass = numClasses++;
+				uniqueClasses.put(omino.getUniqueId(), shapeClass);
+			}
+		} else
+		{
+			shapeClass = shapeClasses.get(omino.shape);
+			if(shapeClass == null)
+			{
+				shapeClass = numClasses++;
+				shapeClasses.put(omino.shape, shapeClass);
+			}
+		}
+		return shapeClass;
+	}
+	
+	/**
+	 *
+	 * @return The number of shape classes handed out so far.
+	 */
+	public int getNumClasses()
+	{
+		return numClasses;
+	}
+}
@@ -0,0 +1,110 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.Arrays;
+
+/**
+ * The packed form of a board state, as produced by a StateCodec: the positions of all the pieces
+ *  squeezed into as few longs as possible. Meant to be used as a map key in place of a whole
+ *  Board, which costs many times as much memory.
+ * Only codes from the same StateCodec may be compared with each other. The hash code is the
+ *  board's Zobrist hash, so making a code does not loop over the words to hash them. Tables that
+ *  need all 64 bits well spread, or that keep the words of codes outside StateCode objects, use
+ *  mixedHash() instead, which does.
+ * @author bfallstrom
+ *
+ */
+public final class StateCode {
+	public static final long HASH_SEED = 0x9E3779B97F4A7C15L;	// what mixedHash() starts from
+	
+	private final long[] words;
+	private final int hash;
+	
+	/**
+	 * Wraps an array of packed words. The array is not copied and must not be changed afterward.
+	 *  Only StateCodec makes codes, so that every code of a state carries the same hash.
+	 * @param words The packed words.
+	 * @param stateHash The Zobrist hash of the state, as kept by the Board.
+	 */
+	StateCode(long[] words, long stateHash)
+	{
+		this.words = words;
+		this.hash = (int)(stateHash ^ (stateHash >>> 32));
+	}
+	
+	/**
+	 * 
+	 * @return The number of longs in this code.
+	 */
+	public int getNumWords()
+	{
+		return words.length;
+	}
+	
+	/**
+	 * Gets one of the packed words.
+	 * @param index The index of the word.
+	 * @return The word at that index.
+	 */
+	public long getWord(int index)
+	{
+		return words[index];
+	}
+	
+	/**
+	 * Hashes the words into 64 well-spread bits, folding each in with mix() from HASH_SEED. Worked
+	 *  out on each call, unlike hashCode().
+	 * @return The hash, the same for every code of the state from the same StateCodec.
+	 */
+	public long mixedHash()
+	{
+		return mixedHash(words, 0, words.length);
+	}
+	
+	/**
+	 * Hashes a code kept as words in a larger array, as mixedHash() would hash it.
+	 * @param words The array holding the code.
+	 * @param offset The index of its first word.
+	 * @param numWords The number of words in a code.
+	 * @return The hash.
+	 */
+	public static long mixedHash(long[] words, int offset, int numWords)
+	{
+		long hash = HASH_SEED;
+		for(int i = 0; i < numWords; i++)
+			hash = mix(hash, words[offset + i]);
+		return hash;
+	}
+	
+	/**
+	 * Folds one word into a hash, with the 64-bit finalizer of MurmurHash3 so that every bit of the
+	 *  word reaches every bit of the result. A code kept elsewhere, such as in a ByteBuffer, hashes as
+	 *  mixedHash() does by folding its words in order into HASH_SEED.
+	 * @param hash The hash so far.
+	 * @param word The word to fold in.
+	 * @return The new hash.
+	 */
+	public static long mix(long hash, long word)
+	{
+		long value = hash ^ word;
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+	
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof StateCode))
+			return false;
+		return ((StateCode)o).hash == this.hash && Arrays.equals(((StateCode)o).words, this.words);
+	}
+	
+	public int hashCode()
+	{
+		return hash;
+	}
+	
+	public String toString()
+	{
+		return Arrays.toString(words);
+	}
+}
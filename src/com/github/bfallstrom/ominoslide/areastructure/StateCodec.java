@@ -0,0 +1,155 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+/**
+ * Packs the state of a Board into a StateCode and unpacks it again. The board's canonical form is
+ *  packed, one BitBoard cell index per slot, using just enough bits to hold any cell of the board,
+ *  so a typical puzzle fits in a single long. Since the canonical form sorts the positions within
+ *  each shape class, states that differ only by swapped interchangeable pieces get the same code.
+ * A codec is built from one Board and only works with that Board and its copies, since the
+ *  layout and the pieces are not part of the code.
+ * @author bfallstrom
+ *
+ */
+public final class StateCodec {
+	private final Board template;
+	private final int numPieces;
+	private final int bitsPerPiece;
+	private final int piecesPerWord;
+	private final int numWords;
+	private final long pieceMask;
+	
+	/**
+	 * Creates a codec for the given board and all copies of it.
+	 * @param template The board whose layout and pieces the codes refer to.
+	 */
+	public StateCodec(Board template)
+	{
+		if(template.getNumPieces() == 0)
+			throw new IllegalArgumentException("Error: Cannot encode a board without pieces!");
+		this.template = new Board(template);
+		this.numPieces = template.getNumPieces();
+		int numCells = template.getBitBoard().getNumCells();
+		this.bitsPerPiece = Math.max(1, 32 - Integer.numberOfLeadingZeros(numCells - 1));
+		this.piecesPerWord = 64 / bitsPerPiece;	// pieces never straddle two words
+		this.numWords = (numPieces + piecesPerWord - 1) / piecesPerWord;
+		this.pieceMask = (1L << bitsPerPiece) - 1;
+	}
+	
+	/**
+	 * 
+	 * @return The number of longs in every code made by this codec.
+	 */
+	public int getNumWords()
+	{
+		return numWords;
+	}
+	
+	/**
+	 * 
+	 * @return The number of bits used for the position of one piece.
+	 */
+	public int getBitsPerPiece()
+	{
+		return bitsPerPiece;
+	}
+	
+	/**
+	 * Packs the positions of the pieces of a board.
+	 * @param board A copy of the template board, in any state.
+	 * @return The code of the board's state.
+	 */
+	public StateCode encode(Board board)
+	{
+		long[] words = new long[numWords];
+		for(int i = 0; i < numPieces; i++)
+			words[i / piecesPerWord] |= (long)board.getCanonicalCell(i) << (bitsPerPiece * (i % piecesPerWord));
+		return new StateCode(words, board.getStateHash());
+	}
+	
+	/**
+	 * Packs the positions of the pieces of an immutable state.
+	 * @param board A state derived from a copy of the template board.
+	 * @return The code of the state; the same as for a Board in that state.
+	 */
+	public StateCode encode(ImmutableBoard board)
+	{
+		long[] words = new long[numWords];
+		for(int i = 0; i < numPieces; i++)
+			words[i / piecesPerWord] |= (long)board.getCanonicalCell(i) << (bitsPerPiece * (i % piecesPerWord));
+		return new StateCode(words, board.getStateHash());
+	}
+	
+	/**
+	 * Packs the state an immutable state would be in with one piece moved, without building it; so
+	 *  that a search need only build the states it has not seen.
+	 * @param board A state derived from a copy of the template board.
+	 * @param piece The index of the piece to move.
+	 * @param to The cell index of its new origin, which it must be able to reach.
+	 * @return The code of the state after the move.
+	 */
+	public StateCode encode(ImmutableBoard board, int piece, int to)
+	{
+		BitBoard bits = template.getBitBoard();
+		int from = board.getOriginCell(piece);
+		int[] canonical = new int[numPieces];
+		for(int i = 0; i < numPieces; i++)
+			canonical[i] = board.getCanonicalCell(i);
+		bits.moveCanonical(canonical, piece, from, to);
+		long[] words = new long[numWords];
+		for(int i = 0; i < numPieces; i++)
+			words[i / piecesPerWord] |= (long)canonical[i] << (bitsPerPiece * (i % piecesPerWord));
+		return new StateCode(words, board.getStateHash() ^ bits.zobristKey(piece, from) ^ bits.zobristKey(piece, to));
+	}
+	
+	/**
+	 * Packs a canonical form directly, as built by BitBoard.canonicalize.
+	 * @param canonical The canonical form of a valid state.
+	 * @return The code of that state.
+	 */
+	StateCode encodeCanonical(int[] canonical)
+	{
+		long[] words = new long[numWords];
+		for(int i = 0; i < numPieces; i++)
+			words[i / piecesPerWord] |= (long)canonical[i] << (bitsPerPiece * (i % piecesPerWord));
+		BitBoard bits = template.getBitBoard();
+		return new StateCode(words, bits.stateHash(bits.originsOf(canonical)));
+	}
+	
+	/**
+	 * Rebuilds a code from its packed words, as read back from storage.
+	 * @param words The words of a code made by this codec. The array is kept, not copied.
+	 * @return The code.
+	 */
+	public StateCode fromWords(long[] words)
+	{
+		StateCode unhashed = new StateCode(words, 0);
+		return new StateCode(words, template.getBitBoard().stateHash(decodeOrigins(unhashed)));
+	}
+	
+	/**
+	 * Unpacks a code into the cell indices of the origins of the pieces. Within each shape class,
+	 *  the pieces take the positions in sorted order.
+	 * @param code A code made by this codec.
+	 * @return The origin cell of each piece, in piece order.
+	 */
+	public int[] decodeOrigins(StateCode code)
+	{
+		int[] canonical = new int[numPieces];
+		for(int i = 0; i < numPieces; i++)
+			canonical[i] = (int)((code.getWord(i / piecesPerWord) >>> (bitsPerPiece * (i % piecesPerWord))) & pieceMask);
+		return template.getBitBoard().originsOf(canonical);
+	}
+	
+	/**
+	 * Unpacks a code into a new Board. The board shares its layout and pieces with the template, and
+	 *  has no record of the last piece moved or of the move that led to it.
+	 * @param code A code made by this codec.
+	 * @return A new Board in the state the code describes.
+	 */
+	public Board decode(StateCode code)
+	{
+		Board board = new Board(template);
+		board.setOriginCells(decodeOrigins(code));
+		return board;
+	}
+}
@@ -0,0 +1,188 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.SplittableRandom;
+
+/**
+ * Numbers the states of a Board densely, from 0 up to the size of the ranking, so that a search
+ *  can keep a few bits per state in a flat array instead of a table of codes.
+ * Each shape class gets the list of origins its pieces could ever reach on the empty layout. The
+ *  pieces of a class are interchangeable, so their positions form a set, numbered by the
+ *  combinatorial number system among all sets of that many of the class's origins. The numbers
+ *  of the classes are then combined as the digits of a mixed-radix number.
+ * The ranking counts every arrangement that puts each class's pieces on distinct origins, whether
+ *  or not pieces of different classes overlap; those states are simply never reached. So the size
+ *  is only an upper bound on the number of states, and a rank must come from a valid state to be
+ *  unranked.
+ * A ranker is built from one Board and only works with that Board and its copies.
+ * @author bfallstrom
+ *
+ */
+public final class StateRanker {
+	private final BitBoard	bits;
+	private final int[]		classStarts;	// [class] first slot of the class in the canonical form
+	private final int[]		classSizes;		// [class]
+	private final int[][]	origins;		// [class][placement] cell index, ascending
+	private final int[][]	placements;		// [class][cell] index of the cell among the origins, or -1
+	private final long[]	radices;		// [class] number of sets of origins of the class
+	private final long[][]	binomials;		// [n][k] n choose k, for n up to the most origins of a class
+	private final long		size;
+	private final int		numTiles;		// tiles covered by all the pieces together
+	
+	/**
+	 * Builds the ranking for the given board and all copies of it.
+	 * @param template The board whose layout and pieces the ranks refer to.
+	 * @throws IllegalArgumentException If there are too many states to number in a long.
+	 */
+	public StateRanker(Board template)
+	{
+		this.bits = template.getBitBoard();
+		int numClasses = bits.getNumShapeClasses();
+		int numPieces = bits.getNumPieces();
+		this.classStarts = new int[numClasses];
+		this.classSizes = new int[numClasses];
+		int tiles = 0;
+		for(int piece = 0; piece < numPieces; piece++)
+			tiles += template.getOmino(piece).getNumTiles();
+		this.numTiles = tiles;
+		boolean[][] reachable = new boolean[numClasses][bits.getNumCells()];
+		for(int slot = numPieces - 1; slot >= 0; slot--)
+		{
+			int piece = bits.canonicalPiece(slot);
+			int c = bits.getShapeClass(piece);
+			classStarts[c] = slot;
+			classSizes[c]++;
+			int[] distances = bits.slideDistances(piece, template.getOriginCell(piece));
+			for(int cell = 0; cell < distances.length; cell++)
+				reachable[c][cell] |= distances[cell] >= 0;
+		}
+		this.origins = new int[numClasses][];
+		this.placements = new int[numClasses][bits.getNumCells()];
+		int maxOrigins = 0;
+		for(int c = 0; c < numClasses; c++)
+		{
+			int count = 0;
+			for(int cell = 0; cell < bits.getNumCells(); cell++)
+				placements[c][cell] = reachable[c][cell] ? count++ : -1;
+			origins[c] = new int[count];
+			for(int cell = 0; cell < bits.getNumCells(); cell++)
+			{
+				if(placements[c][cell] >= 0)
+					origins[c][placements[c][cell]] = cell;
+			}
+			maxOrigins = Math.max(maxOrigins, count);
+		}
+		this.binomials = new long[maxOrigins + 1][numPieces + 1];
+		for(int n = 0; n <= maxOrigins; n++)
+		{
+			binomials[n][0] = 1;
+			for(int k = 1; k <= Math.min(n, numPieces); k++)
+				binomials[n][k] = saturatingAdd(binomials[n-1][k-1], binomials[n-1][k]);
+		}
+		this.radices = new long[numClasses];
+		long total = 1;
+		for(int c = 0; c < numClasses; c++)
+		{
+			radices[c] = binomials[origins[c].length][classSizes[c]];
+			if(radices[c] == Long.MAX_VALUE || total > Long.MAX_VALUE / radices[c])
+				throw new IllegalArgumentException("WARNING! This puzzle has too many states to rank!");
+			total *= radices[c];
+		}
+		this.size = total;
+	}
+	
+	/**
+	 *
+	 * @return The number of ranks; every state's rank is below it.
+	 */
+	public long size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Ranks a board's state.
+	 * @param board A copy of the template board, in any state.
+	 * @return The rank of its state.
+	 */
+	public long rank(Board board)
+	{
+		long rank = 0;
+		for(int c = 0; c < classSizes.length; c++)
+		{
+			long digit = 0;
+			for(int k = 0; k < classSizes[c]; k++)	// the cells are sorted, so their placements are too
+				digit += binomials[placements[c][board.getCanonicalCell(classStarts[c] + k)]][k + 1];
+			rank = rank * radices[c] + digit;
+		}
+		return rank;
+	}
+	
+	/**
+	 * Puts a board into the state with the given rank.
+	 * @param rank The rank of a valid state.
+	 * @param board A copy of the template board; its pieces are moved, and it forgets the last
+	 *  piece moved.
+	 */
+	public void unrank(long rank, Board board)
+	{
+		board.setOriginCells(bits.originsOf(canonicalOf(rank)));
+	}
+	
+	/**
+	 * Estimates how many ranks belong to states in which no two pieces overlap, from a random
+	 *  sample of ranks. That is still only an upper bound on the states that can be reached, but
+	 *  usually a much closer one than size().
+	 * @param samples The number of ranks to try.
+	 * @param seed The seed of the sample, so that an estimate can be repeated.
+	 * @return The estimate, at least 1.
+	 */
+	public long estimateValidStates(int samples, long seed)
+	{
+		SplittableRandom random = new SplittableRandom(seed);
+		int emptyCount = bitCount(bits.newBlockedMask(new int[0]));
+		int valid = 0;
+		for(int i = 0; i < samples; i++)
+		{	// the pieces are toggled into the mask, so any overlap leaves fewer cells blocked
+			long[] blocked = bits.newBlockedMask(bits.originsOf(canonicalOf(random.nextLong(size))));
+			if(bitCount(blocked) - emptyCount == numTiles)
+				valid++;
+		}
+		return Math.max(1, (long)(size * ((double)valid / samples)));
+	}
+	
+	/**
+	 * Finds the canonical form of the origins of the state with the given rank.
+	 */
+	private int[] canonicalOf(long rank)
+	{
+		int[] canonical = new int[bits.getNumPieces()];
+		for(int c = classSizes.length - 1; c >= 0; c--)
+		{
+			long digit = rank % radices[c];
+			rank /= radices[c];
+			int n = origins[c].length;
+			for(int k = classSizes[c]; k > 0; k--)
+			{
+				n--;
+				while(binomials[n][k] > digit)
+					n--;
+				digit -= binomials[n][k];
+				canonical[classStarts[c] + k - 1] = origins[c][n];
+			}
+		}
+		return canonical;
+	}
+	
+	private static int bitCount(long[] mask)
+	{
+		int count = 0;
+		for(long word : mask)
+			count += Long.bitCount(word);
+		return count;
+	}
+	
+	private static long saturatingAdd(long a, long b)
+	{
+		return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+	}
+}
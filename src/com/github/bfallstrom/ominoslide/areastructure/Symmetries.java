@@ -0,0 +1,292 @@
+package com.github.bfallstrom.ominoslide.areastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The mirror images and rotations of a puzzle that leave it unchanged, used to fold each state
+ *  together with its images so that a search only stores one of them.
+ * A transform of the layout's bounding box is a symmetry of the puzzle when:
+ *  - it maps the layout onto itself;
+ *  - every shape class maps onto a shape class with as many pieces, the image of the shape being
+ *    the other class's shape moved over by a fixed offset;
+ *  - every piece with a unique ID, and so every piece of the WinningPosition, maps onto itself,
+ *    and its goal position onto itself.
+ * The images of a state are then states of the same puzzle, the same number of moves from a
+ *  solution, and their moves are images of its moves. Puzzles whose pieces come in one handedness
+ *  only, like an L without a matching J, have no symmetry but the identity.
+ * The canonical image of a state is the one whose canonical form (see BitBoard) is lowest, slot by
+ *  slot. Finding it keeps scratch arrays, so an instance must not be used by two threads at once.
+ * @author bfallstrom
+ *
+ */
+public final class Symmetries {
+	private static final int[][] LINEAR = {	// x' = a*x + b*y, y' = c*x + d*y, as {a, b, c, d}
+		{1, 0, 0, 1}, {-1, 0, 0, 1}, {1, 0, 0, -1}, {-1, 0, 0, -1},
+		{0, 1, 1, 0}, {0, -1, 1, 0}, {0, 1, -1, 0}, {0, -1, -1, 0}
+	};
+	
+	private final BitBoard	bits;
+	private final int[]		classStarts;	// [class] first slot of the class in the canonical form
+	private final int[]		classSizes;		// [class]
+	private final int[][]	classMaps;		// [transform][class] class of the image
+	private final int[][][]	cellMaps;		// [transform][class][cell] origin of the image of a piece of the class with its origin there
+	private final int[]		original;		// the canonical form of the board last passed to encode
+	private int[]			best;			// the canonical image found for it
+	private int[]			candidate;
+	private final int[]		fill;			// [class] scratch count of the slots filled
+	private int				bestTransform = 0;
+	
+	private Symmetries(BitBoard bits, int[] classStarts, int[] classSizes, List<int[]> classMaps, List<int[][]> cellMaps)
+	{
+		this.bits = bits;
+		this.classStarts = classStarts;
+		this.classSizes = classSizes;
+		this.classMaps = classMaps.toArray(new int[classMaps.size()][]);
+		this.cellMaps = cellMaps.toArray(new int[cellMaps.size()][][]);
+		this.original = new int[bits.getNumPieces()];
+		this.best = new int[bits.getNumPieces()];
+		this.candidate = new int[bits.getNumPieces()];
+		this.fill = new int[classSizes.length];
+	}
+	
+	/**
+	 * Finds the symmetries of a puzzle.
+	 * @param board The starting position; only its layout and pieces matter, not where they are.
+	 * @param goal The position to seek. Its pieces must be the same objects as on the board.
+	 * @return The symmetries, always including the identity.
+	 */
+	public static Symmetries detect(Board board, WinningPosition goal)
+	{
+		BitBoard bits = board.getBitBoard();
+		int numPieces = board.getNumPieces();
+		int numClasses = bits.getNumShapeClasses();
+		int[] classStarts = new int[numClasses];
+		int[] classSizes = new int[numClasses];
+		int[] representatives = new int[numClasses];
+		Arrays.fill(classStarts, -1);
+		for(int slot = 0; slot < numPieces; slot++)
+		{
+			int piece = bits.canonicalPiece(slot);
+			int c = bits.getShapeClass(piece);
+			if(classStarts[c] < 0)
+			{
+				classStarts[c] = slot;
+				representatives[c] = piece;
+			}
+			classSizes[c]++;
+		}
+		boolean[] fixed = new boolean[numClasses];	// classes that must map onto themselves
+		int[] goalPieces = new int[goal.getNumPieces()];
+		for(int g = 0; g < goalPieces.length; g++)
+		{
+			goalPieces[g] = -1;
+			for(int i = 0; i < numPieces; i++)
+			{
+				if(board.getOmino(i) == goal.getOmino(g))
+					goalPieces[g] = i;
+			}
+			if(goalPieces[g] < 0)
+				throw new IllegalArgumentException("Error: a piece of the winning position is not on the starting board!");
+			fixed[bits.getShapeClass(goalPieces[g])] = true;
+		}
+		for(int c = 0; c < numClasses; c++)
+			fixed[c] |= board.getOmino(representatives[c]).getUniqueId() != null;
+	
+		Set<Tile> layout = board.getLayout();
+		Tile low = board.getLowerLeftBound();
+		Tile high = board.getUpperRightBound();
+		List<int[]> classMaps = new ArrayList<int[]>();
+		List<int[][]> cellMaps = new ArrayList<int[][]>();
+		for(int[] m : LINEAR)
+		{
+			// move the image of the bounding box back onto it
+			int offsetX = low.getX() - Math.min(m[0] * low.getX(), m[0] * high.getX()) - Math.min(m[1] * low.getY(), m[1] * high.getY());
+			int offsetY = low.getY() - Math.min(m[2] * low.getX(), m[2] * high.getX()) - Math.min(m[3] * low.getY(), m[3] * high.getY());
+			boolean valid = true;
+			for(Tile tile : layout)
+			{
+				if(!layout.contains(new Tile(m[0] * tile.getX() + m[1] * tile.getY() + offsetX, m[2] * tile.getX() + m[3] * tile.getY() + offsetY)))
+				{
+					valid = false;
+					break;
+				}
+			}
+			int[] classMap = new int[numClasses];
+			int[][] cellMap = new int[numClasses][];
+			for(int c = 0; c < numClasses && valid; c++)
+			{
+				classMap[c] = -1;
+				Omino shape = board.getOmino(representatives[c]);
+				for(int c2 = 0; c2 < numClasses && classMap[c] < 0; c2++)
+				{
+					if(classSizes[c2] != classSizes[c] || fixed[c2] != fixed[c] || (fixed[c] && c2 != c))
+						continue;
+					Tile shift = shapeOffset(m, shape, board.getOmino(representatives[c2]));
+					if(shift == null)
+						continue;
+					classMap[c] = c2;
+					cellMap[c] = new int[bits.getNumCells()];
+					for(int cell = 0; cell < cellMap[c].length; cell++)
+					{
+						int x = bits.cellX(cell);
+						int y = bits.cellY(cell);
+						cellMap[c][cell] = bits.cellIndex(m[0] * x + m[1] * y + offsetX + shift.getX(),
+								m[2] * x + m[3] * y + offsetY + shift.getY());
+					}
+				}
+				valid = classMap[c] >= 0;
+			}
+			for(int g = 0; g < goalPieces.length && valid; g++)
+			{
+				int goalCell = bits.cellIndex(goal.getOminoPosition(g));
+				valid = cellMap[bits.getShapeClass(goalPieces[g])][goalCell] == goalCell;
+			}
+			if(valid)
+			{
+				classMaps.add(classMap);
+				cellMaps.add(cellMap);
+			}
+		}
+		return new Symmetries(bits, classStarts, classSizes, classMaps, cellMaps);
+	}
+	
+	/**
+	 * Works out how far the image of a shape is from another shape.
+	 * @return The offset from the other shape to the image, or null if the image is not the
+	 *  other shape moved over.
+	 */
+	private static Tile shapeOffset(int[] m, Omino shape, Omino other)
+	{
+		if(shape.getNumTiles() != other.getNumTiles())
+			return null;
+		Set<Tile> image = new HashSet<Tile>();
+		int imageX = Integer.MAX_VALUE, imageY = Integer.MAX_VALUE;
+		for(int i = 0; i < shape.getNumTiles(); i++)
+		{
+			int x = Omino.packedX(shape.getPackedTile(i));
+			int y = Omino.packedY(shape.getPackedTile(i));
+			Tile tile = new Tile(m[0] * x + m[1] * y, m[2] * x + m[3] * y);
+			image.add(tile);
+			imageX = Math.min(imageX, tile.getX());
+			imageY = Math.min(imageY, tile.getY());
+		}
+		int otherX = Integer.MAX_VALUE, otherY = Integer.MAX_VALUE;
+		for(int i = 0; i < other.getNumTiles(); i++)
+		{
+			otherX = Math.min(otherX, Omino.packedX(other.getPackedTile(i)));
+			otherY = Math.min(otherY, Omino.packedY(other.getPackedTile(i)));
+		}
+		for(int i = 0; i < other.getNumTiles(); i++)
+		{
+			int x = Omino.packedX(other.getPackedTile(i)) + imageX - otherX;
+			int y = Omino.packedY(other.getPackedTile(i)) + imageY - otherY;
+			if(!image.contains(new Tile(x, y)))
+				return null;
+		}
+		return new Tile(imageX - otherX, imageY - otherY);
+	}
+	
+	/**
+	 *
+	 * @return The number of symmetries, counting the identity.
+	 */
+	public int size()
+	{
+		return classMaps.length;
+	}
+	
+	/**
+	 * Packs the canonical image of a board's state: of the state and all its images, the one with
+	 *  the lowest canonical form.
+	 * @param codec A codec for the board.
+	 * @param board The board, in any state.
+	 * @return The code of the canonical image.
+	 */
+	public StateCode encode(StateCodec codec, Board board)
+	{
+		for(int slot = 0; slot < original.length; slot++)
+			original[slot] = board.getCanonicalCell(slot);
+		System.arraycopy(original, 0, best, 0, original.length);
+		bestTransform = 0;
+		for(int t = 1; t < classMaps.length; t++)
+		{
+			image(t, original, candidate);
+			if(compare(candidate, best) < 0)
+			{
+				int[] swap = best;
+				best = candidate;
+				candidate = swap;
+				bestTransform = t;
+			}
+		}
+		return codec.encodeCanonical(best);
+	}
+	
+	/**
+	 * Follows a piece of the board last passed to encode into its canonical image.
+	 * @param board That board, unchanged since.
+	 * @param piece The index of a piece on it.
+	 * @return The index of the piece that takes over the image of its position when the canonical
+	 *  image is unpacked.
+	 */
+	public int getCanonicalIndex(Board board, int piece)
+	{
+		int c = bits.getShapeClass(piece);
+		int c2 = classMaps[bestTransform][c];
+		int cell = cellMaps[bestTransform][c][board.getOriginCell(piece)];
+		int slot = classStarts[c2];
+		while(best[slot] != cell)
+			slot++;
+		return bits.canonicalPiece(slot);
+	}
+	
+	/**
+	 * Unpacks every image of a state, including the state itself.
+	 * @param codec The codec the state was packed with.
+	 * @param code The packed state.
+	 * @return A new Board for each symmetry, the identity first; some may hold the same state.
+	 */
+	public List<Board> images(StateCodec codec, StateCode code)
+	{
+		int[] canonical = bits.canonicalize(codec.decodeOrigins(code));
+		List<Board> images = new ArrayList<Board>();
+		for(int t = 0; t < classMaps.length; t++)
+		{
+			int[] image = new int[canonical.length];
+			image(t, canonical, image);
+			images.add(codec.decode(codec.encodeCanonical(image)));
+		}
+		return images;
+	}
+	
+	/**
+	 * Builds the canonical form of the image of a state under one transform.
+	 */
+	private void image(int t, int[] canonical, int[] image)
+	{
+		int[] classMap = classMaps[t];
+		Arrays.fill(fill, 0);
+		for(int c = 0; c < classSizes.length; c++)
+		{
+			int c2 = classMap[c];
+			for(int k = 0; k < classSizes[c]; k++)
+				image[classStarts[c2] + fill[c2]++] = cellMaps[t][c][canonical[classStarts[c] + k]];
+		}
+		for(int c = 0; c < classSizes.length; c++)
+			Arrays.sort(image, classStarts[c], classStarts[c] + classSizes[c]);
+	}
+	
+	private static int compare(int[] a, int[] b)
+	{
+		for(int i = 0; i < a.length; i++)
+		{
+			if(a[i] != b[i])
+				return a[i] < b[i] ? -1 : 1;
+		}
+		return 0;
+	}
+}
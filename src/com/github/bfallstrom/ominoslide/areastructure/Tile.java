@@ -38,7 +38,26 @@ public final class Tile implements Cloneable, Comparable<Tile> {
 	{
 		return new Tile(this.xCoord - diffThisTile.xCoord, this.yCoord - diffThisTile.yCoord);
 	}
-
+	
+	/**
+	 * Gets the relative tile for a single step in the given direction.
+	 * @param direction The direction of the step.
+	 * @return One of UP, DOWN, LEFT or RIGHT.
+	 */
+	public static Tile translation(Direction direction)
+	{
+		switch (direction) {
+		case UP:
+			return UP;
+		case DOWN:
+			return DOWN;
+		case LEFT:
+			return LEFT;
+		default:
+			return RIGHT;
+		}
+	}
+	
 	public int getX()
 	{
 		return this.xCoord;
@@ -25,7 +25,23 @@ public final class WinningPosition extends Board {
 			throw new IllegalArgumentException("ERROR: Tried to test a win condition on another win condition!");
 		for (int i = 0; i < this.pieceOrder.size(); i++) {
 			Omino o = this.pieceOrder.get(i);
-			if(!(board.allPieces.get(o).equals(this.allPieces.get(o))))
+			if(!(this.positions.get(i).equals(board.getOminoPosition(o))))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Compares with an ImmutableBoard to determine if it is a winning position.
+	 * @param board The state to test.
+	 * @return true iff all the pieces in this WinningPosition are arranged in the same locations
+	 *  on the given state, regardless of the arrangement of other pieces.
+	 */
+	public boolean meetsTheseConditions(ImmutableBoard board)
+	{
+		for (int i = 0; i < this.pieceOrder.size(); i++) {
+			Omino o = this.pieceOrder.get(i);
+			if(!(this.positions.get(i).equals(board.getOminoPosition(o))))
 				return false;
 		}
 		return true;
@@ -0,0 +1,105 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+
+public class AStarSolverTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle1 = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle2 = new ArrayList<Tile>();
+	public static Board masterBoard;
+	public static Omino omino1;
+	public static Omino omino2;
+	public static Omino omino3;
+	public static Omino omino4;
+	public static WinningPosition solved;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		for(int y = 0; y < 3; y++)
+		{
+			for(int x = 0; x < 3; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		boardLayout.add(new Tile(3,2));
+		ominoStyle1.add(new Tile(0,0));
+		ominoStyle1.add(new Tile(1,0));
+		ominoStyle2.add(new Tile(0,0));
+		masterBoard = new Board(boardLayout);
+		omino1 = new Omino(ominoStyle1);
+		omino2 = new Omino(ominoStyle1);
+		omino3 = new Omino(ominoStyle2);
+		omino4 = new Omino(ominoStyle1);
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(omino1, new Tile(1,0)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(omino2, new Tile(1,1)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(omino3, new Tile(3,2)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(omino4, new Tile(1,2)));
+		solved = new WinningPosition(boardLayout);
+		assertTrue("ERROR: Solved position initialization failed!!", solved.placeOmino(omino3, new Tile(2,0)));
+	}
+
+	@Test
+	public void testSamePieceMatchesBoards() {
+		Boards slides = new Boards(masterBoard, solved, true);
+		while(!slides.iterate());
+		int expected = slides.getSolutionLength();
+		AStarSolver solver = new AStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE);
+		assertTrue(solver.solve());
+		assertEquals("A* should find a solution as short as the breadth-first search!", expected, solver.getSolutionLength());
+		List<Move> solution = solver.getSolution();
+		assertEquals(0, solution.get(0).getDepth());
+		assertEquals("The last move should be made from one move short of the goal!", expected - 1, solution.get(solution.size()-1).getDepth());
+		checkSolution(solution);
+	}
+
+	@Test
+	public void testTileStepMatchesUniformCost() {
+		AStarSolver uninformed = new AStarSolver(masterBoard, solved, MoveMetric.TILE_STEP, false);
+		uninformed.solve();
+		AStarSolver solver = new AStarSolver(masterBoard, solved, MoveMetric.TILE_STEP);
+		solver.solve();
+		assertEquals("The estimate should not change the solution length!", uninformed.getSolutionLength(), solver.getSolutionLength());
+		assertTrue("The estimate should cut down the states expanded!", solver.getNumberOfExpansions() < uninformed.getNumberOfExpansions());
+		List<Move> solution = solver.getSolution();
+		assertEquals("Each tile-step should be one move!", solver.getSolutionLength(), solution.size());
+		checkSolution(solution);
+	}
+
+	@Test
+	public void testSamePieceExpandsFewer() {
+		AStarSolver uninformed = new AStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE, false);
+		uninformed.solve();
+		AStarSolver solver = new AStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE);
+		solver.solve();
+		assertEquals(uninformed.getSolutionLength(), solver.getSolutionLength());
+		assertTrue("The estimate should cut down the states expanded!", solver.getNumberOfExpansions() < uninformed.getNumberOfExpansions());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testPieceNotOnBoard() {
+		WinningPosition other = new WinningPosition(boardLayout);
+		assertTrue(other.placeOmino(new Omino(ominoStyle2), new Tile(2,0)));
+		new AStarSolver(masterBoard, other, MoveMetric.TILE_STEP);
+	}
+
+	private static void checkSolution(List<Move> solution)
+	{
+		for(int i = 1; i < solution.size(); i++)
+			assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+		assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+	}
+}
@@ -0,0 +1,98 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.AnytimeSolver;
+import com.github.bfallstrom.ominoslide.solver.LayerStats;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+
+public class AnytimeSolverTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+	
+	@Test
+	public void testImprovesToShortest() {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			AStarSolver aStar = new AStarSolver(masterBoard, solved, metric);
+			aStar.solve();
+			final List<Integer> lengths = new ArrayList<Integer>();
+			final List<Boolean> proofs = new ArrayList<Boolean>();
+			AnytimeSolver solver = new AnytimeSolver(masterBoard, solved, metric, 1);
+			assertTrue(solver.solve(Long.MAX_VALUE, new AnytimeSolver.Listener() {
+				public void found(List<Move> solution, int length, boolean optimal)
+				{
+					lengths.add(length);
+					proofs.add(optimal);
+				}
+			}));
+			assertTrue(solver.isOptimal());
+			assertEquals(aStar.getSolutionLength(), solver.getSolutionLength());
+			assertFalse(lengths.isEmpty());
+			for(int i = 1; i < lengths.size(); i++)
+				assertTrue("Each solution reported should be no longer than the last!", lengths.get(i) <= lengths.get(i-1));
+			assertEquals(solver.getSolutionLength(), (int)lengths.get(lengths.size()-1));
+			assertTrue("The last solution reported should be the proven one!", proofs.get(proofs.size()-1));
+			List<Move> solution = solver.getSolution();
+			assertTrue(solution.get(0).getStartingBoard() == masterBoard);
+			for(int i = 1; i < solution.size(); i++)
+				assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+			assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+		}
+	}
+	
+	@Test
+	public void testWidthDoubles() {
+		AnytimeSolver solver = new AnytimeSolver(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		while(!solver.iterate())
+			assertEquals(1 << solver.getLayerStats().size(), solver.getWidth());
+		assertTrue(solver.isOptimal());
+	}
+	
+	@Test
+	public void testWeightShrinks() {
+		AnytimeSolver solver = new AnytimeSolver(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		double lastWeight = solver.getWeight();
+		while(!solver.iterate())
+		{
+			assertTrue("The weight should shrink toward one!", solver.getWeight() < lastWeight || solver.getWeight() == 1);
+			assertTrue(solver.getWeight() >= 1);
+			lastWeight = solver.getWeight();
+		}
+		assertTrue(solver.isOptimal());
+		long expanded = 0;
+		int states = 1;	// the starting position
+		for(LayerStats layer : solver.getLayerStats())
+		{
+			expanded += layer.getNumExpanded();
+			states += layer.getNumNewStates();
+			assertEquals(states, layer.getTotalStates());
+		}
+		assertEquals("The passes should account for every expansion!", solver.getNumberOfExpansions(), expanded);
+	}
+	
+	@Test
+	public void testDeadline() {
+		AnytimeSolver solver = new AnytimeSolver(masterBoard, solved, MoveMetric.SAME_PIECE, AnytimeSolver.DEFAULT_WIDTH);
+		assertFalse(solver.solve(System.currentTimeMillis() - 1, null));
+		assertFalse(solver.hasSolution());
+		assertTrue(solver.getLayerStats().isEmpty());
+	}
+}
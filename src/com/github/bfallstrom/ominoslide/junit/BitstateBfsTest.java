@@ -0,0 +1,56 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.BitstateBfs;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+
+public class BitstateBfsTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+
+	@Test
+	public void testMatchesExactSearch() {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			ParallelBfs exact = new ParallelBfs(masterBoard, solved, metric, 1);
+			exact.solve();
+			BitstateBfs solver = new BitstateBfs(masterBoard, solved, metric, 1L << 20, BitstateBfs.DEFAULT_HASHES);
+			solver.solve();
+			assertEquals(exact.getSolutionLength(), solver.getSolutionLength());
+			assertEquals("A roomy bit array should miss nothing here!", exact.getNumberOfStates(), solver.getNumberOfStates());
+			assertTrue(solver.getOmissionProbability() < 1e-6);
+			assertTrue(solver.getFillRatio() > 0);
+		}
+	}
+	
+	@Test
+	public void testCrowdedBits() {
+		ParallelBfs exact = new ParallelBfs(masterBoard, solved, MoveMetric.TILE_STEP, 1);
+		exact.solve();
+		BitstateBfs solver = new BitstateBfs(masterBoard, solved, MoveMetric.TILE_STEP, 64, 1);
+		try {
+			solver.solve();
+			assertTrue("Missed states cannot make a solution shorter!", solver.getSolutionLength() >= exact.getSolutionLength());
+		} catch(IllegalArgumentException e) {
+			// the winning state may well be missed
+		}
+		assertTrue(solver.getNumberOfStates() <= 64);
+		assertTrue(solver.getNumberOfStates() < exact.getNumberOfStates());
+		assertTrue("A crowded bit array should report a real chance of misses!", solver.getOmissionProbability() > 0.1);
+		assertTrue(solver.getExpectedMisses() > 1);
+	}
+}
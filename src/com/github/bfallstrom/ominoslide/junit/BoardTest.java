@@ -2,13 +2,17 @@ package com.github.bfallstrom.ominoslide.junit;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.github.bfallstrom.ominoslide.areastructure.BitBoard;
 import com.github.bfallstrom.ominoslide.areastructure.Board;
 import com.github.bfallstrom.ominoslide.areastructure.Direction;
 import com.github.bfallstrom.ominoslide.areastructure.Omino;
@@ -85,6 +89,80 @@ public class BoardTest {
 		assertTrue(boardUnderTest.shiftOmino(0, Direction.UP));
 	}
 	
+	@Test
+	public void testShiftOminoBlocked() {
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,0)));
+		assertFalse("Shifted into another omino!", boardUnderTest.shiftOmino(0, Direction.RIGHT));
+		assertFalse("Shifted off the layout!", boardUnderTest.shiftOmino(0, Direction.LEFT));
+		assertFalse("Shifted off the layout!", boardUnderTest.shiftOmino(1, Direction.RIGHT));
+		assertTrue(boardUnderTest.shiftOmino(1, Direction.UP));
+		assertTrue("Freed space was not released!", boardUnderTest.shiftOmino(0, Direction.RIGHT));
+		assertTrue(new Tile(1,0).equals(boardUnderTest.getOminoPosition(omino1)));
+	}
+	
+	@Test
+	public void testCanShiftOmino() {
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,0)));
+		assertFalse(boardUnderTest.canShiftOmino(0, Direction.RIGHT));
+		assertTrue(boardUnderTest.canShiftOmino(0, Direction.UP));
+		assertTrue("Testing a shift must not move anything!", Tile.ZERO.equals(boardUnderTest.getOminoPosition(0)));
+	}
+	
+	@Test
+	public void testShiftedCopy() {
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,0)));
+		assertNull("Copied for a blocked shift!", boardUnderTest.shiftedCopy(0, Direction.RIGHT));
+		Board shifted = boardUnderTest.shiftedCopy(1, Direction.UP);
+		assertNotNull(shifted);
+		assertTrue(new Tile(2,1).equals(shifted.getOminoPosition(1)));
+		assertTrue(shifted.getLastPieceIndex() == 1);
+		assertTrue("Occupancy not rebuilt on the copy!", shifted.getOminoIndexAt(new Tile(2,1)) == 1);
+		assertTrue(shifted.getOminoIndexAt(new Tile(2,0)) == BitBoard.EMPTY);
+		assertTrue("The original must not move!", boardUnderTest.getOminoIndexAt(new Tile(2,0)) == 1);
+		Board stepped = new Board(boardUnderTest);
+		assertTrue(stepped.shiftOmino(1, Direction.UP));
+		assertTrue(stepped.equals(shifted) && stepped.getStateHash() == shifted.getStateHash());
+	}
+	
+	@Test
+	public void testShiftOminoWideBoard() {	// spans several words of the bitmasks
+		List<Tile> wideLayout = new ArrayList<Tile>();
+		for(int x = 0; x < 150; x++)
+		{
+			wideLayout.add(new Tile(x,0));
+			wideLayout.add(new Tile(x,1));
+		}
+		Board wide = new Board(wideLayout);
+		assertTrue(wide.placeOmino(omino1, new Tile(60,0)));
+		assertTrue(wide.placeOmino(omino3, new Tile(63,0)));
+		assertTrue(wide.shiftOmino(0, Direction.RIGHT));
+		assertFalse(wide.shiftOmino(0, Direction.RIGHT));
+		assertTrue(wide.shiftOmino(1, Direction.UP));
+		for(int i = 0; i < 87; i++)
+			assertTrue("Blocked at step " + i, wide.shiftOmino(0, Direction.RIGHT));
+		assertFalse(wide.shiftOmino(0, Direction.RIGHT));
+		assertTrue(new Tile(148,0).equals(wide.getOminoPosition(0)));
+	}
+	
+	@Test
+	public void testGetOminoIndexAt() {
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,1)));
+		assertTrue(boardUnderTest.getOminoIndexAt(new Tile(1,0)) == 0);
+		assertTrue(boardUnderTest.getOminoIndexAt(new Tile(2,1)) == 1);
+		assertTrue(boardUnderTest.getOminoIndexAt(new Tile(2,0)) == BitBoard.EMPTY);
+		assertTrue(boardUnderTest.getOminoIndexAt(new Tile(3,0)) == BitBoard.OFF_LAYOUT);
+		assertTrue(boardUnderTest.getOminoIndexAt(new Tile(50,50)) == BitBoard.OFF_LAYOUT);
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(1, Direction.DOWN));
+		assertTrue("Occupancy not updated by the shift!", second.getOminoIndexAt(new Tile(2,0)) == 1);
+		assertTrue("Occupancy not released by the shift!", second.getOminoIndexAt(new Tile(2,1)) == BitBoard.EMPTY);
+		assertTrue("Copy shares occupancy with the original!", boardUnderTest.getOminoIndexAt(new Tile(2,0)) == BitBoard.EMPTY);
+	}
+	
 	@Test
 	public void testGetLastPieceIndex() {
 		assertTrue("Weird: last piece index is " + boardUnderTest.getLastPieceIndex()
@@ -126,4 +204,80 @@ public class BoardTest {
 		assertTrue(second.placeOmino(omino3, new Tile(2,1)));
 		assertTrue("Boards with identical layout should have equal hash values!", boardUnderTest.hashCode() == second.hashCode());
 	}
+	
+	@Test
+	public void testStateHashIncremental() {
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,1)));
+		long start = boardUnderTest.getStateHash();
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(0, Direction.UP));
+		assertTrue(second.getStateHash() != start);
+		assertTrue(second.shiftOmino(1, Direction.DOWN));
+		assertTrue(second.shiftOmino(0, Direction.DOWN));
+		assertTrue(second.shiftOmino(1, Direction.UP));
+		assertTrue("Returning to the same state should restore the hash!", second.getStateHash() == start);
+		Board fresh = new Board(boardLayout);
+		assertTrue(fresh.placeOmino(omino1, Tile.ZERO));
+		assertTrue(fresh.placeOmino(omino3, new Tile(2,1)));
+		assertTrue("Incremental hash differs from a freshly built one!", fresh.getStateHash() == start);
+	}
+	
+	@Test
+	public void testStateHashUniqueId() {
+		Omino marked = new Omino(ominoStyle1);
+		marked.setUniqueId(0);
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(marked, Tile.UP));
+		Board second = new Board(boardLayout);
+		assertTrue(second.placeOmino(omino1, Tile.UP));
+		assertTrue(second.placeOmino(marked, Tile.ZERO));
+		assertFalse(boardUnderTest.equals(second));
+		assertTrue("A piece with a unique ID should not hash like its look-alikes!", boardUnderTest.getStateHash() != second.getStateHash());
+	}
+	
+	@Test
+	public void testMoveGenerationAllocation() {	// shifting and tile checks must not create objects
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+		Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+		assertTrue(boardUnderTest.placeOmino(omino1, Tile.ZERO));
+		assertTrue(boardUnderTest.placeOmino(omino3, new Tile(2,1)));
+		long threadId = Thread.currentThread().getId();
+		generateMoves(boardUnderTest, 1000);	// warm up, so class loading is not counted
+		long before = allocations.getThreadAllocatedBytes(threadId);
+		int found = generateMoves(boardUnderTest, 100000);
+		long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+		assertTrue(found > 0);
+		assertTrue(allocated + " bytes allocated for " + found + " tile checks!", allocated < 4096);	// room for the measurement itself
+	}
+	
+	/**
+	 * Runs the inner loop of move generation: every shift is tried, made, checked cell by cell and undone.
+	 * @return The number of occupied cells seen, so the work cannot be optimized away.
+	 */
+	private static int generateMoves(Board board, int rounds)
+	{
+		Direction[] directions = Direction.values();	// copied on every call, so only once
+		int found = 0;
+		for(int round = 0; round < rounds; round++)
+		{
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				for(Direction direction : directions)
+				{
+					if(!board.canShiftOmino(piece, direction) || !board.shiftOmino(piece, direction))
+						continue;
+					Tile origin = board.getOminoPosition(piece);
+					for(int x = 0; x < 4; x++)
+						for(int y = 0; y < 2; y++)
+							if(board.getOminoIndexAt(x, y) >= 0 && board.getOmino(piece).isInOmino(x, y, origin.getX(), origin.getY()))
+								found++;
+					board.shiftOmino(piece, direction.opposite());
+				}
+			}
+		}
+		return found;
+	}
 }
@@ -2,19 +2,30 @@ package com.github.bfallstrom.ominoslide.junit;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.github.bfallstrom.ominoslide.areastructure.Board;
 import com.github.bfallstrom.ominoslide.areastructure.Omino;
 import com.github.bfallstrom.ominoslide.areastructure.Tile;
 import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
 import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.CancellationToken;
+import com.github.bfallstrom.ominoslide.solver.LayerStats;
 import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.SearchBudget;
+import com.github.bfallstrom.ominoslide.solver.SolveResult;
+import com.github.bfallstrom.ominoslide.solver.SolveStatus;
+import com.github.bfallstrom.ominoslide.tilereader.LayoutFileReader;
 import com.github.bfallstrom.ominoslide.view.BoardViewPlaintext;
 
 public class BoardsTest {
@@ -28,6 +39,9 @@ public class BoardsTest {
 	public static WinningPosition solved;
 	
 	public Boards solver;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
 
 	@BeforeClass
 	public static void setUpBeforeClass() throws Exception {
@@ -69,8 +83,11 @@ public class BoardsTest {
 			System.out.println("Solution found at iteration " + i + "!");
 			List<Move> solution = solver.getSolution();
 			System.out.println(solution);
-			System.out.println(solution.get(0).getDepth());
-			
+			System.out.println(solver.getSolutionLength());
+			assertEquals(4, solver.getLayerStats().size());
+			assertEquals("[{0:LEFT:WINNING}, {1:LEFT:WINNING}, {2:LEFT:WINNING}, {2:DOWN:WINNING}]", solution.toString());
+			assertEquals(3, solver.getSolutionLength());
+			assertEquals(7, solver.getNumberOfStates());
 		} catch(RuntimeException e)
 		{
 			e.printStackTrace();
@@ -110,8 +127,12 @@ public class BoardsTest {
 			System.out.println("Solution found at iteration " + i + "!");
 			List<Move> solution = solver.getSolution();
 			System.out.println(solution);
-			System.out.println(solution.get(0).getDepth());
-			
+			System.out.println(solver.getSolutionLength());
+			assertEquals(6, solver.getLayerStats().size());
+			assertEquals("[{0:LEFT:WINNING}, {1:LEFT:WINNING}, {3:LEFT:WINNING}, {2:LEFT:WINNING}, {2:DOWN:WINNING}, {2:DOWN:WINNING}]",
+					solution.toString());
+			assertEquals(4, solver.getSolutionLength());
+			assertEquals(17, solver.getNumberOfStates());
 		} catch(RuntimeException e)
 		{
 			e.printStackTrace();
@@ -119,6 +140,202 @@ public class BoardsTest {
 		}
 	}
 	
+	@Test
+	public void testMacroMoves() {
+		solver = new Boards(masterBoard, solved);
+		while(!solver.iterate());
+		List<Move> steps = solver.getSolution();
+		Boards slides = new Boards(masterBoard, solved, true);
+		int passes = 1;
+		while(!slides.iterate())
+			passes++;
+		List<Move> solution = slides.getSolution();
+		assertTrue("Whole slides should find a solution of the same length!", slides.getSolutionLength() == solver.getSolutionLength());
+		assertTrue("Each pass should go exactly one move deeper!", passes == slides.getSolutionLength());
+		assertEquals(7, slides.getNumberOfStates());
+		assertEquals(solver.getSolutionLength() - 1, steps.get(steps.size()-1).getDepth());
+		for(int i = 1; i < solution.size(); i++)
+			assertEquals("Each slide should be one move deeper than the last!", solution.get(i-1).getDepth()
+					+ (solution.get(i).getOminoIndex() == solution.get(i-1).getOminoIndex() ? 0 : 1), solution.get(i).getDepth());
+		for(int i = 1; i < solution.size(); i++)
+			assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+		assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+	}
+	
+	@Test
+	public void testOffHeap() {
+		for(boolean macroMoves : new boolean[] {false, true})
+		{
+			solver = new Boards(masterBoard, solved, macroMoves);
+			while(!solver.iterate());
+			Boards offHeap = new Boards(masterBoard, solved, macroMoves, true);
+			while(!offHeap.iterate());
+			assertNull(solver.getOffHeapTable());
+			assertNotNull(offHeap.getOffHeapTable());
+			assertEquals(solver.getNumberOfStates(), offHeap.getNumberOfStates());
+			assertEquals(solver.getNumberOfExpansions(), offHeap.getNumberOfExpansions());
+			assertEquals("The solution should not depend on where the states are kept!",
+					solver.getSolution().toString(), offHeap.getSolution().toString());
+		}
+	}
+	
+	@Test
+	public void testCheckpoint() throws IOException {
+		File file = new File(folder.getRoot(), "search.ckpt");
+		for(boolean macroMoves : new boolean[] {false, true})
+		{
+			solver = new Boards(masterBoard, solved, macroMoves);
+			int passes = 1;
+			while(!solver.iterate())
+				passes++;
+			for(int stop = 1; stop < passes; stop++)
+			{
+				Boards first = new Boards(masterBoard, solved, macroMoves);
+				for(int i = 0; i < stop; i++)
+					assertFalse(first.iterate());
+				first.checkpoint(file);
+				Boards resumed = new Boards(masterBoard, solved, macroMoves, stop % 2 == 0);	// the store may differ
+				resumed.resume(file);
+				assertEquals(stop, resumed.getLayerStats().size());
+				assertEquals(first.getNumberOfStates(), resumed.getNumberOfStates());
+				while(!resumed.iterate());
+				assertEquals(passes, resumed.getLayerStats().size());
+				assertEquals(solver.getNumberOfStates(), resumed.getNumberOfStates());
+				assertEquals(solver.getNumberOfExpansions(), resumed.getNumberOfExpansions());
+				assertEquals("A resumed search should carry on exactly where it stopped!",
+						solver.getSolution().toString(), resumed.getSolution().toString());
+			}
+		}
+		assertFalse("The temporary file should have been renamed into place!", new File(folder.getRoot(), "search.ckpt.tmp").exists());
+	}
+	
+	@Test
+	public void testCheckpointMismatch() throws IOException {
+		File file = new File(folder.getRoot(), "search.ckpt");
+		solver = new Boards(masterBoard, solved, true);
+		solver.iterate();
+		solver.checkpoint(file);
+		try {
+			new Boards(masterBoard, solved, false).resume(file);
+			fail("A search by tile-steps should not resume one by whole slides!");
+		} catch(IllegalArgumentException e) {
+		}
+		RandomAccessFile cut = new RandomAccessFile(file, "rw");
+		cut.setLength(cut.length() - 1);
+		cut.close();
+		Boards damaged = new Boards(masterBoard, solved, true);
+		try {
+			damaged.resume(file);
+			fail("A damaged checkpoint should not be resumed!");
+		} catch(IOException e) {
+		}
+		while(!damaged.iterate());	// and the search is left as it was set up
+		while(!solver.iterate());
+		assertEquals(solver.getSolutionLength(), damaged.getSolutionLength());
+	}
+	
+	@Test
+	public void testBudget() {
+		solver = new Boards(masterBoard, solved);
+		while(!solver.iterate());
+		SolveResult result = new Boards(masterBoard, solved).solve(SearchBudget.UNLIMITED, new CancellationToken());
+		assertEquals(SolveStatus.SOLVED, result.getStatus());
+		assertEquals(solver.getSolution().toString(), result.getSolution().toString());
+		assertEquals(solver.getNumberOfStates(), result.getNumberOfStates());
+		assertEquals(solver.getSolutionLength(), result.getSolutionLength());
+		assertTrue(result.getDepthReached() >= result.getSolutionLength() - 1);
+		
+		Boards limited = new Boards(masterBoard, solved);
+		result = limited.solve(new SearchBudget(0, 2, 0), null);
+		assertEquals(SolveStatus.OUT_OF_STATES, result.getStatus());
+		assertTrue(result.getNumberOfStates() >= 2 && result.getNumberOfStates() < solver.getNumberOfStates());
+		assertFalse(result.hasSolution());
+		assertEquals(-1, result.getSolutionLength());
+		try {
+			limited.iterate();
+			fail("A stopped search should not carry on!");
+		} catch(RuntimeException e) {
+		}
+		
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		result = new Boards(masterBoard, solved).solve(SearchBudget.UNLIMITED, token);
+		assertEquals(SolveStatus.CANCELLED, result.getStatus());
+		assertEquals(0, result.getNumberOfExpansions());
+		assertEquals(1, result.getNumberOfStates());
+		
+		result = new Boards(masterBoard, solved).solve(new SearchBudget(0, 0, 1), null);
+		assertEquals(SolveStatus.OUT_OF_MEMORY, result.getStatus());
+		assertTrue(result.getPeakMemoryBytes() > 0);
+	}
+	
+	@Test
+	public void testCancelMidSearch() throws IOException, InterruptedException {
+		LayoutFileReader layton = readLayton();
+		final CancellationToken token = new CancellationToken();
+		final long[] cancelledAt = new long[1];
+		Thread canceller = new Thread() {
+			public void run()
+			{
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+				cancelledAt[0] = System.currentTimeMillis();
+				token.cancel();
+			}
+		};
+		canceller.start();
+		SolveResult result = new Boards(layton.getStartingBoard(), layton.getWinningBoard()).solve(SearchBudget.UNLIMITED, token);
+		long stoppedAt = System.currentTimeMillis();
+		canceller.join();
+		assertEquals(SolveStatus.CANCELLED, result.getStatus());
+		assertTrue("The search should have been under way!", result.getNumberOfExpansions() > 0);
+		assertFalse(result.hasSolution());
+		assertTrue("The search should stop soon after it is cancelled!", stoppedAt - cancelledAt[0] < 1000);
+	}
+	
+	@Test
+	public void testShortTimeBudget() throws IOException {
+		LayoutFileReader layton = readLayton();
+		long start = System.currentTimeMillis();
+		SolveResult result = new Boards(layton.getStartingBoard(), layton.getWinningBoard()).solve(new SearchBudget(100, 0, 0), null);
+		assertEquals(SolveStatus.OUT_OF_TIME, result.getStatus());
+		assertTrue(result.getNumberOfExpansions() > 0);
+		assertFalse(result.hasSolution());
+		assertTrue("The search should stop soon after its time is up!", System.currentTimeMillis() - start < 1100);
+	}
+	
+	private static LayoutFileReader readLayton() throws IOException {
+		LayoutFileReader reader = new LayoutFileReader(new File("media/layton_5_90.txt"));
+		reader.readAndParse();
+		return reader;
+	}
+	
+	@Test
+	public void testLayerStats() {
+		solver = new Boards(masterBoard, solved);
+		int passes = 1;
+		while(!solver.iterate())
+			passes++;
+		List<LayerStats> layers = solver.getLayerStats();
+		assertEquals(passes, layers.size());
+		assertEquals("The first pass should expand only the starting position!", 1, layers.get(0).getNumExpanded());
+		int expanded = 0;
+		int queued = 1;
+		for(int i = 0; i < layers.size(); i++)
+		{
+			LayerStats layer = layers.get(i);
+			assertEquals(i + 1, layer.getLayer());
+			assertEquals("Each pass should take the states queued by the one before!", queued, layer.getFrontierSize());
+			assertTrue(layer.getNumExpanded() <= layer.getFrontierSize());
+			expanded += layer.getNumExpanded();
+			queued = layer.getNumNewStates();
+		}
+		assertEquals(solver.getNumberOfExpansions(), expanded);
+		assertEquals(solver.getNumberOfStates(), layers.get(layers.size()-1).getTotalStates());
+	}
+	
 	// This should be replaced when a suitable solution viewer similar to this is created.
 	@Test
 	public void testBoardsSolverAndView() {
@@ -0,0 +1,145 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AnytimeSolver;
+import com.github.bfallstrom.ominoslide.solver.CancellationToken;
+import com.github.bfallstrom.ominoslide.solver.EngineChoice;
+import com.github.bfallstrom.ominoslide.solver.EngineType;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+import com.github.bfallstrom.ominoslide.solver.PuzzleProfile;
+import com.github.bfallstrom.ominoslide.solver.SearchBudget;
+import com.github.bfallstrom.ominoslide.solver.SolveResult;
+import com.github.bfallstrom.ominoslide.solver.SolveStatus;
+import com.github.bfallstrom.ominoslide.solver.SolverEngine;
+
+public class EngineChoiceTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+	
+	@Test
+	public void testEnginesAgree() throws IOException {
+		ParallelBfs reference = new ParallelBfs(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		reference.solve();
+		EngineChoice[] choices = {EngineChoice.bfs(false, false), EngineChoice.bfs(true, true),
+				EngineChoice.parallel(2), EngineChoice.disk(folder.newFolder()), EngineChoice.zeroOne(), EngineChoice.aStar(),
+				EngineChoice.idaStar(1 << 20), EngineChoice.anytime(AnytimeSolver.DEFAULT_WIDTH)};
+		for(EngineChoice choice : choices)
+		{
+			SolverEngine solver = choice.create(masterBoard, solved);
+			while(!solver.iterate());
+			assertEquals("Every engine should find a shortest solution: " + choice.getType(),
+					reference.getSolutionLength(), solver.getSolutionLength());
+			assertFalse(solver.getLayerStats().isEmpty());
+			List<Move> solution = solver.getSolution();
+			for(int i = 1; i < solution.size(); i++)
+				assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+			assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+		}
+	}
+	
+	@Test
+	public void testBudgeted() throws IOException {
+		EngineChoice bfs = EngineChoice.bfs(true, false);
+		assertTrue(bfs.isBudgeted());
+		SolveResult result = bfs.createBudgeted(masterBoard, solved).solve(SearchBudget.UNLIMITED, new CancellationToken());
+		assertEquals(SolveStatus.SOLVED, result.getStatus());
+		ParallelBfs reference = new ParallelBfs(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		reference.solve();
+		assertEquals(reference.getSolutionLength(), result.getSolutionLength());
+		EngineChoice[] unbudgeted = {EngineChoice.parallel(2), EngineChoice.disk(folder.newFolder()), EngineChoice.zeroOne(),
+				EngineChoice.aStar(), EngineChoice.idaStar(1 << 20), EngineChoice.anytime(AnytimeSolver.DEFAULT_WIDTH)};
+		for(EngineChoice choice : unbudgeted)
+			assertFalse("Only Boards checks a budget as it goes: " + choice.getType(), choice.isBudgeted());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testUnbudgeted() {
+		EngineChoice.aStar().createBudgeted(masterBoard, solved);
+	}
+	
+	@Test
+	public void testProfile() {
+		PuzzleProfile profile = PuzzleProfile.sample(masterBoard, solved);
+		assertEquals(4, profile.getNumPieces());
+		assertEquals(3, profile.getNumFreeCells());
+		assertTrue(profile.getBranchingFactor() > 0);
+		assertEquals("The probe should solve so small a puzzle!", SolveStatus.SOLVED, profile.getProbeStatus());
+		ParallelBfs reference = new ParallelBfs(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		reference.solve();
+		assertTrue(profile.getEstimatedStates() >= reference.getNumberOfStates());
+	}
+	
+	@Test
+	public void testAuto() {
+		PuzzleProfile profile = PuzzleProfile.sample(masterBoard, solved);
+		EngineChoice roomy = EngineChoice.auto(profile, 1L << 30, 1);
+		assertEquals(EngineType.BFS, roomy.getType());
+		assertFalse(roomy.isOffHeap());
+		assertNotNull(roomy.getReason());
+		EngineChoice cramped = EngineChoice.auto(profile, 1024, 1);
+		assertEquals("With no room for the states, only a memory-bounded search will do!", EngineType.IDA_STAR, cramped.getType());
+		assertTrue(cramped.getTableBytes() > 0);
+		EngineChoice between = null;
+		for(long bytes = 1024; between == null || between.getType() == EngineType.IDA_STAR; bytes *= 2)
+			between = EngineChoice.auto(profile, bytes, 1);
+		assertEquals(EngineType.BFS, between.getType());
+		assertTrue("Just past the memory-bounded search, the states should go off the heap!", between.isOffHeap());
+	}
+	
+	@Test
+	public void testAutoCapacity() throws IOException {
+		List<Tile> openLayout = new ArrayList<Tile>();
+		for(int y = 0; y < 8; y++)
+		{
+			for(int x = 0; x < 8; x++)
+				openLayout.add(new Tile(x,y));
+		}
+		List<Tile> single = new ArrayList<Tile>();
+		single.add(new Tile(0,0));
+		Board open = new Board(openLayout);
+		Omino target = new Omino(single);
+		assertTrue(open.placeOmino(target, new Tile(0,0)));
+		for(int x = 1; x < 7; x++)
+			assertTrue(open.placeOmino(new Omino(single), new Tile(x,0)));
+		WinningPosition corner = new WinningPosition(openLayout);
+		assertTrue(corner.placeOmino(target, new Tile(7,7)));
+		PuzzleProfile profile = PuzzleProfile.sample(open, corner);
+		assertTrue("Seven pieces on 64 cells should be estimated at C(64,7) states or more!",
+				profile.getEstimatedStates() >= 621216192L);
+		EngineChoice unbounded = EngineChoice.auto(profile, 1L << 50, 1);
+		assertEquals("With more states than a table can index, however much memory there is, only a memory-bounded search will do!",
+				EngineType.IDA_STAR, unbounded.getType());
+		EngineChoice onDisk = EngineChoice.auto(profile, 1L << 50, 1, folder.newFolder());
+		assertEquals(EngineType.DISK, onDisk.getType());
+		assertEquals(EngineType.DISK, EngineChoice.auto(profile, 1024, 1, folder.newFolder()).getType());
+		PuzzleProfile small = PuzzleProfile.sample(masterBoard, solved);
+		assertEquals("States that fit in memory should stay there, even given a directory!", EngineType.BFS,
+				EngineChoice.auto(small, 1L << 30, 1, folder.newFolder()).getType());
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * The small puzzle the search engine tests share: three dominoes and a single-tile target on a
+ *  3x3 layout with one more tile at (3,2), the target to be brought from there to (2,0). Each test
+ *  class builds its own in setUpBeforeClass, so no search can disturb another class's boards.
+ * @author bfallstrom
+ *
+ */
+public final class EnginePuzzle {
+	private final List<Tile> boardLayout = new ArrayList<Tile>();
+	private final Board startingBoard;
+	private final WinningPosition winningBoard;
+	
+	public EnginePuzzle()
+	{
+		for(int y = 0; y < 3; y++)
+		{
+			for(int x = 0; x < 3; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		boardLayout.add(new Tile(3,2));
+		List<Tile> ominoStyle1 = new ArrayList<Tile>();
+		ominoStyle1.add(new Tile(0,0));
+		ominoStyle1.add(new Tile(1,0));
+		List<Tile> ominoStyle2 = new ArrayList<Tile>();
+		ominoStyle2.add(new Tile(0,0));
+		startingBoard = new Board(boardLayout);
+		Omino target = new Omino(ominoStyle2);
+		assertTrue("ERROR: Master board initialization failed!!", startingBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,0)));
+		assertTrue("ERROR: Master board initialization failed!!", startingBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,1)));
+		assertTrue("ERROR: Master board initialization failed!!", startingBoard.placeOmino(target, new Tile(3,2)));
+		assertTrue("ERROR: Master board initialization failed!!", startingBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,2)));
+		winningBoard = new WinningPosition(boardLayout);
+		assertTrue("ERROR: Solved position initialization failed!!", winningBoard.placeOmino(target, new Tile(2,0)));
+	}
+	
+	/**
+	 *
+	 * @return The board to solve.
+	 */
+	public Board getStartingBoard()
+	{
+		return startingBoard;
+	}
+	
+	/**
+	 *
+	 * @return The position to seek, its target the same Omino as on the starting board.
+	 */
+	public WinningPosition getWinningBoard()
+	{
+		return winningBoard;
+	}
+}
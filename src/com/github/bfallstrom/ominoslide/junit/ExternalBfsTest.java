@@ -0,0 +1,69 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.ExternalBfs;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+
+public class ExternalBfsTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+
+	@Test
+	public void testMatchesInMemorySearch() throws IOException {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			ParallelBfs inMemory = new ParallelBfs(masterBoard, solved, metric, 1);
+			inMemory.solve();
+			for(int bufferStates : new int[] {3, 1000})	// many small runs, and a single run per layer
+			{
+				ExternalBfs solver = new ExternalBfs(masterBoard, solved, metric, folder.newFolder(), bufferStates);
+				solver.solve();
+				assertEquals(inMemory.getSolutionLength(), solver.getSolutionLength());
+				assertEquals("Both should see the same states!", inMemory.getNumberOfStates(), solver.getNumberOfStates());
+				List<Move> solution = solver.getSolution();
+				for(int i = 1; i < solution.size(); i++)
+					assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+				assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+			}
+		}
+	}
+
+	@Test
+	public void testDeleteFiles() throws IOException {
+		File directory = folder.newFolder();
+		ExternalBfs solver = new ExternalBfs(masterBoard, solved, MoveMetric.SAME_PIECE, directory, 5);
+		solver.solve();
+		assertTrue(directory.list().length == solver.getSolutionLength() + 1);
+		solver.deleteFiles();
+		assertTrue("Every layer file should be gone!", directory.list().length == 0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testBufferTooBig() throws IOException {
+		new ExternalBfs(masterBoard, solved, MoveMetric.SAME_PIECE, folder.newFolder(), Integer.MAX_VALUE);
+	}
+}
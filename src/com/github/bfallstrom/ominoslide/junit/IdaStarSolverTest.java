@@ -0,0 +1,66 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.IdaStarSolver;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.TableReplacement;
+
+public class IdaStarSolverTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+	
+	@Test
+	public void testMatchesAStar() {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			AStarSolver aStar = new AStarSolver(masterBoard, solved, metric);
+			aStar.solve();
+			for(TableReplacement replacement : TableReplacement.values())
+			{
+				for(long tableBytes : new long[] {1, 1 << 20})	// a single slot, and room for every state
+				{
+					IdaStarSolver solver = new IdaStarSolver(masterBoard, solved, metric, tableBytes, replacement);
+					solver.solve();
+					assertEquals("A smaller table should only slow the search down!", aStar.getSolutionLength(), solver.getSolutionLength());
+					List<Move> solution = solver.getSolution();
+					assertTrue(solution.get(0).getStartingBoard() == masterBoard);
+					for(int i = 1; i < solution.size(); i++)
+						assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+					assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+					if(metric == MoveMetric.TILE_STEP)
+						assertEquals(solver.getSolutionLength(), solution.size());
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testTableIsBounded() {
+		IdaStarSolver small = new IdaStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE, 1 << 10, TableReplacement.DEEPER);
+		assertTrue(small.getTableBytes() <= 1 << 10);
+		small.solve();
+		IdaStarSolver large = new IdaStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE, 1 << 20, TableReplacement.DEEPER);
+		assertTrue(large.getTableBytes() <= 1 << 20);
+		large.solve();
+		assertTrue(large.getTableSize() > small.getTableSize());
+		assertTrue(large.getNumberOfTableCuts() > 0);
+		assertEquals(large.getLayerStats().size(), small.getLayerStats().size());
+	}
+}
@@ -0,0 +1,130 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.ImmutableBoard;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+public class ImmutableBoardTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle1 = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle2 = new ArrayList<Tile>();
+	
+	public Board board;
+	public ImmutableBoard start;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		boardLayout.add(new Tile(0,0));
+		boardLayout.add(new Tile(1,0));
+		boardLayout.add(new Tile(2,0));
+		boardLayout.add(new Tile(0,1));
+		boardLayout.add(new Tile(1,1));
+		boardLayout.add(new Tile(2,1));
+		boardLayout.add(new Tile(3,1));
+		ominoStyle1.add(new Tile(0,0));
+		ominoStyle1.add(new Tile(1,0));
+		ominoStyle2.add(new Tile(0,0));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		board = new Board(boardLayout);
+		assertTrue(board.placeOmino(new Omino(ominoStyle1), new Tile(1,0)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle2), new Tile(1,1)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle2), new Tile(3,1)));
+		start = new ImmutableBoard(board);
+	}
+
+	@Test
+	public void testWithShift() {
+		ImmutableBoard next = start.withShift(0, Direction.LEFT);
+		assertNotNull(next);
+		assertTrue(new Tile(0,0).equals(next.getOminoPosition(0)));
+		assertTrue("The original state was changed!", new Tile(1,0).equals(start.getOminoPosition(0)));
+		assertTrue(next.getLastPieceIndex() == 0);
+		assertNull("Shifted into another omino!", start.withShift(0, Direction.UP));
+		assertNull("Shifted off the layout!", start.withShift(2, Direction.RIGHT));
+		assertTrue("Freed space was not released!", next.withShift(2, Direction.LEFT).withShift(2, Direction.DOWN) != null);
+	}
+
+	@Test
+	public void testSnapshot() {
+		assertTrue(board.shiftOmino(2, Direction.LEFT));
+		assertTrue("The snapshot follows its Board!", new Tile(3,1).equals(start.getOminoPosition(2)));
+		ImmutableBoard shifted = start.withShift(2, Direction.LEFT);
+		assertTrue(shifted.equals(new ImmutableBoard(board)));
+		assertTrue("Hash differs from the Board's!", shifted.getStateHash() == board.getStateHash());
+	}
+
+	@Test
+	public void testEqualsInterchangeable() {
+		ImmutableBoard swapped = start.withShift(0, Direction.LEFT).withShift(2, Direction.LEFT)
+				.withShift(2, Direction.DOWN).withShift(1, Direction.RIGHT).withShift(1, Direction.RIGHT)
+				.withShift(2, Direction.UP).withShift(2, Direction.LEFT).withShift(0, Direction.RIGHT);
+		assertTrue(new Tile(3,1).equals(swapped.getOminoPosition(1)));
+		assertTrue(new Tile(1,1).equals(swapped.getOminoPosition(2)));
+		assertTrue("Swapping identical pieces should not change the state!", swapped.equals(start));
+		assertTrue(swapped.hashCode() == start.hashCode());
+		assertFalse(swapped.equals(start.withShift(2, Direction.LEFT)));
+	}
+
+	@Test
+	public void testSlides() {
+		int[] targets = start.getSlideTargets(1);
+		assertEquals("Left, left then up, and right!", 3, targets.length);
+		assertEquals(1, start.getSlideTargets(2).length);
+		StateCodec codec = new StateCodec(board);
+		for(int i = 0; i < targets.length; i++)
+		{
+			assertTrue(i == 0 || targets[i-1] < targets[i]);
+			ImmutableBoard slid = start.withSlide(1, targets[i]);
+			assertEquals(targets[i], slid.getOriginCell(1));
+			assertEquals("The code should not need the state to be built!", codec.encode(slid), codec.encode(start, 1, targets[i]));
+			assertEquals(codec.encode(slid.toBoard()), codec.encode(slid));
+		}
+		assertTrue("The original state was changed!", new Tile(1,1).equals(start.getOminoPosition(1)));
+	}
+
+	@Test
+	public void testCanonicalIndex() {
+		ImmutableBoard swapped = start.withShift(0, Direction.LEFT).withShift(2, Direction.LEFT)
+				.withShift(2, Direction.DOWN).withShift(1, Direction.RIGHT).withShift(1, Direction.RIGHT)
+				.withShift(2, Direction.UP).withShift(2, Direction.LEFT).withShift(0, Direction.RIGHT);
+		Board copy = swapped.toBoard();
+		for(int i = 0; i < swapped.getNumPieces(); i++)
+			assertEquals(copy.getCanonicalIndex(i), swapped.getCanonicalIndex(i));
+		assertEquals("The swapped pieces should be renumbered when unpacked!", 2, swapped.getCanonicalIndex(1));
+	}
+
+	@Test
+	public void testToBoard() {
+		ImmutableBoard next = start.withShift(0, Direction.LEFT).withShift(2, Direction.LEFT);
+		Board copy = next.toBoard();
+		for(int i = 0; i < copy.getNumPieces(); i++)
+			assertTrue(copy.getOminoPosition(i).equals(next.getOminoPosition(i)));
+		assertTrue(copy.getStateHash() == next.getStateHash());
+		assertTrue(copy.shiftOmino(2, Direction.DOWN));
+		assertTrue("The Board shares state with its ImmutableBoard!", next.withShift(2, Direction.DOWN) != null);
+	}
+
+	@Test
+	public void testWinningPosition() {
+		WinningPosition win = new WinningPosition(boardLayout);
+		assertTrue(win.placeOmino(start.getOmino(0), Tile.ZERO));
+		assertFalse(win.meetsTheseConditions(start));
+		assertTrue(win.meetsTheseConditions(start.withShift(0, Direction.LEFT)));
+	}
+}
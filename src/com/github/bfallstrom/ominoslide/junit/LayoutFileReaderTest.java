@@ -48,7 +48,7 @@ public class LayoutFileReaderTest {
 			while(!solver.iterate());
 			List<Move> solution = solver.getSolution();
 			System.out.println(solution);
-			System.out.println("Solution found in " + (solution.get(0).getDepth()+1) + " moves!");
+			System.out.println("Solution found in " + solver.getSolutionLength() + " moves!");
 		} catch(RuntimeException e)
 		{
 			e.printStackTrace();
@@ -127,7 +127,7 @@ public class LayoutFileReaderTest {
 			while(!solver.iterate()) System.out.println(j++);
 			List<Move> solution = solver.getSolution();
 			//System.out.println(solution);
-			System.out.println("Solution found in " + (solution.get(0).getDepth()+1) + " moves!");
+			System.out.println("Solution found in " + solver.getSolutionLength() + " moves!");
 			System.out.println(new BoardViewPlaintext(solution.get(0).getStartingBoard()));
 			for(int i = 0; i < solution.size(); i++)
 			{
@@ -0,0 +1,109 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.solver.NodeStore;
+
+public class NodeStoreTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle = new ArrayList<Tile>();
+	public static StateCodec codec;
+	public static List<StateCode> allStates = new ArrayList<StateCode>();
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		for(int y = 0; y < 4; y++)
+		{
+			for(int x = 0; x < 4; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		ominoStyle.add(new Tile(0,0));
+		Board board = new Board(boardLayout);
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(0,0)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(1,0)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(2,0)));
+		codec = new StateCodec(board);
+		Set<StateCode> seen = new LinkedHashSet<StateCode>();
+		seen.add(codec.encode(board));
+		List<StateCode> queue = new ArrayList<StateCode>(seen);
+		for(int i = 0; i < queue.size(); i++)
+		{
+			Board next = codec.decode(queue.get(i));
+			for(int piece = 0; piece < next.getNumPieces(); piece++)
+			{
+				for(Direction direction : Direction.values())
+				{
+					if(!next.shiftOmino(piece, direction))
+						continue;
+					if(seen.add(codec.encode(next)))
+						queue.add(codec.encode(next));
+					next.shiftOmino(piece, direction.opposite());
+				}
+			}
+		}
+		allStates.addAll(seen);
+		assertEquals("Three identical pieces on 16 cells should have C(16,3) states!", 560, allStates.size());
+	}
+	
+	@Test
+	public void testAddAndFind() {
+		NodeStore store = new NodeStore(codec, 3, 4);	// far too small; must grow
+		for(int i = 0; i < allStates.size(); i++)
+		{
+			assertEquals("A state should not be found before it is added!", -1, store.find(allStates.get(i)));
+			assertEquals("Ids should be handed out in order!", i, store.add(allStates.get(i), i % 7, i - 1, i % 12));
+		}
+		assertEquals(allStates.size(), store.size());
+		for(int i = 0; i < allStates.size(); i++)
+		{
+			assertEquals("Ids should survive the index growing!", i, store.find(allStates.get(i)));
+			assertEquals(allStates.get(i), store.getCode(i));
+			assertEquals(i % 7, store.getDepth(i));
+			assertEquals(i - 1, store.getParent(i));
+			assertEquals(i % 12, store.getMove(i));
+			assertFalse(store.isExpanded(i));
+		}
+	}
+	
+	@Test
+	public void testUpdate() {
+		NodeStore store = new NodeStore(codec, 3, 16);
+		int id = store.add(allStates.get(5), 9, 3, 2);
+		int other = store.add(allStates.get(6), 9, 3, 2);
+		assertEquals(-1, store.getMove(store.add(allStates.get(7), 0, -1, -1)));
+		assertFalse(store.isExpanded(id));
+		store.setExpanded(id);
+		store.setExpanded(other);
+		assertTrue(store.isExpanded(id));
+		store.update(id, 4, 1, 7);
+		assertFalse("A cheaper route should need expanding again!", store.isExpanded(id));
+		assertTrue("Only the updated state should need expanding again!", store.isExpanded(other));
+		assertEquals(4, store.getDepth(id));
+		assertEquals(1, store.getParent(id));
+		assertEquals(7, store.getMove(id));
+		assertEquals(id, store.find(allStates.get(5)));
+	}
+	
+	@Test
+	public void testManyPieces() {
+		NodeStore store = new NodeStore(codec, 100, 16);
+		int id = store.add(allStates.get(0), 1, 0, 99 * 4 + 3);
+		assertEquals("Moves of pieces past the 63rd should be kept whole!", 99 * 4 + 3, store.getMove(id));
+		store.update(id, 1, 0, 70 * 4);
+		assertEquals(70 * 4, store.getMove(id));
+	}
+}
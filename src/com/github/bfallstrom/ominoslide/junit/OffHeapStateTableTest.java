@@ -0,0 +1,129 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.solver.OffHeapStateTable;
+
+public class OffHeapStateTableTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle = new ArrayList<Tile>();
+	public static StateCodec codec;
+	public static List<StateCode> allStates = new ArrayList<StateCode>();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		for(int y = 0; y < 4; y++)
+		{
+			for(int x = 0; x < 4; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		ominoStyle.add(new Tile(0,0));
+		Board board = new Board(boardLayout);
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(0,0)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(1,0)));
+		assertTrue(board.placeOmino(new Omino(ominoStyle), new Tile(2,0)));
+		codec = new StateCodec(board);
+		Set<StateCode> seen = new LinkedHashSet<StateCode>();
+		seen.add(codec.encode(board));
+		List<StateCode> queue = new ArrayList<StateCode>(seen);
+		for(int i = 0; i < queue.size(); i++)
+		{
+			Board next = codec.decode(queue.get(i));
+			for(int piece = 0; piece < next.getNumPieces(); piece++)
+			{
+				for(Direction direction : Direction.values())
+				{
+					if(!next.shiftOmino(piece, direction))
+						continue;
+					if(seen.add(codec.encode(next)))
+						queue.add(codec.encode(next));
+					next.shiftOmino(piece, direction.opposite());
+				}
+			}
+		}
+		allStates.addAll(seen);
+		assertEquals("Three identical pieces on 16 cells should have C(16,3) states!", 560, allStates.size());
+	}
+
+	@Test
+	public void testAddAndFind() {
+		OffHeapStateTable table = new OffHeapStateTable(codec, 4);	// far too small; must grow
+		for(int i = 0; i < allStates.size(); i++)
+			assertEquals("Ids should be handed out in order!", i, table.add(allStates.get(i), i % 7, i - 1, i % 12));
+		assertEquals(allStates.size(), table.size());
+		assertTrue(table.getLoadFactor() <= 0.75);
+		for(int i = 0; i < allStates.size(); i++)
+		{
+			assertEquals("Ids should survive the index growing!", i, table.find(allStates.get(i)));
+			assertEquals(allStates.get(i), table.getCode(i));
+			assertEquals(i % 7, table.getDepth(i));
+			assertEquals(i - 1, table.getParent(i));
+			assertEquals(i % 12, table.getMove(i));
+			assertEquals(-1 - i, table.putIfAbsent(allStates.get(i), 0, 0, 0));
+		}
+		assertEquals(allStates.size(), table.size());
+		assertTrue(table.getAverageProbeLength() >= 1);
+		assertTrue(table.getMaxProbeLength() >= 1);
+	}
+
+	@Test
+	public void testUpdate() {
+		OffHeapStateTable table = new OffHeapStateTable(codec, 16);
+		int id = table.add(allStates.get(5), 9, 3, 2);
+		assertFalse(table.isExpanded(id));
+		table.setExpanded(id);
+		assertTrue(table.isExpanded(id));
+		table.update(id, 4, 1, 7);
+		assertFalse("A cheaper route should need expanding again!", table.isExpanded(id));
+		assertEquals(4, table.getDepth(id));
+		assertEquals(1, table.getParent(id));
+		assertEquals(7, table.getMove(id));
+	}
+
+	@Test
+	public void testConcurrentInsert() throws InterruptedException {
+		final OffHeapStateTable table = new OffHeapStateTable(codec, allStates.size());
+		final AtomicInteger inserted = new AtomicInteger(0);
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			final List<StateCode> order = new ArrayList<StateCode>(allStates);
+			Collections.shuffle(order, new Random(t));
+			threads[t] = new Thread() {
+				public void run()
+				{
+					for(StateCode code : order)
+					{
+						if(table.putIfAbsent(code, 0, -1, -1) >= 0)
+							inserted.incrementAndGet();
+					}
+				}
+			};
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+		assertEquals("Each state should be inserted exactly once!", allStates.size(), inserted.get());
+		assertEquals(allStates.size(), table.size());
+		for(StateCode code : allStates)
+			assertEquals(code, table.getCode(table.find(code)));
+	}
+}
@@ -3,13 +3,16 @@ package com.github.bfallstrom.ominoslide.junit;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
 import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.ShapeCatalog;
 import com.github.bfallstrom.ominoslide.areastructure.Tile;
 
 public class OminoTest {
@@ -32,6 +35,9 @@ public class OminoTest {
 		assertTrue(testPiece.isInOmino(new Tile(1, 0), Tile.ZERO));
 		assertFalse(testPiece.isInOmino(new Tile(2, 2), Tile.ZERO));
 		assertTrue(testPiece.isInOmino(new Tile(2, 2), new Tile(2, 2)));
+		assertTrue(testPiece.isInOmino(3, 2, 2, 2));
+		assertFalse(testPiece.isInOmino(3, 3, 2, 2));
+		assertFalse(testPiece.isInOmino(1, 2, 2, 2));
 	}
 	
 	@Test
@@ -55,6 +61,47 @@ public class OminoTest {
 		assertTrue(border.contains(new Tile(1,1)));
 	}
 	
+	@Test
+	public void testPackedTiles() {
+		Set<Tile> shape = new HashSet<Tile>();
+		for(int i = 0; i < testPiece.getNumTiles(); i++)
+		{
+			int packed = testPiece.getPackedTile(i);
+			shape.add(new Tile(Omino.packedX(packed), Omino.packedY(packed)));
+		}
+		assertTrue(shape.equals(testPiece.getShape()));
+		for(Direction direction : Direction.values())
+		{
+			Set<Tile> border = new HashSet<Tile>();
+			for(int i = 0; i < testPiece.getNumBorderTiles(direction); i++)
+			{
+				int packed = testPiece.getPackedBorderTile(direction, i);
+				border.add(new Tile(Omino.packedX(packed), Omino.packedY(packed)));
+			}
+			assertTrue("Packed " + direction + " border differs!", border.equals(testPiece.getBorder(direction)));
+		}
+		int packed = testPiece.getPackedBorderTile(Direction.LEFT, 0);
+		assertTrue("Negative coordinates must survive packing!", Omino.packedX(packed) == -1);
+	}
+	
+	@Test
+	public void testShapeCatalog() {
+		ShapeCatalog catalog = new ShapeCatalog();
+		List<Tile> sameShape = new ArrayList<Tile>(testPiece.getShape());
+		Omino first = catalog.newOmino(sameShape);
+		Omino second = catalog.newOmino(sameShape);
+		assertTrue("Catalog should make separate pieces!", first != second);
+		assertTrue(first.isSameShape(second));
+		assertTrue(catalog.classOf(first) == catalog.classOf(second));
+		assertTrue("Shape classes should not depend on the catalog that made the omino!", catalog.classOf(testPiece) == catalog.classOf(first));
+		second.setUniqueId(0);
+		assertTrue("Pieces with unique IDs need classes of their own!", catalog.classOf(first) != catalog.classOf(second));
+		List<Tile> monomino = new ArrayList<Tile>();
+		monomino.add(Tile.ZERO);
+		assertTrue(catalog.classOf(new Omino(monomino)) != catalog.classOf(first));
+		assertTrue(catalog.getNumClasses() == 3);
+	}
+	
 	@Test
 	public void testLayoutHash() {
 		Omino newOmino = new Omino(testPiece);
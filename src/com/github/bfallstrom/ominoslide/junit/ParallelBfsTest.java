@@ -0,0 +1,82 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+
+public class ParallelBfsTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+
+	@Test
+	public void testSlidesMatchBoards() {
+		Boards slides = new Boards(masterBoard, solved, true);
+		while(!slides.iterate());
+		ParallelBfs solver = new ParallelBfs(masterBoard, solved, MoveMetric.SAME_PIECE, 4);
+		solver.solve();
+		assertEquals(slides.getSolutionLength(), solver.getSolutionLength());
+		assertEquals("Both should see the same states!", slides.getNumberOfStates(), solver.getNumberOfStates());
+		checkSolution(solver.getSolution());
+	}
+
+	@Test
+	public void testTileStepsMatchUniformCost() {
+		AStarSolver uniform = new AStarSolver(masterBoard, solved, MoveMetric.TILE_STEP, false);
+		uniform.solve();
+		ParallelBfs solver = new ParallelBfs(masterBoard, solved, MoveMetric.TILE_STEP, 4);
+		solver.solve();
+		assertEquals(uniform.getSolutionLength(), solver.getSolutionLength());
+		List<Move> solution = solver.getSolution();
+		assertEquals(solver.getSolutionLength(), solution.size());
+		checkSolution(solution);
+	}
+
+	@Test
+	public void testDeterministic() {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			ParallelBfs single = new ParallelBfs(masterBoard, solved, metric, 1);
+			single.solve();
+			String expected = single.getSolution().toString();
+			for(int threads = 2; threads <= 8; threads *= 2)
+			{
+				for(int run = 0; run < 5; run++)
+				{
+					ParallelBfs solver = new ParallelBfs(masterBoard, solved, metric, threads);
+					solver.solve();
+					assertEquals("The solution should not depend on the threads!", expected, solver.getSolution().toString());
+				}
+			}
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoThreads() {
+		new ParallelBfs(masterBoard, solved, MoveMetric.TILE_STEP, 0);
+	}
+
+	private static void checkSolution(List<Move> solution)
+	{
+		for(int i = 1; i < solution.size(); i++)
+			assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+		assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+	}
+}
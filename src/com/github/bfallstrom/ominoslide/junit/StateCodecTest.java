@@ -0,0 +1,138 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+
+public class StateCodecTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle1 = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle2 = new ArrayList<Tile>();
+	
+	public Board boardUnderTest;
+	public StateCodec codec;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		boardLayout.add(new Tile(0,0));
+		boardLayout.add(new Tile(1,0));
+		boardLayout.add(new Tile(2,0));
+		boardLayout.add(new Tile(0,1));
+		boardLayout.add(new Tile(1,1));
+		boardLayout.add(new Tile(2,1));
+		boardLayout.add(new Tile(3,1));
+		ominoStyle1.add(new Tile(0,0));
+		ominoStyle1.add(new Tile(1,0));
+		ominoStyle2.add(new Tile(0,0));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		boardUnderTest = new Board(boardLayout);
+		assertTrue(boardUnderTest.placeOmino(new Omino(ominoStyle1), new Tile(1,0)));
+		assertTrue(boardUnderTest.placeOmino(new Omino(ominoStyle2), new Tile(1,1)));
+		assertTrue(boardUnderTest.placeOmino(new Omino(ominoStyle2), new Tile(3,1)));
+		codec = new StateCodec(boardUnderTest);
+	}
+
+	@Test
+	public void testSingleWord() {
+		assertTrue("Small board should pack into one long!", codec.getNumWords() == 1);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(0, Direction.LEFT));
+		assertTrue(second.shiftOmino(2, Direction.LEFT));
+		Board decoded = codec.decode(codec.encode(second));
+		for(int i = 0; i < second.getNumPieces(); i++)
+			assertTrue("Position of piece " + i + " lost!", second.getOminoPosition(i).equals(decoded.getOminoPosition(i)));
+		assertTrue("Decoded board does not know where its pieces are!", decoded.shiftOmino(1, Direction.LEFT));
+		assertFalse("Decoded board does not know where its pieces are!", decoded.shiftOmino(0, Direction.UP));
+	}
+
+	@Test
+	public void testDistinctStates() {
+		StateCode first = codec.encode(boardUnderTest);
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(2, Direction.LEFT));
+		assertFalse("Different states share a code!", first.equals(codec.encode(second)));
+		assertTrue(second.shiftOmino(2, Direction.RIGHT));
+		assertTrue("Same state gives different codes!", first.equals(codec.encode(second)));
+		assertTrue(first.hashCode() == codec.encode(second).hashCode());
+	}
+
+	@Test
+	public void testFromWords() {
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(2, Direction.LEFT));
+		StateCode code = codec.encode(second);
+		long[] words = new long[code.getNumWords()];
+		for(int i = 0; i < words.length; i++)
+			words[i] = code.getWord(i);
+		StateCode rebuilt = codec.fromWords(words);
+		assertTrue(code.equals(rebuilt));
+		assertTrue("Rebuilt code hashes differently!", code.hashCode() == rebuilt.hashCode());
+	}
+
+	@Test
+	public void testMixedHash() {
+		StateCode first = codec.encode(boardUnderTest);
+		Board second = new Board(boardUnderTest);
+		assertTrue(second.shiftOmino(2, Direction.LEFT));
+		StateCode code = codec.encode(second);
+		long[] words = new long[code.getNumWords() + 2];
+		for(int i = 0; i < code.getNumWords(); i++)
+			words[i + 1] = code.getWord(i);
+		assertEquals("A code held in an array should hash as the code itself!", code.mixedHash(),
+				StateCode.mixedHash(words, 1, code.getNumWords()));
+		assertEquals(code.mixedHash(), codec.fromWords(Arrays.copyOfRange(words, 1, 1 + code.getNumWords())).mixedHash());
+		assertTrue("Different states should hash apart!", first.mixedHash() != code.mixedHash());
+		assertTrue("The high bits should differ too!", (first.mixedHash() >>> 32) != (code.mixedHash() >>> 32));
+	}
+
+	@Test
+	public void testInterchangeablePieces() {
+		Board swapped = new Board(boardLayout);
+		assertTrue(swapped.placeOmino(boardUnderTest.getOmino(0), new Tile(1,0)));
+		assertTrue(swapped.placeOmino(boardUnderTest.getOmino(1), new Tile(3,1)));
+		assertTrue(swapped.placeOmino(boardUnderTest.getOmino(2), new Tile(1,1)));
+		assertTrue("Swapping identical pieces should not change the state!", boardUnderTest.equals(swapped));
+		assertTrue(codec.encode(boardUnderTest).equals(codec.encode(swapped)));
+		Board decoded = codec.decode(codec.encode(swapped));
+		assertTrue("Piece 1 should take the position of piece 2 when unpacked!", swapped.getCanonicalIndex(1) == 2);
+		assertTrue(decoded.getOminoPosition(2).equals(swapped.getOminoPosition(1)));
+		assertTrue(swapped.getCanonicalIndex(0) == 0);
+	}
+
+	@Test
+	public void testManyWords() {
+		List<Tile> bigLayout = new ArrayList<Tile>();
+		for(int x = 0; x < 40; x++)
+			for(int y = 0; y < 40; y++)
+				bigLayout.add(new Tile(x,y));
+		Board big = new Board(bigLayout);
+		for(int i = 0; i < 30; i++)
+			assertTrue(big.placeOmino(new Omino(ominoStyle2), new Tile(i,i)));
+		StateCodec bigCodec = new StateCodec(big);
+		assertTrue("Expected codes of more than one long, got " + bigCodec.getNumWords(), bigCodec.getNumWords() > 1);
+		assertTrue(big.shiftOmino(29, Direction.RIGHT));
+		Board decoded = bigCodec.decode(bigCodec.encode(big));
+		for(int i = 0; i < big.getNumPieces(); i++)
+			assertTrue("Position of piece " + i + " lost!", big.getOminoPosition(i).equals(decoded.getOminoPosition(i)));
+	}
+}
@@ -0,0 +1,235 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.StateRanker;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+import com.github.bfallstrom.ominoslide.solver.StateSpaceAnalyzer;
+
+public class StateSpaceAnalyzerTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle1 = new ArrayList<Tile>();
+	public static List<Tile> ominoStyle2 = new ArrayList<Tile>();
+	public static Board masterBoard;
+	public static WinningPosition solved;
+	public static StateCodec codec;
+	public static List<Integer> layerSizes = new ArrayList<Integer>();	// by tile-steps, found with a plain BFS
+	public static int solutionDepth = -1;
+	public static long numShortestSolutions = 0;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		for(int y = 0; y < 3; y++)
+		{
+			for(int x = 0; x < 3; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		boardLayout.add(new Tile(3,2));
+		ominoStyle1.add(new Tile(0,0));
+		ominoStyle1.add(new Tile(1,0));
+		ominoStyle2.add(new Tile(0,0));
+		masterBoard = new Board(boardLayout);
+		Omino target = new Omino(ominoStyle2);
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,0)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,1)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(target, new Tile(3,2)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(ominoStyle1), new Tile(1,2)));
+		solved = new WinningPosition(boardLayout);
+		assertTrue("ERROR: Solved position initialization failed!!", solved.placeOmino(target, new Tile(2,0)));
+	
+		codec = new StateCodec(masterBoard);
+		Map<StateCode,Long> paths = new HashMap<StateCode,Long>();	// shortest paths to each state of the current layer
+		Set<StateCode> seen = new HashSet<StateCode>();
+		paths.put(codec.encode(masterBoard), 1L);
+		seen.add(codec.encode(masterBoard));
+		while(!paths.isEmpty())
+		{
+			layerSizes.add(paths.size());
+			Map<StateCode,Long> next = new HashMap<StateCode,Long>();
+			for(Map.Entry<StateCode,Long> entry : paths.entrySet())
+			{
+				Board board = codec.decode(entry.getKey());
+				if(solutionDepth < 0 && solved.meetsTheseConditions(board))
+					numShortestSolutions += entry.getValue();
+				for(int piece = 0; piece < board.getNumPieces(); piece++)
+				{
+					for(Direction direction : Direction.values())
+					{
+						if(!board.shiftOmino(piece, direction))
+							continue;
+						StateCode child = codec.encode(board);
+						if(seen.add(child) || next.containsKey(child))
+							next.put(child, next.containsKey(child) ? next.get(child) + entry.getValue() : entry.getValue());
+						board.shiftOmino(piece, direction.opposite());
+					}
+				}
+			}
+			if(solutionDepth < 0 && numShortestSolutions > 0)
+				solutionDepth = layerSizes.size() - 1;
+			paths = next;
+		}
+	}
+	
+	@Test
+	public void testRanking() {
+		StateRanker ranker = new StateRanker(masterBoard);
+		Set<Long> ranks = new HashSet<Long>();
+		Board board = new Board(masterBoard);
+		Board unranked = new Board(masterBoard);
+		for(int i = 0; i < 40; i++)	// a walk through a few states
+		{
+			long rank = ranker.rank(board);
+			assertTrue(rank >= 0 && rank < ranker.size());
+			ranker.unrank(rank, unranked);
+			assertEquals("Unranking should give back the same state!", codec.encode(board), codec.encode(unranked));
+			ranks.add(rank);
+			step(board, i);
+		}
+		Set<StateCode> codes = new HashSet<StateCode>();
+		board = new Board(masterBoard);
+		for(int i = 0; i < 40; i++)
+		{
+			codes.add(codec.encode(board));
+			step(board, i);
+		}
+		assertEquals("Distinct states should get distinct ranks!", codes.size(), ranks.size());
+	}
+	
+	@Test
+	public void testMatchesPlainSearch() {
+		StateSpaceAnalyzer analyzer = new StateSpaceAnalyzer(masterBoard, solved, MoveMetric.TILE_STEP, 1 << 20);
+		analyzer.analyze();
+		assertEquals(layerSizes.size(), analyzer.getLayerSizes().size());
+		long total = 0;
+		for(int depth = 0; depth < layerSizes.size(); depth++)
+		{
+			assertEquals((long)layerSizes.get(depth), (long)analyzer.getLayerSizes().get(depth));
+			total += layerSizes.get(depth);
+		}
+		assertEquals(total, analyzer.getNumberOfStates());
+		assertEquals(layerSizes.size() - 1, analyzer.getMaxDepth());
+		assertEquals(solutionDepth, analyzer.getSolutionDepth());
+		assertEquals(numShortestSolutions, analyzer.countShortestSolutions());
+		assertEquals(Math.min(StateSpaceAnalyzer.MAX_FARTHEST, layerSizes.get(layerSizes.size()-1)), analyzer.getFarthestPositions().size());
+	}
+	
+	@Test
+	public void testScanningMatchesLists() {
+		for(MoveMetric metric : MoveMetric.values())
+		{
+			StateSpaceAnalyzer listed = new StateSpaceAnalyzer(masterBoard, solved, metric, 1 << 20);
+			listed.analyze();
+			// room for the depth array and barely any layer lists, so most layers are scanned for
+			StateSpaceAnalyzer scanned = new StateSpaceAnalyzer(masterBoard, solved, metric, listed.getArrayBytes() + 16 * 8);
+			scanned.analyze();
+			assertEquals(listed.getLayerSizes(), scanned.getLayerSizes());
+			assertEquals(listed.countShortestSolutions(), scanned.countShortestSolutions());
+		}
+		ParallelBfs slides = new ParallelBfs(masterBoard, solved, MoveMetric.SAME_PIECE, 1);
+		slides.solve();
+		StateSpaceAnalyzer analyzer = new StateSpaceAnalyzer(masterBoard, solved, MoveMetric.SAME_PIECE, 1 << 20);
+		analyzer.analyze();
+		assertEquals(slides.getSolutionLength(), analyzer.getSolutionDepth());
+	}
+	
+	/**
+	 * Makes some legal tile-step, chosen by the step number, so that a walk visits a few states.
+	 */
+	private static void step(Board board, int i) {
+		for(int k = 0; k < 16; k++)
+		{
+			if(board.shiftOmino((i * 7 + k) % 4, Direction.values()[(i + k / 4) % 4]))
+				return;
+		}
+		fail("ERROR: No piece could move!");
+	}
+	
+	@Test
+	public void testSparseRanking() {
+		// four L-trominoes, each its own shape class, and a domino, with six cells free: pieces of
+		//  different classes overlap in nearly every rank, so only a few of the ranks are states
+		List<Tile> layout = new ArrayList<Tile>();
+		for(int y = 0; y < 4; y++)
+		{
+			for(int x = 0; x < 5; x++)
+				layout.add(new Tile(x,y));
+		}
+		Board board = new Board(layout);
+		Omino target = new Omino(tiles(0,0, 1,0, 0,1));
+		assertTrue(board.placeOmino(target, new Tile(0,0)));
+		assertTrue(board.placeOmino(new Omino(tiles(0,0, 1,0, 1,1)), new Tile(3,0)));
+		assertTrue(board.placeOmino(new Omino(tiles(0,0, 0,1, 1,1)), new Tile(0,2)));
+		assertTrue(board.placeOmino(new Omino(tiles(0,0, 0,1, -1,1)), new Tile(4,2)));
+		assertTrue(board.placeOmino(new Omino(tiles(0,0, 1,0)), new Tile(1,1)));
+		WinningPosition goal = new WinningPosition(layout);
+		assertTrue(goal.placeOmino(target, new Tile(2,0)));
+	
+		StateSpaceAnalyzer analyzer = new StateSpaceAnalyzer(board, goal, MoveMetric.TILE_STEP, 1 << 20);
+		analyzer.analyze();
+		assertTrue("A sparse ranking should be kept in a table!", analyzer.usesTable());
+		assertTrue(analyzer.getArrayBytes() < analyzer.getIndexSize() / 4);
+		StateCodec sparseCodec = new StateCodec(board);
+		Set<StateCode> seen = new HashSet<StateCode>();
+		List<StateCode> layer = new ArrayList<StateCode>();
+		layer.add(sparseCodec.encode(board));
+		seen.addAll(layer);
+		for(int depth = 0; !layer.isEmpty(); depth++)
+		{
+			assertEquals("Layer " + depth + " should match a plain search!", (long)layer.size(), (long)analyzer.getLayerSizes().get(depth));
+			List<StateCode> next = new ArrayList<StateCode>();
+			for(StateCode code : layer)
+			{
+				Board state = sparseCodec.decode(code);
+				for(int piece = 0; piece < state.getNumPieces(); piece++)
+				{
+					for(Direction direction : Direction.values())
+					{
+						if(!state.shiftOmino(piece, direction))
+							continue;
+						if(seen.add(sparseCodec.encode(state)))
+							next.add(sparseCodec.encode(state));
+						state.shiftOmino(piece, direction.opposite());
+					}
+				}
+			}
+			layer = next;
+		}
+		assertEquals(seen.size(), analyzer.getNumberOfStates());
+		assertTrue("Only a few of the ranks should be states!", analyzer.getNumberOfStates() * 100 < analyzer.getIndexSize());
+		AStarSolver aStar = new AStarSolver(board, goal, MoveMetric.TILE_STEP);
+		aStar.solve();
+		assertEquals(aStar.getSolutionLength(), analyzer.getSolutionDepth());
+		assertTrue(analyzer.countShortestSolutions() >= 1);
+	}
+	
+	private static List<Tile> tiles(int... coordinates) {
+		List<Tile> tiles = new ArrayList<Tile>();
+		for(int i = 0; i < coordinates.length; i += 2)
+			tiles.add(new Tile(coordinates[i], coordinates[i+1]));
+		return tiles;
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLittleMemory() {
+		new StateSpaceAnalyzer(masterBoard, solved, MoveMetric.TILE_STEP, 8);
+	}
+}
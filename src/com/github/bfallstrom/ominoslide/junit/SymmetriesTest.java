@@ -0,0 +1,112 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Symmetries;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.Move;
+
+public class SymmetriesTest {
+	public static List<Tile> boardLayout = new ArrayList<Tile>();	// 5 wide, 4 high
+	public static List<Tile> squareLayout = new ArrayList<Tile>();	// 3 by 3
+	public static List<Tile> monomino = new ArrayList<Tile>();
+	public static List<Tile> domino = new ArrayList<Tile>();
+	public static List<Tile> tetromino = new ArrayList<Tile>();	// an L, without its mirror image
+	public static Board masterBoard;
+	public static WinningPosition solved;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		for(int y = 0; y < 4; y++)
+		{
+			for(int x = 0; x < 5; x++)
+				boardLayout.add(new Tile(x,y));
+		}
+		for(int y = 0; y < 3; y++)
+		{
+			for(int x = 0; x < 3; x++)
+				squareLayout.add(new Tile(x,y));
+		}
+		monomino.add(new Tile(0,0));
+		domino.add(new Tile(0,0));
+		domino.add(new Tile(1,0));
+		tetromino.add(new Tile(0,0));
+		tetromino.add(new Tile(1,0));
+		tetromino.add(new Tile(2,0));
+		tetromino.add(new Tile(0,1));
+		masterBoard = new Board(boardLayout);
+		Omino target = new Omino(monomino);
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(domino), new Tile(0,0)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(domino), new Tile(3,0)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(domino), new Tile(1,1)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(domino), new Tile(0,2)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(new Omino(domino), new Tile(3,2)));
+		assertTrue("ERROR: Master board initialization failed!!", masterBoard.placeOmino(target, new Tile(2,3)));
+		solved = new WinningPosition(boardLayout);
+		assertTrue("ERROR: Solved position initialization failed!!", solved.placeOmino(target, new Tile(2,0)));
+	}
+
+	@Test
+	public void testDetect() {
+		assertEquals("Only the left-right mirror should keep the goal in place!", 2, Symmetries.detect(masterBoard, solved).size());
+
+		Board square = new Board(squareLayout);
+		Omino target = new Omino(monomino);
+		assertTrue(square.placeOmino(new Omino(monomino), new Tile(0,0)));
+		assertTrue(square.placeOmino(target, new Tile(2,2)));
+		WinningPosition centre = new WinningPosition(squareLayout);
+		assertTrue(centre.placeOmino(target, new Tile(1,1)));
+		assertEquals("Every rotation and mirror image should keep the centre in place!", 8, Symmetries.detect(square, centre).size());
+		WinningPosition corner = new WinningPosition(squareLayout);
+		assertTrue(corner.placeOmino(target, new Tile(0,0)));
+		assertEquals("Only the diagonal mirror should keep the corner in place!", 2, Symmetries.detect(square, corner).size());
+
+		assertTrue(square.placeOmino(new Omino(tetromino), new Tile(0,1)));
+		assertEquals("An L without a J should rule out every mirror image!", 1, Symmetries.detect(square, centre).size());
+	}
+
+	@Test
+	public void testImagesShareACode() {
+		Symmetries symmetries = Symmetries.detect(masterBoard, solved);
+		StateCodec codec = new StateCodec(masterBoard);
+		StateCode code = symmetries.encode(codec, masterBoard);
+		List<Board> images = symmetries.images(codec, codec.encode(masterBoard));
+		assertEquals(2, images.size());
+		assertFalse("The starting position is not its own mirror image!", codec.encode(images.get(0)).equals(codec.encode(images.get(1))));
+		for(Board image : images)
+			assertEquals(code, symmetries.encode(codec, image));
+	}
+
+	@Test
+	public void testFoldedSearch() {
+		for(boolean macroMoves : new boolean[] {false, true})
+		{
+			Boards plain = new Boards(masterBoard, solved, macroMoves);
+			while(!plain.iterate());
+			Boards folded = new Boards(masterBoard, solved, macroMoves, false, true);
+			while(!folded.iterate());
+			assertEquals(2, folded.getNumberOfSymmetries());
+			assertTrue("Mirror images should only be stored once!", folded.getNumberOfStates() < plain.getNumberOfStates());
+			assertTrue(2 * folded.getNumberOfStates() >= plain.getNumberOfStates());
+			List<Move> solution = folded.getSolution();
+			for(int i = 1; i < solution.size(); i++)
+				assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+			assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+			if(macroMoves)
+				assertEquals("Folding should not change the length of a shortest solution!",
+						plain.getSolutionLength(), folded.getSolutionLength());
+		}
+	}
+}
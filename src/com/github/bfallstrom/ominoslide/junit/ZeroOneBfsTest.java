@@ -0,0 +1,62 @@
+package com.github.bfallstrom.ominoslide.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ZeroOneBfs;
+
+public class ZeroOneBfsTest {
+	public static Board masterBoard;
+	public static WinningPosition solved;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		EnginePuzzle puzzle = new EnginePuzzle();
+		masterBoard = puzzle.getStartingBoard();
+		solved = puzzle.getWinningBoard();
+	}
+
+	@Test
+	public void testShortestSolution() {
+		AStarSolver uniformCost = new AStarSolver(masterBoard, solved, MoveMetric.SAME_PIECE, false);
+		uniformCost.solve();
+		ZeroOneBfs solver = new ZeroOneBfs(masterBoard, solved);
+		solver.solve();
+		assertEquals(uniformCost.getSolutionLength(), solver.getSolutionLength());
+		List<Move> solution = solver.getSolution();
+		int runs = 1;
+		for(int i = 1; i < solution.size(); i++)
+		{
+			assertTrue("Solution steps do not connect!", solution.get(i).getStartingBoard() == solution.get(i-1).getNextBoard());
+			if(solution.get(i).getStartingBoard().getOmino(solution.get(i).getOminoIndex())
+					!= solution.get(i-1).getStartingBoard().getOmino(solution.get(i-1).getOminoIndex()))
+				runs++;
+		}
+		assertEquals("Each move should be one run of steps of a single piece!", solver.getSolutionLength(), runs);
+		assertTrue(solved.meetsTheseConditions(solution.get(solution.size()-1).getNextBoard()));
+	}
+	
+	@Test
+	public void testSettledOnce() {
+		ZeroOneBfs solver = new ZeroOneBfs(masterBoard, solved);
+		int lastCost = -1;
+		while(!solver.iterate())
+		{
+			int cost = solver.getLayerStats().get(solver.getLayerStats().size()-1).getLayer();
+			assertTrue("Costs should be settled in order!", cost > lastCost);
+			lastCost = cost;
+		}
+		assertEquals("Every settled state but the goal should be expanded exactly once!",
+				solver.getNumberOfSettledStates() - 1, solver.getNumberOfExpansions());
+		assertTrue("Some states should be left unsettled on the deque!", solver.getNumberOfSettledStates() < solver.getNumberOfStates());
+	}
+}
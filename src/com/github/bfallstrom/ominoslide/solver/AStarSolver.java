@@ -0,0 +1,287 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * An A* search for the shortest solution, under either MoveMetric. States are kept in packed form,
+ *  as in Boards, and the next state expanded is always the one with the lowest count of moves so
+ *  far plus an estimate of the moves still needed.
+ * Under TILE_STEP each move is a single tile-step. Under SAME_PIECE each move is a whole slide of
+ *  one piece, walked out with a SlideWalker as in the macro mode of Boards, so every move costs
+ *  one and the piece moved last need not be slid again.
+ * The estimate is a GoalEstimate, built from the WinningPosition. It never overstates the moves
+ *  left, so the first solution found is a shortest one, and it changes by at most the cost of a
+ *  move, so no state ever needs expanding twice.
+ * @author bfallstrom
+ *
+ */
+public class AStarSolver implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final GoalEstimate		estimate;		// null for a plain uniform-cost search
+	private final SlideWalker		walker;			// null under TILE_STEP
+	
+	private final Map<StateCode,Entry> entries = new HashMap<StateCode,Entry>();
+	private final PriorityQueue<Open> open = new PriorityQueue<Open>(1024, new Comparator<Open>() {
+		public int compare(Open a, Open b)
+		{
+			if(a.f != b.f)
+				return a.f < b.f ? -1 : 1;
+			return b.g - a.g;	// among equals, prefer the one further along
+		}
+	});
+	private StateCode				goal = null;
+	private int						numExpanded = 0;
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();	// the whole search, once done
+	
+	/**
+	 * Sets up a search using the estimate.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @param metric How to count moves.
+	 */
+	public AStarSolver(Board startingPosition, WinningPosition winningPosition, MoveMetric metric)
+	{
+		this(startingPosition, winningPosition, metric, true);
+	}
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @param metric How to count moves.
+	 * @param useHeuristic If false the estimate is always zero, which makes this a plain
+	 *  uniform-cost search; for comparison.
+	 */
+	public AStarSolver(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, boolean useHeuristic)
+	{
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.codec = new StateCodec(startingPosition);
+		this.estimate = useHeuristic ? new GoalEstimate(startingPosition, winningPosition, metric) : null;
+		this.walker = metric == MoveMetric.SAME_PIECE ? new SlideWalker(startingPosition.getBitBoard()) : null;
+	
+		StateCode start = codec.encode(startingPosition);
+		int h = estimate(startingPosition);
+		if(h != GoalEstimate.UNREACHABLE)
+		{
+			entries.put(start, new Entry(0, null, -1));
+			open.add(new Open(start, 0, h));
+		}
+	}
+	
+	/**
+	 * Runs the search to the end, as solve() does; an A* search has no layers to stop between.
+	 * @return true once a shortest solution has been found.
+	 */
+	public boolean iterate()
+	{
+		return solve();
+	}
+	
+	/**
+	 * Runs the search to the end.
+	 * @return true once a shortest solution has been found.
+	 */
+	public boolean solve()
+	{
+		if(goal != null)
+			return true;
+		long time = System.currentTimeMillis();
+		while(goal == null)
+		{
+			if(open.isEmpty())
+				throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+			Open next = open.poll();
+			Entry entry = entries.get(next.key);
+			if(entry.closed || next.g > entry.g)
+				continue;	// a cheaper route to it was found after this was queued
+			entry.closed = true;
+			numExpanded++;
+			Board board = codec.decode(next.key);
+			if(solved.meetsTheseConditions(board))
+				goal = next.key;
+			else if(walker == null)
+				expand(board, next.key, entry.g);
+			else
+				expandSlides(board, next.key, entry);
+		}
+		layerStats.add(new LayerStats(1, 1, numExpanded, entries.size(), entries.size(), System.currentTimeMillis() - time));
+		return true;
+	}
+	
+	/**
+	 * Gets the solution as a List of Move objects, one per tile-step, with each Move numbered by the
+	 *  metric of this search.
+	 * @return the solution in List<Move> form.
+	 */
+	public List<Move> getSolution()
+	{
+		if(goal == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<StateCode> path = new ArrayList<StateCode>();
+		List<Integer> movedPieces = new ArrayList<Integer>();
+		for(StateCode key = goal; entries.get(key).parent != null; key = entries.get(key).parent)
+		{
+			path.add(key);
+			movedPieces.add(entries.get(key).piece);
+		}
+		Collections.reverse(path);
+		Collections.reverse(movedPieces);
+		return SolutionReplay.replay(rootPosition, codec, solved, path, movedPieces, metric);
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, counted by the metric of this search.
+	 */
+	public int getSolutionLength()
+	{
+		if(goal == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return entries.get(goal).g;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public int getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states seen so far.
+	 */
+	public int getNumberOfStates()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 *
+	 * @return What the search did, as a single layer, once it is done; empty before then.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Generates every tile-step out of a state and queues each resulting state that is new, or that
+	 *  is reached in fewer moves than before.
+	 */
+	private void expand(Board board, StateCode key, int g)
+	{
+		for(int piece = 0; piece < board.getNumPieces(); piece++)
+		{
+			for(Direction direction : DIRECTIONS)
+			{
+				if(!board.shiftOmino(piece, direction))
+					continue;
+				reach(board, piece, key, g + 1);
+				board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+			}
+		}
+	}
+	
+	/**
+	 * Generates every whole slide out of a state and queues each resulting state that is new, or
+	 *  that is reached in fewer moves than before.
+	 */
+	private void expandSlides(Board board, final StateCode key, Entry entry)
+	{
+		final int g = entry.g;
+		SlideWalker.Visitor visitor = new SlideWalker.Visitor() {
+			public void reached(Board board, int piece, Direction direction, int cell)
+			{
+				reach(board, piece, key, g + 1);
+			}
+		};
+		for(int piece = 0; piece < board.getNumPieces(); piece++)
+		{
+			if(piece != entry.piece)	// anything it could reach now was reachable one move ago
+				walker.walk(board, piece, visitor);
+		}
+	}
+	
+	/**
+	 * Queues the state a board is in after a move, if it is new or reached in fewer moves than before.
+	 * @param board The board, in the new state; not changed.
+	 * @param piece The index of the piece moved.
+	 * @param parent The state the move was made from.
+	 * @param g The moves made to reach the new state this way.
+	 */
+	private void reach(Board board, int piece, StateCode parent, int g)
+	{
+		StateCode child = codec.encode(board);
+		Entry known = entries.get(child);
+		if(known == null || known.g > g)
+		{
+			int h = estimate(board);
+			if(h != GoalEstimate.UNREACHABLE)
+			{
+				entries.put(child, new Entry(g, parent, board.getCanonicalIndex(piece)));
+				open.add(new Open(child, g, g + h));
+			}
+		}
+	}
+	
+	private int estimate(Board board)
+	{
+		return estimate == null ? 0 : estimate.estimate(board, -1);	// no piece carries on for free
+	}
+	
+	/**
+	 * What is known about a state: the fewest moves it has been reached in, and how.
+	 */
+	private static final class Entry {
+		final int g;
+		final StateCode parent;	// null for the starting position
+		final int piece;		// the piece moved to get here, as numbered once unpacked
+		boolean closed = false;	// whether its moves have been generated
+	
+		Entry(int g, StateCode parent, int piece)
+		{
+			this.g = g;
+			this.parent = parent;
+			this.piece = piece;
+		}
+	}
+	
+	/**
+	 * An entry of the open queue. A state may be queued more than once as cheaper routes to it are
+	 *  found; the stale entries are skipped when they come up.
+	 */
+	private static final class Open {
+		final StateCode key;
+		final int g;
+		final int f;
+	
+		Open(StateCode key, int g, int f)
+		{
+			this.key = key;
+			this.g = g;
+			this.f = f;
+		}
+	}
+}
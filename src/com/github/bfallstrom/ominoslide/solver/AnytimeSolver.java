@@ -0,0 +1,440 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * An anytime search, for when some solution is needed quickly and a better one only if there is
+ *  time. It is a weighted A* search whose weight shrinks pass by pass, reusing what earlier passes
+ *  learned rather than starting over (Anytime Repairing A*). Each pass expands states in order of
+ *  the moves made so far plus the weight times their GoalEstimate, ties going to the state further
+ *  along; a heavy weight finds a solution in little time, though not always a short one.
+ * While the weight is above one the open list is a beam: it holds at most the width's states, and
+ *  the worst are set aside for the next pass, whose width is doubled. A pass drops any state that
+ *  cannot beat the best solution so far, and ends when the best state left could not improve on it.
+ *  States whose move count fell after they were expanded are also set aside; the next pass starts
+ *  from everything set aside and everything left open, not from the starting position.
+ * The last pass has a weight of one and no beam, which makes it a plain A* search; once it is over
+ *  the best solution is a shortest one. A pass that never had to set a state aside for want of room
+ *  shows the width no longer matters, so the search goes straight to the last pass after it.
+ * Under SAME_PIECE a move is a whole slide of one piece, as in ParallelBfs; under TILE_STEP it is
+ *  a single tile-step.
+ * @author bfallstrom
+ *
+ */
+public class AnytimeSolver implements SolverEngine {
+	public static final int DEFAULT_WIDTH = 1 << 12;
+	private static final double FIRST_WEIGHT = 3;
+	private static final double WEIGHT_STEP = 0.5;	// taken off the weight after each pass
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int MAX_WIDTH = 1 << 30;
+	private static final int DEADLINE_CHECK = 1024;	// expansions between looks at the clock
+	
+	/**
+	 * Told about each better solution as it is found.
+	 */
+	public interface Listener {
+		/**
+		 * Called with each solution shorter than any before it, and once more when the best is
+		 *  proven shortest, if that is not already known when it is found.
+		 * @param solution The solution in List<Move> form.
+		 * @param length Its number of moves, counted by the metric of the search.
+		 * @param optimal Whether it is known to be a shortest solution.
+		 */
+		void found(List<Move> solution, int length, boolean optimal);
+	}
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final GoalEstimate		estimate;
+	private final SlideWalker		walker;			// null under TILE_STEP
+	private final int				lowerBound;		// the estimate of the starting position
+	
+	private final Map<StateCode,Entry> entries = new HashMap<StateCode,Entry>();
+	private final TreeSet<Open>		open = new TreeSet<Open>(RANKING);
+	private Set<StateCode>			setAside = new LinkedHashSet<StateCode>();	// to be queued again next pass
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private int						width;
+	private double					weight = FIRST_WEIGHT;
+	private int						pass = 0;
+	private long					numQueued = 0;		// for breaking ties by age
+	private List<StateCode>			bestPath = null;	// the states after each move of the best solution
+	private List<Integer>			bestPieces = null;	// the piece moved into each of them
+	private boolean					optimal = false;
+	private long					numExpanded = 0;
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @param metric How to count moves.
+	 * @param width The width of the first beam.
+	 */
+	public AnytimeSolver(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, int width)
+	{
+		if(width < 1)
+			throw new IllegalArgumentException("WARNING! The beam must be at least one state wide!");
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.width = width;
+		this.codec = new StateCodec(startingPosition);
+		this.estimate = new GoalEstimate(startingPosition, winningPosition, metric);
+		this.walker = metric == MoveMetric.SAME_PIECE ? new SlideWalker(startingPosition.getBitBoard()) : null;
+		this.lowerBound = estimate.estimate(startingPosition, -1);
+		if(lowerBound == GoalEstimate.UNREACHABLE)
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		if(solved.meetsTheseConditions(startingPosition))
+		{
+			bestPath = new ArrayList<StateCode>();
+			bestPieces = new ArrayList<Integer>();
+			optimal = true;
+		}
+		StateCode root = codec.encode(startingPosition);
+		entries.put(root, new Entry(0, null, -1, lowerBound));
+		setAside.add(root);
+	}
+	
+	/**
+	 * Makes one pass with the current weight and width, then lowers the weight and doubles the width.
+	 * @return true once the best solution found is known to be a shortest one.
+	 */
+	public boolean iterate()
+	{
+		return iterate(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Makes passes until the deadline passes or a shortest solution is known, telling the listener
+	 *  of each better solution along the way. A pass under way at the deadline stops there, and a
+	 *  later call carries on from where it stopped.
+	 * @param deadline The time to stop, as given by System.currentTimeMillis().
+	 * @param listener Told of each better solution; may be null.
+	 * @return true if the best solution found is known to be a shortest one.
+	 */
+	public boolean solve(long deadline, Listener listener)
+	{
+		while(!optimal && System.currentTimeMillis() < deadline)
+		{
+			int before = hasSolution() ? bestPath.size() : Integer.MAX_VALUE;
+			iterate(deadline);
+			if(listener != null && hasSolution() && (bestPath.size() < before || optimal))
+				listener.found(getSolution(), getSolutionLength(), optimal);
+		}
+		return optimal;
+	}
+	
+	/**
+	 *
+	 * @return true if some solution has been found.
+	 */
+	public boolean hasSolution()
+	{
+		return bestPath != null;
+	}
+	
+	/**
+	 *
+	 * @return true if the best solution found is known to be a shortest one.
+	 */
+	public boolean isOptimal()
+	{
+		return optimal && hasSolution();
+	}
+	
+	/**
+	 * Gets the best solution found so far as a List of Move objects, one per tile-step.
+	 * @return the solution in List<Move> form.
+	 */
+	public List<Move> getSolution()
+	{
+		if(!hasSolution())
+			throw new RuntimeException("WARNING! No solution has been found yet!");
+		return SolutionReplay.replay(rootPosition, codec, solved, bestPath, bestPieces, metric);
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the best solution found so far, counted by the metric of this search.
+	 */
+	public int getSolutionLength()
+	{
+		if(!hasSolution())
+			throw new RuntimeException("WARNING! No solution has been found yet!");
+		return bestPath.size();
+	}
+	
+	/**
+	 *
+	 * @return The width the next pass will use, if its weight is above one.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+	
+	/**
+	 *
+	 * @return The weight the next pass will give the estimate; one for the last pass.
+	 */
+	public double getWeight()
+	{
+		return weight;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far, over all passes.
+	 */
+	public long getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return What each pass so far did, in order; the frontier of each is the states it started from.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Makes one pass, giving up at the deadline. A pass given up on leaves everything it had not
+	 *  expanded set aside, so the next starts where it stopped.
+	 * @return true once the best solution found is known to be a shortest one.
+	 */
+	private boolean iterate(long deadline)
+	{
+		if(optimal)
+			return true;
+		long time = System.currentTimeMillis();
+		long expandedBefore = numExpanded;
+		int statesBefore = entries.size();
+		int bound = hasSolution() ? bestPath.size() : Integer.MAX_VALUE;	// only shorter solutions are wanted
+		boolean last = weight <= 1;
+		pass++;
+		Set<StateCode> starts = setAside;
+		setAside = new LinkedHashSet<StateCode>();
+		for(Open queued : open)
+			starts.add(queued.key);
+		open.clear();
+		boolean dropped = false;
+		for(StateCode code : starts)
+		{
+			Entry entry = entries.get(code);
+			entry.queued = null;
+			if(entry.g < entry.expandedAt && entry.g + entry.h < bound)
+				dropped |= queue(code, entry, last);
+		}
+		int frontier = open.size();
+		StateCode goal = null;
+		while(!open.isEmpty() && open.first().f < bound)
+		{
+			if(numExpanded % DEADLINE_CHECK == 0 && System.currentTimeMillis() >= deadline)
+				return false;	// the open list and what was set aside carry over
+			Open next = open.pollFirst();
+			Entry entry = entries.get(next.key);
+			entry.queued = null;
+			if(entry.g + entry.h >= bound)
+				continue;	// cannot lead to a shorter solution
+			if(entry.h == 0 && solved.meetsTheseConditions(codec.decode(next.key)))
+			{
+				goal = next.key;
+				break;
+			}
+			entry.expandedAt = entry.g;
+			entry.closedIn = pass;
+			dropped |= expand(next.key, entry, bound, last);
+			numExpanded++;
+		}
+		layerStats.add(new LayerStats(pass, frontier, (int)Math.min(Integer.MAX_VALUE, numExpanded - expandedBefore),
+				entries.size() - statesBefore, entries.size(), System.currentTimeMillis() - time));
+		if(goal != null)
+		{
+			List<StateCode> path = new ArrayList<StateCode>();
+			List<Integer> pieces = new ArrayList<Integer>();
+			for(StateCode code = goal; entries.get(code).parent != null; code = entries.get(code).parent)
+			{
+				path.add(code);
+				pieces.add(entries.get(code).piece);
+			}
+			Collections.reverse(path);
+			Collections.reverse(pieces);
+			bestPath = path;
+			bestPieces = pieces;
+		}
+		// a plain A* pass that set nothing aside has found the shortest solution, if there is one
+		optimal = (last && setAside.isEmpty()) || (hasSolution() && bestPath.size() <= lowerBound);
+		if(optimal && !hasSolution())
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		if(!optimal)
+		{
+			weight = dropped ? Math.max(1, weight - WEIGHT_STEP) : 1;	// a beam that never filled up has done its work
+			width = (int)Math.min(MAX_WIDTH, 2L * width);
+		}
+		return optimal;
+	}
+	
+	/**
+	 * Generates the moves out of a state, queueing each resulting state that is new or reached in
+	 *  fewer moves than before, and that could still lead to a shorter solution.
+	 * @return true if some state had to be set aside for want of room.
+	 */
+	private boolean expand(final StateCode code, Entry entry, final int bound, final boolean last)
+	{
+		final boolean[] dropped = new boolean[1];
+		final int g = entry.g + 1;
+		Board board = codec.decode(code);
+		if(metric == MoveMetric.TILE_STEP)
+		{
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				for(Direction direction : DIRECTIONS)
+				{
+					if(!board.shiftOmino(piece, direction))
+						continue;
+					dropped[0] |= offer(board, piece, code, g, bound, last);
+					board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+				}
+			}
+		} else
+		{
+			int lastPiece = entry.piece;
+			SlideWalker.Visitor visitor = new SlideWalker.Visitor() {
+				public void reached(Board board, int piece, Direction direction, int cell)
+				{
+					dropped[0] |= offer(board, piece, code, g, bound, last);
+				}
+			};
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				if(piece != lastPiece)	// anything it could reach now was reachable one move ago
+					walker.walk(board, piece, visitor);
+			}
+		}
+		return dropped[0];
+	}
+	
+	/**
+	 * Records a state reached by a move, if it is new or reached in fewer moves than before.
+	 * @return true if some state had to be set aside for want of room.
+	 */
+	private boolean offer(Board board, int piece, StateCode parent, int g, int bound, boolean last)
+	{
+		StateCode child = codec.encode(board);
+		Entry known = entries.get(child);
+		if(known != null && known.g <= g)
+			return false;
+		if(known == null)
+		{
+			int h = estimate.estimate(board, -1);	// a whole slide was made, so the next move costs one whichever piece it is
+			if(h == GoalEstimate.UNREACHABLE)
+				return false;
+			known = new Entry(g, parent, board.getCanonicalIndex(piece), h);
+			entries.put(child, known);
+		} else
+		{
+			if(known.queued != null)
+				open.remove(known.queued);
+			known.queued = null;
+			known.g = g;
+			known.parent = parent;
+			known.piece = board.getCanonicalIndex(piece);
+		}
+		if(g + known.h >= bound)
+			return false;
+		if(known.closedIn == pass)
+		{
+			setAside.add(child);	// already expanded this pass, with more moves
+			return false;
+		}
+		return queue(child, known, last);
+	}
+	
+	/**
+	 * Puts a state on the open list, keeping the list within the width unless this is the last pass.
+	 * @return true if some state had to be set aside for want of room.
+	 */
+	private boolean queue(StateCode code, Entry entry, boolean last)
+	{
+		entry.queued = new Open(code, entry.g, entry.g + weight * entry.h, numQueued++);
+		open.add(entry.queued);
+		if(last || open.size() <= width)
+			return false;
+		Open worst = open.pollLast();
+		entries.get(worst.key).queued = null;
+		setAside.add(worst.key);
+		return true;
+	}
+	
+	/**
+	 * Orders the open list by moves made plus the weighted estimate, then by moves made, most first,
+	 *  then by age, so that a search gives the same answer every time.
+	 */
+	private static final Comparator<Open> RANKING = new Comparator<Open>() {
+		public int compare(Open a, Open b)
+		{
+			if(a.f != b.f)
+				return a.f < b.f ? -1 : 1;
+			if(a.g != b.g)
+				return a.g > b.g ? -1 : 1;
+			return a.age < b.age ? -1 : (a.age == b.age ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * What is known about a state: the fewest moves it has been reached in, and how.
+	 */
+	private static final class Entry {
+		int g;
+		StateCode parent;			// null for the starting position
+		int piece;					// the piece moved to get here, as numbered once unpacked; -1 at the start
+		final int h;
+		int expandedAt = Integer.MAX_VALUE;	// the moves it had when last expanded
+		int closedIn = 0;			// the pass it was last expanded in
+		Open queued = null;			// its place on the open list, if it is there
+	
+		Entry(int g, StateCode parent, int piece, int h)
+		{
+			this.g = g;
+			this.parent = parent;
+			this.piece = piece;
+			this.h = h;
+		}
+	}
+	
+	/**
+	 * An entry of the open list.
+	 */
+	private static final class Open {
+		final StateCode key;
+		final int g;
+		final double f;
+		final long age;
+	
+		Open(StateCode key, int g, double f, long age)
+		{
+			this.key = key;
+			this.g = g;
+			this.f = f;
+			this.age = age;
+		}
+	}
+}
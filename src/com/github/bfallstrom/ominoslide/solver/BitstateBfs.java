@@ -0,0 +1,307 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * A breadth-first search that remembers the states it has seen only as bits, for telling whether a
+ *  puzzle far too big for the other searches can be solved, and in about how many moves.
+ * Each state sets k bits of one large bit array, picked by k hashes of its packed code, as in a
+ *  Bloom filter. A state whose k bits are all set already is taken as seen. Sometimes it was not,
+ *  and the state and whatever lies only beyond it are missed; the search can then report a longer
+ *  solution than the shortest, or none at all. It never reports one that does not exist. The
+ *  chance of a miss grows with the fraction of bits set, and is estimated as the search goes.
+ * Only the current and next layers are held as full codes, so neither parent links nor the path
+ *  are kept: the search gives the length of the solution, not its moves. The bit array keeps the
+ *  visited states in very little memory, but the two layers are held on the heap, in arrays of at
+ *  most Integer.MAX_VALUE - 8 words; so the widest layer, not the bit array, decides how much
+ *  memory the search needs, and one of more states than that array holds stops the search.
+ * Moves are generated as in ExternalBfs: one tile-step under TILE_STEP, one whole slide under
+ *  SAME_PIECE.
+ * @author bfallstrom
+ *
+ */
+public class BitstateBfs {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	public static final int DEFAULT_HASHES = 3;
+	public static final long MAX_BITS = 1L << 36;	// 8 GB, about the most a long[] can hold
+	private static final int MAX_LAYER_WORDS = Integer.MAX_VALUE - 8;	// the most a long[] can hold
+	
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final SlideWalker		walker;
+	private final int				numWords;
+	private final long[]			bits;
+	private final long				bitMask;
+	private final int				numHashes;
+	
+	private long[]					frontier;
+	private int						frontierSize = 0;
+	private long[]					nextFrontier;
+	private int						nextFrontierSize = 0;
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private boolean					winnerFound;
+	private int						depth = 0;
+	private long					numStates = 0;
+	private long					numExpanded = 0;
+	private long					bitsSet = 0;
+	private double					missSum = 0;	// the chance each added state had of being missed, summed
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param metric How to count moves, and so how moves are generated.
+	 * @param numBits The size of the bit array, rounded up to a power of two.
+	 * @param numHashes The number of bits each state sets.
+	 */
+	public BitstateBfs(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, long numBits,
+			int numHashes)
+	{
+		if(numBits < 64 || numBits > MAX_BITS)
+			throw new IllegalArgumentException("Error: the bit array must hold between 64 and " + MAX_BITS + " bits!");
+		if(numHashes < 1)
+			throw new IllegalArgumentException("Error: each state must set at least one bit!");
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.codec = new StateCodec(startingPosition);
+		this.walker = new SlideWalker(startingPosition.getBitBoard());
+		this.numWords = codec.getNumWords();
+		long size = Long.highestOneBit(numBits);
+		if(size < numBits)
+			size <<= 1;
+		this.bits = new long[(int)(size >>> 6)];
+		this.bitMask = size - 1;
+		this.numHashes = numHashes;
+		this.frontier = new long[16 * numWords];
+		this.nextFrontier = new long[16 * numWords];
+	
+		StateCode start = codec.encode(startingPosition);
+		mark(start);
+		append(start);
+		winnerFound = solved.meetsTheseConditions(startingPosition);
+	}
+	
+	/**
+	 * Expands the last layer found into the next one.
+	 * @return true if a winning state was found
+	 */
+	public boolean iterate()
+	{
+		if(winnerFound)
+			return true;
+		long time = System.currentTimeMillis();
+		long[] swap = frontier;
+		frontier = nextFrontier;
+		nextFrontier = swap;
+		frontierSize = nextFrontierSize;
+		nextFrontierSize = 0;
+		for(int i = 0; i < frontierSize; i++)
+		{
+			Board board = codec.decode(codec.fromWords(Arrays.copyOfRange(frontier, i * numWords, (i + 1) * numWords)));
+			expand(board);
+			numExpanded++;
+		}
+		depth++;
+		layerStats.add(new LayerStats(depth, frontierSize, frontierSize, nextFrontierSize,
+				(int)Math.min(Integer.MAX_VALUE, numStates), System.currentTimeMillis() - time));
+		if(!winnerFound && nextFrontierSize == 0)
+			throw new IllegalArgumentException(String.format("WARNING! No solution was found among %d states, "
+					+ "though about %.1f may have been missed!", numStates, getExpectedMisses()));
+		return winnerFound;
+	}
+	
+	/**
+	 * Expands layers until a winning state is found.
+	 * @return true once a solution has been found.
+	 */
+	public boolean solve()
+	{
+		while(!iterate());
+		return true;
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution found, counted by the metric of this search. If
+	 *  states were missed, the shortest solution may be shorter.
+	 */
+	public int getSolutionLength()
+	{
+		if(!winnerFound)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return depth;
+	}
+	
+	/**
+	 *
+	 * @return The number of states added to the bit array so far.
+	 */
+	public long getNumberOfStates()
+	{
+		return numStates;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public long getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return What each layer so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 *
+	 * @return The size of the bit array in bits.
+	 */
+	public long getNumBits()
+	{
+		return bitMask + 1;
+	}
+	
+	/**
+	 *
+	 * @return The fraction of the bit array set so far.
+	 */
+	public double getFillRatio()
+	{
+		return (double)bitsSet / getNumBits();
+	}
+	
+	/**
+	 * Estimates the chance that a new state was wrongly taken as seen: for each state added, the
+	 *  chance that all k of its bits were set already, averaged over the states added so far.
+	 * @return The estimated omission probability per state.
+	 */
+	public double getOmissionProbability()
+	{
+		return numStates == 0 ? 0 : missSum / numStates;
+	}
+	
+	/**
+	 * Estimates how many states were missed so far, not counting those only reachable through them.
+	 * @return The expected number of states wrongly taken as seen.
+	 */
+	public double getExpectedMisses()
+	{
+		double p = getOmissionProbability();
+		return p >= 1 ? Double.POSITIVE_INFINITY : numStates * p / (1 - p);
+	}
+	
+	/**
+	 *
+	 * @return The chance that a new state reached now would be wrongly taken as seen.
+	 */
+	public double getCurrentOmissionProbability()
+	{
+		return Math.pow(getFillRatio(), numHashes);
+	}
+	
+	/**
+	 * Generates every move out of a state and queues the results not seen before.
+	 */
+	private void expand(Board board)
+	{
+		if(metric == MoveMetric.TILE_STEP)
+		{
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				for(Direction direction : DIRECTIONS)
+				{
+					if(!board.shiftOmino(piece, direction))
+						continue;
+					reached(board);
+					board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+				}
+			}
+		} else
+		{
+			SlideWalker.Visitor visitor = new SlideWalker.Visitor() {
+				public void reached(Board board, int piece, Direction direction, int cell)
+				{
+					BitstateBfs.this.reached(board);
+				}
+			};
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+				walker.walk(board, piece, visitor);
+		}
+	}
+	
+	private void reached(Board board)
+	{
+		StateCode code = codec.encode(board);
+		if(!mark(code))
+			return;
+		append(code);
+		if(solved.meetsTheseConditions(board))
+			winnerFound = true;
+	}
+	
+	/**
+	 * Sets the bits of a state.
+	 * @return true if any of them was clear, so the state is new.
+	 */
+	private boolean mark(StateCode code)
+	{
+		long h1 = code.mixedHash();
+		long h2 = StateCode.mix(h1, 0xC2B2AE3D27D4EB4FL) | 1;	// odd, so the k bits differ
+		double fill = getCurrentOmissionProbability();
+		boolean isNew = false;
+		for(int i = 0; i < numHashes; i++)
+		{
+			long bit = (h1 + i * h2) & bitMask;
+			int word = (int)(bit >>> 6);
+			long mask = 1L << bit;
+			if((bits[word] & mask) == 0)
+			{
+				bits[word] |= mask;
+				bitsSet++;
+				isNew = true;
+			}
+		}
+		if(isNew)
+		{
+			numStates++;
+			missSum += fill;
+		}
+		return isNew;
+	}
+	
+	/**
+	 * Queues a state for the next layer, growing the array as needed.
+	 * @throws IllegalStateException If the layer has outgrown the biggest array there can be.
+	 */
+	private void append(StateCode code)
+	{
+		long wanted = (long)(nextFrontierSize + 1) * numWords;	// in long, since it can pass what an int holds
+		if(wanted > nextFrontier.length)
+		{
+			if(wanted > MAX_LAYER_WORDS)
+				throw new IllegalStateException("Error: a layer of more than " + MAX_LAYER_WORDS / numWords
+						+ " states cannot be held!");
+			nextFrontier = Arrays.copyOf(nextFrontier, (int)Math.min(MAX_LAYER_WORDS, nextFrontier.length * 2L));
+		}
+		for(int i = 0; i < numWords; i++)
+			nextFrontier[nextFrontierSize * numWords + i] = code.getWord(i);
+		nextFrontierSize++;
+	}
+}
@@ -1,175 +1,532 @@
 package com.github.bfallstrom.ominoslide.solver;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Symmetries;
 import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
 
-public class Boards {
-	private Map<Board,Moves>	states = new HashMap<Board,Moves>(); // maps each known board state to the possible moves that can be made from it
+public class Boards implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();	// values() copies the array on every call
+	private static final int	CHECKPOINT_MAGIC = 0x4F4D4331;	// "OMC1"
+	private static final int	CHECK_INTERVAL = 64;	// frontier entries between checks of the budget
+	private VisitedStates		states;			// each known state, and how it was reached
+	private int[]				frontier = new int[64];		// id, depth pairs being expanded this pass
+	private int					frontierSize = 0;
+	private int[]				nextFrontier = new int[64];	// id, depth pairs queued for the next pass
+	private int					nextFrontierSize = 0;
+	private List<LayerStats>	layerStats = new ArrayList<LayerStats>();
 	private WinningPosition		solved = null;	// The position to seek.
 	private int					winFoundAt = Integer.MAX_VALUE;
+	private int					winningState = -1;
 	private Board				rootPosition;
+	private StateCodec			codec;
+	private Symmetries			symmetries = null;	// null to store every state as it is
+	private boolean				macroMoves = false;	// whether one edge is a whole slide of a piece, or one tile-step
+	private int					numExpanded = 0;
+	private SlideWalker			walker = null;	// scratch space for expandSlides
+	private int					depthReached = 0;	// the deepest state expanded so far
+	private SearchBudget		budget = null;	// the limits of solve(), or null while they do not apply
+	private CancellationToken	token = null;
+	private long				deadline = Long.MAX_VALUE;
+	private long				peakMemoryBytes = 0;
+	private SolveStatus			stoppedBy = null;	// why a budgeted search stopped, or null if it has not
 	
 	public Boards(Board startingPosition, WinningPosition winningPosition)
 	{
+		this(startingPosition, winningPosition, false);
+	}
+	
+	/**
+	 * Sets up a search, choosing how moves are generated. Either way, consecutive shifts of the
+	 *  same piece count as a single move.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param macroMoves If true, every position a piece can slide to on its own is generated as
+	 *  one move, so each pass goes exactly one move deeper and no in-between states are stored.
+	 *  If false, moves are generated a tile-step at a time, and the search stops at the first
+	 *  pass that reaches the goal: the solution found has the fewest tile-steps, but may have more
+	 *  moves than a shortest one.
+	 */
+	public Boards(Board startingPosition, WinningPosition winningPosition, boolean macroMoves)
+	{
+		this(startingPosition, winningPosition, macroMoves, false);
+	}
+	
+	/**
+	 * Sets up a search, choosing how moves are generated and where the visited states are kept.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param macroMoves As for the three-argument constructor.
+	 * @param offHeap If true, the visited states are kept in an OffHeapStateTable rather than a
+	 *  NodeStore, which keeps the heap small and the garbage collector idle on very large searches.
+	 */
+	public Boards(Board startingPosition, WinningPosition winningPosition, boolean macroMoves, boolean offHeap)
+	{
+		this(startingPosition, winningPosition, macroMoves, offHeap, false);
+	}
+	
+	/**
+	 * Sets up a search, choosing how moves are generated, where the visited states are kept, and
+	 *  whether mirror images of states are stored once.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param macroMoves As for the three-argument constructor.
+	 * @param offHeap As for the four-argument constructor.
+	 * @param useSymmetries If true, the symmetries of the layout and the goal are found up front and
+	 *  every state is stored as its canonical image, so a state and its mirror images are only
+	 *  searched once. Has no effect on puzzles without symmetries.
+	 */
+	public Boards(Board startingPosition, WinningPosition winningPosition, boolean macroMoves, boolean offHeap,
+			boolean useSymmetries)
+	{
+		this.macroMoves = macroMoves;
 		solved = winningPosition;
-		Moves moves = new Moves(startingPosition);
-		moves.resolveMoves(solved);
-		moves.trimBlocked();
-		states.put(startingPosition, moves);
 		rootPosition = startingPosition;
+		codec = new StateCodec(startingPosition);
+		if(useSymmetries)
+		{
+			symmetries = Symmetries.detect(startingPosition, winningPosition);
+			if(symmetries.size() == 1)
+				symmetries = null;	// only the identity, so nothing to fold
+		}
+		states = offHeap ? new OffHeapStateTable(codec, 1 << 16) : new NodeStore(codec, startingPosition.getNumPieces(), 1 << 10);
+		queue(states.add(encode(startingPosition), 0, -1, -1), 0);
 	}
 	
 	/**
-	 * Makes a single pass through the map and performs all the trimmings and checks.
+	 * Makes a single pass through the frontier, generating the moves out of every state found in the
+	 *  previous pass. Only the frontier is walked; states expanded in earlier passes are never looked
+	 *  at again. The states are expanded in the order a rescan of every state known would take them,
+	 *  so the solutions and counts are those of such a rescan. States are only kept in packed form;
+	 *  a Board is unpacked just long enough to generate its moves.
+	 * A win is found when the winning state itself is generated, and it is recorded with the depth
+	 *  it was reached at. The first version of this search looked a move ahead from every new state
+	 *  instead, so it stopped a pass sooner, but on a path that could take more moves than the
+	 *  count it reported. On the puzzles in BoardsTest this search takes a pass more and finds a
+	 *  solution one move shorter.
 	 * @return true if a complete solution was found
 	 */
 	public boolean iterate()
 	{
-		List<Board> allBoards;
-		Iterator<Board> iter;
-
-		allBoards = new ArrayList<Board>(states.keySet());	// Can't use the keyset directly because of
-		iter = allBoards.iterator();						//  ConcurrentModificationException!
-		while(iter.hasNext())
+		if(stoppedBy != null)
+			throw new RuntimeException("WARNING! This search was stopped and cannot be carried on!");
+		int expandedBefore = numExpanded;
+		long time = System.currentTimeMillis();
+	
+		int[] spare = frontier;	// swap, so that this pass queues into the old, emptied array
+		frontier = nextFrontier;
+		frontierSize = nextFrontierSize;
+		nextFrontier = spare;
+		nextFrontierSize = 0;
+		for(int i = 0; i < frontierSize; i += 2)
 		{
-			Board board = iter.next();
-			if(states.containsKey(board)) // if it doesn't, the list is outdated and we don't need to handle it!
+			if(budget != null && (i / 2) % CHECK_INTERVAL == 0 && (stoppedBy = checkBudget()) != null)
+				break;	// the rest of the pass is left undone
+			int id = frontier[i];
+			if(!states.isExpanded(id) && states.getDepth(id) == frontier[i+1]) // if it isn't, a cheaper route replaced it since it was queued
 			{
-				Moves moves = states.get(board);
-				if(moves != null && moves.hasUnblocked())
-				{
-					moves.trimBlocked();
-					for(int i = 0; i < moves.getNumberOfMoves(); i++)
-					{
-						Move move = moves.getMove(i);
-						checkMove(move, moves.getMoveDepth(), solved);
-					}
-				} else
-				{
-					if(board.getPreviousMove() != null)
-					{
-						board.getPreviousMove().setStatus(MoveStatus.BLOCKED);
-						states.remove(board);
-					}
-				}
+				if(macroMoves)
+					expandSlides(id);
+				else
+					expand(id);
 			}
 		}
-		
-		
-		if(states.get(rootPosition).hasWinner())
-			states.get(rootPosition).trimToWinners();
-		if(!states.get(rootPosition).hasUnblocked())
+		layerStats.add(new LayerStats(layerStats.size() + 1, frontierSize / 2, numExpanded - expandedBefore,
+				nextFrontierSize / 2, states.size(), System.currentTimeMillis() - time));
+	
+		if(stoppedBy != null)
+			return false;
+		if(winningState < 0 && numExpanded == expandedBefore)
 			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
-		return states.get(rootPosition).hasWinner();
+		return winningState >= 0;
+	}
+	
+	/**
+	 * Runs the search until it is solved, proven unsolvable, or stopped by its budget or token. The
+	 *  limits are checked every few dozen expansions, inside a pass, so a search stops cleanly
+	 *  soon after one is reached rather than at the end of a long pass. A stopped search cannot be
+	 *  carried on, but its getters still work, and any solution it found is in the result.
+	 * @param budget The limits of the search.
+	 * @param token A token another thread may cancel to stop the search; may be null.
+	 * @return How the search ended and how far it got.
+	 */
+	public SolveResult solve(SearchBudget budget, CancellationToken token)
+	{
+		long time = System.currentTimeMillis();
+		this.budget = budget;
+		this.token = token;
+		this.deadline = budget.getMaxMillis() > 0 ? time + budget.getMaxMillis() : Long.MAX_VALUE;
+		SolveStatus status;
+		try {
+			while(!iterate() && stoppedBy == null);
+			status = stoppedBy == null ? SolveStatus.SOLVED : stoppedBy;
+		} catch (IllegalArgumentException e) {
+			status = SolveStatus.UNSOLVABLE;
+		} finally {
+			this.budget = null;
+			this.token = null;
+		}
+		List<Move> solution = winningState >= 0 ? getSolution() : null;
+		return new SolveResult(status, depthReached, states.size(), numExpanded, solution, solution == null ? -1 : winFoundAt,
+				peakMemoryBytes, System.currentTimeMillis() - time);
 	}
 	
 	/**
 	 * Gets the solution and returns it as a List of Move objects. Each in sequence takes you from
-	 *  one Board to the next, starting at the first Board.
+	 *  one Board to the next, starting at the first Board. The Boards are only built here. Each
+	 *  Move is a single tile-step, even when the search used whole slides.
 	 * @return the solution in List<Move> form.
 	 */
 	public List<Move> getSolution()
 	{
-		List<Move> solution = new ArrayList<Move>();
-		Board board = rootPosition;
-		while(states.containsKey(board))
+		if(winningState < 0)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<StateCode> path = new ArrayList<StateCode>();
+		List<Integer> movedPieces = new ArrayList<Integer>();
+		for(int id = winningState; states.getParent(id) >= 0; id = states.getParent(id))
 		{
-			Moves moves = states.get(board);
-			if(!moves.hasWinner())
-				throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
-			moves.trimToWinners();
-			Move move = moves.getOptimalWin();
-			solution.add(move);
-			board = move.getNextBoard();
+			path.add(states.getCode(id));
+			movedPieces.add(states.getMove(id) / 4);
 		}
-		return solution;
+		Collections.reverse(path);
+		Collections.reverse(movedPieces);
+		if(symmetries != null)	// the path may hop between mirror images, so the moves are matched up again
+			return SolutionReplay.replay(rootPosition, codec, symmetries, solved, path, MoveMetric.SAME_PIECE);
+		return SolutionReplay.replay(rootPosition, codec, solved, path, movedPieces, MoveMetric.SAME_PIECE);
 	}
 	
+	/**
+	 * 
+	 * @return The number of moves in the solution, counting consecutive shifts of one piece as one.
+	 */
+	public int getSolutionLength()
+	{
+		if(winningState < 0)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return winFoundAt;
+	}
 	
 	/**
-	 * Checks a resolved move against the mapping. Move MUST already be resolved!
-	 * @param move the move to check
-	 * @param numOfMovesOut How many moves out this move is said to be.
-	 * @param solution the WinningPosition to test against.
+	 * 
+	 * @return The number of distinct states seen so far.
 	 */
-	private void checkMove(Move move, int numOfMovesOut, WinningPosition solution)
+	public int getNumberOfStates()
 	{
-		if(move.getOminoIndex() != move.getStartingBoard().getLastPieceIndex())
-			numOfMovesOut++;
-		if(numOfMovesOut > winFoundAt)	// If a win was already found with fewer moves, cut this out.
-			move.setStatus(MoveStatus.BLOCKED);
-		else if(move.getStatus() == MoveStatus.UNKNOWN)	
+		return states.size();
+	}
+	
+	/**
+	 * 
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public int getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 * 
+	 * @return What each pass so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * 
+	 * @return The off-heap table holding the visited states, for its statistics; or null if they
+	 *  are kept on the heap.
+	 */
+	public OffHeapStateTable getOffHeapTable()
+	{
+		return states instanceof OffHeapStateTable ? (OffHeapStateTable)states : null;
+	}
+	
+	/**
+	 * 
+	 * @return The number of symmetries states are folded by, counting the identity; 1 if none are used.
+	 */
+	public int getNumberOfSymmetries()
+	{
+		return symmetries == null ? 1 : symmetries.size();
+	}
+	
+	/**
+	 * Saves the search to a file, so that a later run can carry on from here with resume(). Call it
+	 *  between passes. Everything the next pass needs is written: every visited state with how it
+	 *  was reached and whether it has been expanded, the queue for the next pass, the best win so
+	 *  far, and the statistics of the passes made. The search only waits for the write itself.
+	 * @param file The file to write. It is replaced atomically, so a checkpoint already there
+	 *  survives a failed write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void checkpoint(File file) throws IOException
+	{
+		if(stoppedBy != null)
+			throw new RuntimeException("WARNING! This search was stopped and cannot be carried on!");
+		Checkpoints.Writer out = new Checkpoints.Writer(file);
+		try {
+			StateCode root = encode(rootPosition);
+			out.putInt(CHECKPOINT_MAGIC);
+			out.putInt(codec.getNumWords());
+			out.putInt(rootPosition.getNumPieces());
+			out.putInt(macroMoves ? 1 : 0);
+			out.putInt(getNumberOfSymmetries());
+			for(int i = 0; i < codec.getNumWords(); i++)
+				out.putLong(root.getWord(i));
+			out.putInt(numExpanded);
+			out.putInt(winFoundAt);
+			out.putInt(winningState);
+			out.putInt(layerStats.size());
+			for(LayerStats layer : layerStats)
+			{
+				out.putInt(layer.getLayer());
+				out.putInt(layer.getFrontierSize());
+				out.putInt(layer.getNumExpanded());
+				out.putInt(layer.getNumNewStates());
+				out.putInt(layer.getTotalStates());
+				out.putLong(layer.getMillis());
+			}
+			out.putInt(states.size());
+			for(int id = 0; id < states.size(); id++)
+			{
+				StateCode code = states.getCode(id);
+				for(int i = 0; i < codec.getNumWords(); i++)
+					out.putLong(code.getWord(i));
+				out.putInt(states.getDepth(id));
+				out.putInt(states.getParent(id));
+				out.putInt(states.getMove(id));
+				out.putByte((byte)(states.isExpanded(id) ? 1 : 0));
+			}
+			out.putInt(nextFrontierSize);
+			for(int i = 0; i < nextFrontierSize; i++)
+				out.putInt(nextFrontier[i]);
+			out.commit();
+		} catch (IOException e) {
+			out.abandon();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Carries on from a search saved by checkpoint(), in place of the one this was set up to start.
+	 *  It must be called before the first pass, on a search set up on the same puzzle with the same
+	 *  moves and symmetries as the one saved; only where the states are kept may differ. The passes
+	 *  that follow are the ones the saved search would have made.
+	 * @param file The checkpoint to read.
+	 * @throws IllegalArgumentException If it is a checkpoint of some other puzzle or search.
+	 * @throws IOException If it cannot be read, or is not a whole checkpoint.
+	 */
+	public void resume(File file) throws IOException
+	{
+		if(!layerStats.isEmpty())
+			throw new RuntimeException("WARNING! A search can only be resumed before its first pass!");
+		Checkpoints.Reader in = new Checkpoints.Reader(file);
+		try {
+			if(in.getInt() != CHECKPOINT_MAGIC)
+				throw new IOException("Error: \"" + file.getPath() + "\" is not a checkpoint!");
+			int numWords = codec.getNumWords();
+			boolean matches = in.getInt() == numWords;
+			matches &= in.getInt() == rootPosition.getNumPieces();
+			matches &= (in.getInt() != 0) == macroMoves;
+			matches &= in.getInt() == getNumberOfSymmetries();
+			StateCode root = encode(rootPosition);
+			for(int i = 0; matches && i < numWords; i++)
+				matches = in.getLong() == root.getWord(i);
+			if(!matches)
+				throw new IllegalArgumentException("WARNING! The checkpoint is of some other puzzle or search!");
+			int savedExpanded = in.getInt();
+			int savedWinFoundAt = in.getInt();
+			int savedWinningState = in.getInt();
+			List<LayerStats> savedStats = new ArrayList<LayerStats>();
+			for(int layer = in.getInt(); layer > 0; layer--)
+				savedStats.add(new LayerStats(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getLong()));
+			int numStates = in.getInt();
+			VisitedStates restored = states instanceof OffHeapStateTable ? new OffHeapStateTable(codec, numStates)
+					: new NodeStore(codec, rootPosition.getNumPieces(), numStates);
+			for(int id = 0; id < numStates; id++)
+			{
+				long[] words = new long[numWords];
+				for(int i = 0; i < numWords; i++)
+					words[i] = in.getLong();
+				int depth = in.getInt();
+				int parent = in.getInt();
+				if(restored.add(codec.fromWords(words), depth, parent, in.getInt()) != id)
+					throw new IOException("Error: the checkpoint file is corrupt!");
+				if(in.getByte() != 0)
+					restored.setExpanded(id);
+			}
+			int savedFrontierSize = in.getInt();
+			int[] savedFrontier = new int[Math.max(64, savedFrontierSize)];
+			for(int i = 0; i < savedFrontierSize; i++)
+				savedFrontier[i] = in.getInt();
+			states = restored;
+			numExpanded = savedExpanded;
+			winFoundAt = savedWinFoundAt;
+			winningState = savedWinningState;
+			layerStats = savedStats;
+			nextFrontier = savedFrontier;
+			nextFrontierSize = savedFrontierSize;
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Checks the budget and the token.
+	 * @return The reason to stop, or null to carry on.
+	 */
+	private SolveStatus checkBudget()
+	{
+		long memoryBytes = states.getMemoryBytes() + 4L * (frontier.length + nextFrontier.length);
+		peakMemoryBytes = Math.max(peakMemoryBytes, memoryBytes);
+		if(token != null && token.isCancelled())
+			return SolveStatus.CANCELLED;
+		if(System.currentTimeMillis() >= deadline)
+			return SolveStatus.OUT_OF_TIME;
+		if(budget.getMaxStates() > 0 && states.size() >= budget.getMaxStates())
+			return SolveStatus.OUT_OF_STATES;
+		if(budget.getMaxMemoryBytes() > 0 && memoryBytes >= budget.getMaxMemoryBytes())
+			return SolveStatus.OUT_OF_MEMORY;
+		return null;
+	}
+	
+	/**
+	 * Packs a state, as its canonical image if symmetries are used.
+	 */
+	private StateCode encode(Board board)
+	{
+		return symmetries == null ? codec.encode(board) : symmetries.encode(codec, board);
+	}
+	
+	/**
+	 * Follows a piece into the unpacked form of the state last packed by encode.
+	 */
+	private int canonicalIndex(Board board, int piece)
+	{
+		return symmetries == null ? board.getCanonicalIndex(piece) : symmetries.getCanonicalIndex(board, piece);
+	}
+	
+	/**
+	 * Stores a state that is new, or reached more cheaply than before, and queues it for the next pass.
+	 *  A cheaper route leaves the old frontier entry behind; it is skipped when it comes up, since
+	 *  the depth it was queued with no longer matches.
+	 * @return The id of the state.
+	 */
+	private int record(StateCode code, int known, int depth, int parent, int piece, Direction direction)
+	{
+		int move = piece * 4 + direction.ordinal();
+		int id = known;
+		if(id < 0)
+			id = states.add(code, depth, parent, move);
+		else
+			states.update(id, depth, parent, move);
+		queue(id, depth);
+		return id;
+	}
+	
+	private void queue(int id, int depth)
+	{
+		if(nextFrontierSize == nextFrontier.length)
+		{
+			int[] bigger = new int[nextFrontier.length * 2];
+			System.arraycopy(nextFrontier, 0, bigger, 0, nextFrontierSize);
+			nextFrontier = bigger;
+		}
+		nextFrontier[nextFrontierSize++] = id;
+		nextFrontier[nextFrontierSize++] = depth;
+	}
+	
+	/**
+	 * Generates every move out of a state and records each resulting state that is new, or that is
+	 *  reached in fewer moves than before. The next move only counts when the piece changes.
+	 * The moved piece is recorded as numbered once the new state is unpacked, so that moving it
+	 *  again from there is still recognized as the same piece.
+	 * @param id The id of the state to expand.
+	 */
+	private void expand(int id)
+	{
+		Board board = codec.decode(states.getCode(id));
+		int depth = states.getDepth(id);
+		int lastPiece = states.getMove(id) < 0 ? -1 : states.getMove(id) / 4;
+		states.setExpanded(id);
+		numExpanded++;
+		depthReached = Math.max(depthReached, depth);
+		for(int piece = 0; piece < board.getNumPieces(); piece++)
 		{
-			Board board = move.getNextBoard();
-			Moves theseMoves = new Moves(board, numOfMovesOut);
-			theseMoves.resolveMoves(solution);
-			if(states.containsKey(board) && numOfMovesOut >= states.get(board).getMoveDepth())
+			int numOfMovesOut = depth;
+			if(piece != lastPiece)
+				numOfMovesOut++;
+			if(numOfMovesOut > winFoundAt)	// If a win was already found with fewer moves, cut this out.
+				continue;
+			for(Direction direction : DIRECTIONS)
 			{
-				move.setStatus(MoveStatus.BLOCKED);
-			} else if(!states.containsKey(board)) 
-			{	// Only insert if an equivalent board is not already inserted, since we do a breadth-first search.
-				if(theseMoves.hasUnblocked())
-				{
-					theseMoves.trimBlocked();
-					if(theseMoves.hasWinner())
+				if(!board.shiftOmino(piece, direction))
+					continue;
+				StateCode next = encode(board);
+				int known = states.find(next);
+				if(known < 0 || states.getDepth(known) > numOfMovesOut)
+				{	// Only insert if an equivalent state is not already known, since we do a breadth-first search...
+					int child = record(next, known, numOfMovesOut, id, canonicalIndex(board, piece), direction);	// ...unless this is a cheaper route to it; then it gets generated again.
+					if(numOfMovesOut < winFoundAt && solved.meetsTheseConditions(board))
 					{
-						move.setStatus(MoveStatus.WINNING);
-						if(solution.meetsTheseConditions(theseMoves.getOptimalWin().getNextBoard()))	// if this is
-						{					// actually the solution rather than merely a step along the way.
-							theseMoves.trimToWinners();
-							theseMoves.getOptimalWin().setDepth(numOfMovesOut);
-							Board iterBoard = board;
-							while(iterBoard.getPreviousMove() != null && iterBoard.getPreviousMove().getDepth() > numOfMovesOut)
-							{
-								iterBoard.getPreviousMove().setStatus(MoveStatus.WINNING);
-								iterBoard.getPreviousMove().setDepth(numOfMovesOut);
-								iterBoard = iterBoard.getPreviousMove().getStartingBoard();
-							}
-							winFoundAt = numOfMovesOut;
-						}
-					} else
-						move.setStatus(MoveStatus.GENERATED);	// so we don't redundantly check except to prune.
-					states.put(board, theseMoves);
-				} else move.setStatus(MoveStatus.BLOCKED);
-			} else if(states.containsKey(board))
+						winFoundAt = numOfMovesOut;
+						winningState = child;
+					}
+				}
+				board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+			}
+		}
+	}
+	
+	/**
+	 * Generates every move out of a state as whole slides: for each piece, every position it can
+	 *  reach by sliding on its own is one move. The piece is walked through all of them depth-first,
+	 *  stepping back the way it came, so only a single Board is unpacked.
+	 * The piece moved last is skipped, since anything it could reach now was reachable one move ago.
+	 * @param id The id of the state to expand.
+	 */
+	private void expandSlides(final int id)
+	{
+		Board board = codec.decode(states.getCode(id));
+		final int numOfMovesOut = states.getDepth(id) + 1;
+		int lastPiece = states.getMove(id) < 0 ? -1 : states.getMove(id) / 4;
+		if(walker == null)
+			walker = new SlideWalker(board.getBitBoard());
+		states.setExpanded(id);
+		numExpanded++;
+		depthReached = Math.max(depthReached, numOfMovesOut - 1);
+		if(numOfMovesOut > winFoundAt)	// If a win was already found with fewer moves, cut this out.
+			return;
+		SlideWalker.Visitor visitor = new SlideWalker.Visitor() {
+			public void reached(Board board, int piece, Direction direction, int cell)
 			{
-				if(!states.get(board).hasUnblocked())
-					move.setStatus(MoveStatus.BLOCKED);
-				// begin experimental optimization
-				else if(states.get(board).getMoveDepth() > numOfMovesOut && theseMoves.hasUnblocked())
-				{	// If we have a more optimal solution, use it!
-					theseMoves.trimBlocked();	// convoluted way of getting the move we're replacing
-					Move otherMove = states.get(board).getMove(0).getStartingBoard().getPreviousMove();
-					if(otherMove != null)
-						otherMove.setStatus(MoveStatus.BLOCKED);
-					if(theseMoves.hasWinner())
+				StateCode next = encode(board);
+				int known = states.find(next);
+				if(known < 0 || states.getDepth(known) > numOfMovesOut)
+				{
+					int child = record(next, known, numOfMovesOut, id, canonicalIndex(board, piece), direction);
+					if(numOfMovesOut < winFoundAt && solved.meetsTheseConditions(board))
 					{
-						move.setStatus(MoveStatus.WINNING);
-						if(solution.meetsTheseConditions(theseMoves.getOptimalWin().getNextBoard()))	// if this is
-						{					// actually the solution rather than merely a step along the way.
-							theseMoves.trimToWinners();
-							theseMoves.getOptimalWin().setDepth(numOfMovesOut);
-							Board iterBoard = board;
-							while(iterBoard.getPreviousMove() != null && iterBoard.getPreviousMove().getDepth() > numOfMovesOut)
-							{
-								iterBoard.getPreviousMove().setStatus(MoveStatus.WINNING);
-								iterBoard.getPreviousMove().setDepth(numOfMovesOut);
-								iterBoard = iterBoard.getPreviousMove().getStartingBoard();
-							}
-							winFoundAt = numOfMovesOut;
-						}
-					} else
-						move.setStatus(MoveStatus.GENERATED);	// so we don't redundantly check except to prune.
-					states.put(board, theseMoves);
-				}	// end experimental optimization
-				else move.setStatus(MoveStatus.BLOCKED);
+						winFoundAt = numOfMovesOut;
+						winningState = child;
+					}
+				}
 			}
+		};
+		for(int piece = 0; piece < board.getNumPieces(); piece++)
+		{
+			if(piece != lastPiece)
+				walker.walk(board, piece, visitor);
 		}
 	}
-}
\ No newline at end of file
+}
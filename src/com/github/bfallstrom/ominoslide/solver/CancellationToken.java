@@ -0,0 +1,28 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * Lets another thread stop a search. The search polls the token as it goes, and stops cleanly at
+ *  the next check after it is cancelled, within a few dozen expansions.
+ * @author bfallstrom
+ *
+ */
+public final class CancellationToken {
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * Asks every search polling this token to stop. May be called from any thread, any number of times.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+	
+	/**
+	 *
+	 * @return true once cancel() has been called.
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+}
@@ -0,0 +1,148 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary checkpoint files, read and written through a FileChannel with a direct buffer, as in
+ *  StateFiles. A checkpoint is written to a temporary file beside its target, forced to the disk,
+ *  and only then renamed over the target in one atomic move; so the target always holds either the
+ *  previous checkpoint or the new one in full, however the JVM dies. Used by Boards.
+ * @author bfallstrom
+ *
+ */
+final class Checkpoints {
+	private static final int BUFFER_BYTES = 1 << 20;
+	
+	private Checkpoints() {
+	}
+	
+	/**
+	 * Writes a new checkpoint, which replaces the target only once it is committed.
+	 */
+	static final class Writer {
+		private final Path target;
+		private final Path temp;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	
+		Writer(File file) throws IOException
+		{
+			this.target = file.toPath();
+			this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+			this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+	
+		void putByte(byte value) throws IOException
+		{
+			ensure(1);
+			buffer.put(value);
+		}
+	
+		void putInt(int value) throws IOException
+		{
+			ensure(4);
+			buffer.putInt(value);
+		}
+	
+		void putLong(long value) throws IOException
+		{
+			ensure(8);
+			buffer.putLong(value);
+		}
+	
+		/**
+		 * Forces everything written to the disk and moves it over the target.
+		 */
+		void commit() throws IOException
+		{
+			flush();
+			channel.force(true);
+			channel.close();
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+	
+		/**
+		 * Gives up on the checkpoint, leaving the target as it was.
+		 */
+		void abandon()
+		{
+			try {
+				channel.close();
+				Files.deleteIfExists(temp);
+			} catch (IOException e) {
+				// the temporary file is overwritten by the next checkpoint anyway
+			}
+		}
+	
+		private void ensure(int bytes) throws IOException
+		{
+			if(buffer.remaining() < bytes)
+				flush();
+		}
+	
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+	
+	/**
+	 * Reads a checkpoint back in the order it was written.
+	 */
+	static final class Reader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	
+		Reader(File file) throws IOException
+		{
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			buffer.flip();	// starts empty
+		}
+	
+		byte getByte() throws IOException
+		{
+			ensure(1);
+			return buffer.get();
+		}
+	
+		int getInt() throws IOException
+		{
+			ensure(4);
+			return buffer.getInt();
+		}
+	
+		long getLong() throws IOException
+		{
+			ensure(8);
+			return buffer.getLong();
+		}
+	
+		void close() throws IOException
+		{
+			channel.close();
+		}
+	
+		private void ensure(int bytes) throws IOException
+		{
+			if(buffer.remaining() >= bytes)
+				return;
+			buffer.compact();
+			while(buffer.position() < bytes && channel.read(buffer) >= 0);
+			buffer.flip();
+			if(buffer.remaining() < bytes)
+				throw new EOFException("Error: the checkpoint file is cut short!");
+		}
+	}
+}
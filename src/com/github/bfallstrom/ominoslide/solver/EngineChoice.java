@@ -0,0 +1,278 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * Which SolverEngine to run on a puzzle, and how to lay out its memory: made by hand with one of
+ *  the factory methods, or picked by auto() from a PuzzleProfile. Every engine it sets up counts
+ *  moves by SAME_PIECE and finds a shortest solution by that count; a Boards search is always set
+ *  up by whole slides, since one by tile-steps stops at the first pass that reaches the goal,
+ *  which may be a solution of more moves.
+ * auto() keeps to a breadth-first search by whole slides, the fastest engine per state, while its
+ *  states are expected to fit in half the heap, and in a NodeStore; on more than one processor, a
+ *  big search is then split over all of them. If they would only fit outside the heap, it keeps
+ *  them off the heap, as long as an OffHeapStateTable can index them all. Beyond that it searches
+ *  layer by layer on disk, if it is given a directory; otherwise only a memory-bounded search is
+ *  safe, so it falls back on IDA* with a table of a quarter of the heap. The sizes per state are
+ *  those measured for each layout.
+ * @author bfallstrom
+ *
+ */
+public final class EngineChoice {
+	private static final long		PARALLEL_MIN_STATES = 1L << 20;	// below this, threads cost more than they save
+	private static final long		MIN_TABLE_BYTES = 1L << 20;
+	private static final long		HEAP_BYTES = 42;				// per state in a NodeStore, with room to grow and the frontier, plus 16 per word
+	private static final long		PARALLEL_BYTES = 120;			// per state in ParallelBfs's map, plus 8 per word
+	private static final long		OFF_HEAP_BYTES = 40;			// per state in an OffHeapStateTable, plus 8 per word
+	private static final long		OFF_HEAP_QUEUE_BYTES = 8;		// per state still on the heap, in the frontier
+	
+	private final EngineType	type;
+	private final boolean		macroMoves;
+	private final boolean		offHeap;
+	private final boolean		useSymmetries;
+	private final int			numThreads;
+	private final File			directory;
+	private final long			tableBytes;
+	private final int			width;
+	private final String		reason;		// why auto() made this choice, or null
+	
+	private EngineChoice(EngineType type, boolean macroMoves, boolean offHeap, boolean useSymmetries, int numThreads,
+			File directory, long tableBytes, int width, String reason)
+	{
+		this.type = type;
+		this.macroMoves = macroMoves;
+		this.offHeap = offHeap;
+		this.useSymmetries = useSymmetries;
+		this.numThreads = numThreads;
+		this.directory = directory;
+		this.tableBytes = tableBytes;
+		this.width = width;
+		this.reason = reason;
+	}
+	
+	/**
+	 * Chooses a Boards search by whole slides.
+	 * @param offHeap As for Boards.
+	 * @param useSymmetries As for Boards.
+	 */
+	public static EngineChoice bfs(boolean offHeap, boolean useSymmetries)
+	{
+		return new EngineChoice(EngineType.BFS, true, offHeap, useSymmetries, 0, null, 0, 0, null);
+	}
+	
+	/**
+	 * Chooses a ParallelBfs search.
+	 * @param numThreads The number of threads to expand each layer with.
+	 */
+	public static EngineChoice parallel(int numThreads)
+	{
+		if(numThreads < 1)
+			throw new IllegalArgumentException("WARNING! A parallel search needs at least one thread!");
+		return new EngineChoice(EngineType.PARALLEL, true, false, false, numThreads, null, 0, 0, null);
+	}
+	
+	/**
+	 * Chooses an ExternalBfs search, with the default buffer.
+	 * @param directory Where to keep the layer files.
+	 */
+	public static EngineChoice disk(File directory)
+	{
+		return new EngineChoice(EngineType.DISK, true, false, false, 0, directory, 0, 0, null);
+	}
+	
+	/**
+	 * Chooses a ZeroOneBfs search.
+	 */
+	public static EngineChoice zeroOne()
+	{
+		return new EngineChoice(EngineType.ZERO_ONE, false, false, false, 0, null, 0, 0, null);
+	}
+	
+	/**
+	 * Chooses an AStarSolver search, with the estimate.
+	 */
+	public static EngineChoice aStar()
+	{
+		return new EngineChoice(EngineType.A_STAR, false, false, false, 0, null, 0, 0, null);
+	}
+	
+	/**
+	 * Chooses an IdaStarSolver search, replacing table entries by depth.
+	 * @param tableBytes The memory to give its transposition table.
+	 */
+	public static EngineChoice idaStar(long tableBytes)
+	{
+		return new EngineChoice(EngineType.IDA_STAR, false, false, false, 0, null, tableBytes, 0, null);
+	}
+	
+	/**
+	 * Chooses an AnytimeSolver search.
+	 * @param width The width of its first beam.
+	 */
+	public static EngineChoice anytime(int width)
+	{
+		return new EngineChoice(EngineType.ANYTIME, true, false, false, 0, null, 0, width, null);
+	}
+	
+	/**
+	 * Picks the engine expected to be fastest on a puzzle without running out of memory, never
+	 *  keeping the states on disk.
+	 * @param profile The profile of the puzzle.
+	 * @param maxBytes The memory the search may use: the most the heap can grow to, which is also
+	 *  the default limit on memory outside the heap.
+	 * @param numProcessors The number of processors the search may use.
+	 * @return The choice, with the reason for it.
+	 */
+	public static EngineChoice auto(PuzzleProfile profile, long maxBytes, int numProcessors)
+	{
+		return auto(profile, maxBytes, numProcessors, null);
+	}
+	
+	/**
+	 * Picks the engine expected to be fastest on a puzzle without running out of memory.
+	 * @param profile The profile of the puzzle.
+	 * @param maxBytes As for the three-argument auto().
+	 * @param numProcessors The number of processors the search may use.
+	 * @param directory Where to keep the layer files of a search on disk, if the states are too
+	 *  many for memory; or null to search in a fixed amount of memory instead.
+	 * @return The choice, with the reason for it.
+	 */
+	public static EngineChoice auto(PuzzleProfile profile, long maxBytes, int numProcessors, File directory)
+	{
+		long states = profile.getEstimatedStates();
+		int words = profile.getNumWords();
+		long heapBytes = bytesFor(states, HEAP_BYTES + 16 * words);
+		long parallelBytes = bytesFor(states, PARALLEL_BYTES + 8 * words);
+		long offHeapBytes = bytesFor(states, OFF_HEAP_BYTES + 8 * words);
+		String estimate = states == Long.MAX_VALUE ? "too many states to count" : "about " + states + " states";
+		if(heapBytes <= maxBytes / 2 && states <= NodeStore.maxStates(words))
+		{
+			if(numProcessors > 1 && states >= PARALLEL_MIN_STATES && parallelBytes <= maxBytes / 2)
+				return new EngineChoice(EngineType.PARALLEL, true, false, false, numProcessors, null, 0, 0,
+						estimate + ", " + (parallelBytes >> 20) + " MB, split over " + numProcessors + " processors");
+			return new EngineChoice(EngineType.BFS, true, false, false, 0, null, 0, 0,
+					estimate + ", " + (heapBytes >> 20) + " MB on the heap");
+		}
+		if(offHeapBytes <= maxBytes && bytesFor(states, OFF_HEAP_QUEUE_BYTES) <= maxBytes / 2
+				&& states <= OffHeapStateTable.MAX_STATES)
+			return new EngineChoice(EngineType.BFS, true, true, false, 0, null, 0, 0,
+					estimate + ", " + (offHeapBytes >> 20) + " MB off the heap");
+		if(directory != null)
+			return new EngineChoice(EngineType.DISK, true, false, false, 0, directory, 0, 0,
+					estimate + ", too many to keep in memory; layers in " + directory.getPath());
+		long table = Math.max(MIN_TABLE_BYTES, maxBytes / 4);
+		return new EngineChoice(EngineType.IDA_STAR, false, false, false, 0, null, table, 0,
+				estimate + ", too many to keep; a " + (table >> 20) + " MB table");
+	}
+	
+	/**
+	 * Sets up the chosen engine on a puzzle.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @return The engine, ready to iterate.
+	 * @throws IOException If a search on disk cannot write its first layer.
+	 */
+	public SolverEngine create(Board startingPosition, WinningPosition winningPosition) throws IOException
+	{
+		switch (type) {
+		case PARALLEL:
+			return new ParallelBfs(startingPosition, winningPosition, MoveMetric.SAME_PIECE, numThreads);
+		case DISK:
+			return new ExternalBfs(startingPosition, winningPosition, MoveMetric.SAME_PIECE, directory,
+					ExternalBfs.DEFAULT_BUFFER_STATES);
+		case ZERO_ONE:
+			return new ZeroOneBfs(startingPosition, winningPosition);
+		case A_STAR:
+			return new AStarSolver(startingPosition, winningPosition, MoveMetric.SAME_PIECE);
+		case IDA_STAR:
+			return new IdaStarSolver(startingPosition, winningPosition, MoveMetric.SAME_PIECE, tableBytes, TableReplacement.DEEPER);
+		case ANYTIME:
+			return new AnytimeSolver(startingPosition, winningPosition, MoveMetric.SAME_PIECE, width);
+		case BFS:
+		default:
+			return new Boards(startingPosition, winningPosition, macroMoves, offHeap, useSymmetries);
+		}
+	}
+	
+	/**
+	 * Sets up the chosen engine for a caller that will run it under a SearchBudget or with a
+	 *  CancellationToken. Only Boards checks them as it goes; any other engine would run past them,
+	 *  so only a BFS choice can be set up this way.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @return The search, ready for Boards.solve(SearchBudget, CancellationToken).
+	 * @throws IllegalStateException If the choice is not a BFS.
+	 */
+	public Boards createBudgeted(Board startingPosition, WinningPosition winningPosition)
+	{
+		if(!isBudgeted())
+			throw new IllegalStateException("Error: only a BFS can be run under a budget, not " + type + "!");
+		return new Boards(startingPosition, winningPosition, macroMoves, offHeap, useSymmetries);
+	}
+	
+	/**
+	 *
+	 * @return The strategy chosen.
+	 */
+	public EngineType getType()
+	{
+		return type;
+	}
+	
+	/**
+	 *
+	 * @return Whether the states are kept outside the heap.
+	 */
+	public boolean isOffHeap()
+	{
+		return offHeap;
+	}
+	
+	/**
+	 *
+	 * @return Whether the chosen engine can be run under a SearchBudget, by createBudgeted().
+	 */
+	public boolean isBudgeted()
+	{
+		return type == EngineType.BFS;
+	}
+	
+	/**
+	 *
+	 * @return The memory given to a transposition table, or 0 if there is none.
+	 */
+	public long getTableBytes()
+	{
+		return tableBytes;
+	}
+	
+	/**
+	 *
+	 * @return The number of threads of a parallel search, or 0.
+	 */
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+	
+	/**
+	 *
+	 * @return Why auto() made this choice, or null if it was made by hand.
+	 */
+	public String getReason()
+	{
+		return reason;
+	}
+	
+	/**
+	 * The memory needed for some number of states, or Long.MAX_VALUE if more than a long can count.
+	 */
+	private static long bytesFor(long states, long bytesPerState)
+	{
+		return states > Long.MAX_VALUE / bytesPerState ? Long.MAX_VALUE : states * bytesPerState;
+	}
+}
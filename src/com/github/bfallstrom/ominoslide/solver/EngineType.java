@@ -0,0 +1,16 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * The strategies an EngineChoice can set up.
+ * @author bfallstrom
+ *
+ */
+public enum EngineType {
+	BFS,		// Boards: breadth-first on one thread, its states on the heap or off it.
+	PARALLEL,	// ParallelBfs: breadth-first by whole slides, each layer on several threads.
+	DISK,		// ExternalBfs: breadth-first by whole slides, its layers in sorted files.
+	ZERO_ONE,	// ZeroOneBfs: breadth-first with the steps of the piece moved last free.
+	A_STAR,		// AStarSolver: best-first by the GoalEstimate, every state kept.
+	IDA_STAR,	// IdaStarSolver: iterative deepening by the GoalEstimate, in a fixed-size table.
+	ANYTIME		// AnytimeSolver: weighted A* passes down to a weight of one, each solution better than the last.
+}
@@ -0,0 +1,441 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * A breadth-first search that keeps its states on disk rather than in memory, for puzzles with more
+ *  states than fit in the heap. Each layer is a file of packed state codes in sorted order.
+ * A layer is built by streaming the one before it, generating every move out of each state into a
+ *  buffer, and writing the buffer out as a sorted run each time it fills. The runs are then merged,
+ *  dropping duplicates and every state found in the two layers before; since every move can be
+ *  undone, those are the only layers a move out of the current one can lead back to. Only the
+ *  buffer and one block of each open file are held in memory.
+ * No parent links are stored. Once a winning state is found, the path back to the start is rebuilt
+ *  by streaming each layer again, from the last to the first, for a state with a move to the one
+ *  found so far.
+ * Moves are generated as in ParallelBfs: one tile-step under TILE_STEP, one whole slide under
+ *  SAME_PIECE.
+ * @author bfallstrom
+ *
+ */
+public class ExternalBfs implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	public static final int DEFAULT_BUFFER_STATES = 1 << 22;
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final File				directory;
+	private final int				numWords;
+	private final long[]			buffer;			// generated codes waiting to be sorted into a run
+	private final int				bufferStates;
+	private int						numBuffered = 0;
+	private final SlideWalker		walker;
+	
+	private final List<File>		runs = new ArrayList<File>();
+	private final List<Long>		layerSizes = new ArrayList<Long>();
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private long[]					winner = null;	// the code of the winning state, once found
+	private long[]					bestCandidate = null;	// the lowest winning code generated in this layer
+	private long					numExpanded = 0;
+	
+	/**
+	 * Sets up a search, writing the first layer.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param metric How to count moves, and so how moves are generated.
+	 * @param directory Where to keep the layer files. Created if need be.
+	 * @param bufferStates How many generated states to hold in memory before sorting them out to disk.
+	 *  Their codes must fit in one long[].
+	 * @throws IOException If the first layer cannot be written.
+	 */
+	public ExternalBfs(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, File directory,
+			int bufferStates) throws IOException
+	{
+		this.codec = new StateCodec(startingPosition);
+		this.numWords = codec.getNumWords();
+		if(bufferStates < 1)
+			throw new IllegalArgumentException("Error: the buffer must hold at least one state!");
+		if((long)bufferStates * numWords > Integer.MAX_VALUE - 8)	// in long, since the product can pass what an int holds
+			throw new IllegalArgumentException("Error: a buffer of " + bufferStates + " states of " + numWords
+					+ " words is more than one array can hold!");
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Error: cannot create directory " + directory.getPath());
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.directory = directory;
+		this.bufferStates = bufferStates;
+		this.buffer = new long[bufferStates * numWords];
+		this.walker = new SlideWalker(startingPosition.getBitBoard());
+	
+		long[] start = wordsOf(codec.encode(startingPosition));
+		StateFiles.Writer writer = new StateFiles.Writer(layerFile(0));
+		writer.write(start, 0, numWords);
+		writer.close();
+		layerSizes.add(1L);
+		if(solved.meetsTheseConditions(startingPosition))
+			winner = start;
+	}
+	
+	/**
+	 * Builds the next layer from the last one.
+	 * @return true if a complete solution was found
+	 * @throws IOException If the layer files cannot be read or written.
+	 */
+	public boolean iterate() throws IOException
+	{
+		if(winner != null)
+			return true;
+		long time = System.currentTimeMillis();
+		int depth = layerSizes.size() - 1;
+		bestCandidate = null;
+		StateFiles.Reader reader = new StateFiles.Reader(layerFile(depth), numWords);
+		try {
+			while(!reader.atEnd())
+			{
+				Board board = codec.decode(codec.fromWords(reader.current().clone()));
+				expand(board, new Successors() {
+					public boolean reached(Board board, int piece)
+					{
+						add(board);
+						return true;
+					}
+				});
+				numExpanded++;
+				reader.next();
+			}
+		} catch(RuntimeIOException e) {
+			throw (IOException)e.getCause();
+		} finally {
+			reader.close();
+		}
+		spillRun();
+		long size = mergeRuns(depth);
+		layerSizes.add(size);
+		layerStats.add(new LayerStats(depth + 1, (int)Math.min(Integer.MAX_VALUE, layerSizes.get(depth)),
+				(int)Math.min(Integer.MAX_VALUE, layerSizes.get(depth)), (int)Math.min(Integer.MAX_VALUE, size),
+				(int)Math.min(Integer.MAX_VALUE, getNumberOfStates()), System.currentTimeMillis() - time));
+		winner = bestCandidate;	// any winning state generated here is new, or the search would have stopped sooner
+		if(winner == null && size == 0)
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		return winner != null;
+	}
+	
+	/**
+	 * Builds layers until a solution is found.
+	 * @return true once a shortest solution has been found.
+	 * @throws IOException If the layer files cannot be read or written.
+	 */
+	public boolean solve() throws IOException
+	{
+		while(!iterate());
+		return true;
+	}
+	
+	/**
+	 * Rebuilds the solution from the layer files and returns it as a List of Move objects, one per
+	 *  tile-step.
+	 * @return the solution in List<Move> form.
+	 * @throws IOException If the layer files cannot be read.
+	 */
+	public List<Move> getSolution() throws IOException
+	{
+		if(winner == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<StateCode> path = new ArrayList<StateCode>();
+		List<Integer> movedPieces = new ArrayList<Integer>();
+		final long[] target = winner.clone();
+		final int[] movedPiece = new int[1];
+		for(int depth = getSolutionLength() - 1; depth >= 0; depth--)
+		{
+			path.add(codec.fromWords(target.clone()));
+			movedPiece[0] = -1;
+			StateFiles.Reader reader = new StateFiles.Reader(layerFile(depth), numWords);
+			try {
+				while(!reader.atEnd() && movedPiece[0] < 0)
+				{
+					long[] parent = reader.current().clone();
+					Board board = codec.decode(codec.fromWords(parent));
+					expand(board, new Successors() {
+						public boolean reached(Board board, int piece)
+						{
+							if(movedPiece[0] >= 0 || StateFiles.compare(wordsOf(codec.encode(board)), 0, target, 0, numWords) != 0)
+								return true;
+							movedPiece[0] = board.getCanonicalIndex(piece);
+							return false;
+						}
+					});
+					if(movedPiece[0] >= 0)
+						System.arraycopy(parent, 0, target, 0, numWords);
+					else
+						reader.next();
+				}
+			} finally {
+				reader.close();
+			}
+			if(movedPiece[0] < 0)
+				throw new RuntimeException("WARNING! The solution path does not connect!");
+			movedPieces.add(movedPiece[0]);
+		}
+		Collections.reverse(path);
+		Collections.reverse(movedPieces);
+		return SolutionReplay.replay(rootPosition, codec, solved, path, movedPieces, metric);
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, counted by the metric of this search.
+	 */
+	public int getSolutionLength()
+	{
+		if(winner == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return layerSizes.size() - 1;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states written to the layer files so far.
+	 */
+	public long getNumberOfStates()
+	{
+		long total = 0;
+		for(long size : layerSizes)
+			total += size;
+		return total;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public long getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return What each layer so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Deletes the layer files. The solution cannot be rebuilt afterwards.
+	 */
+	public void deleteFiles()
+	{
+		for(int depth = 0; depth < layerSizes.size(); depth++)
+			layerFile(depth).delete();
+		for(File run : runs)
+			run.delete();
+		runs.clear();
+	}
+	
+	/**
+	 * Told about each state one move away from the state being expanded.
+	 */
+	private interface Successors {
+		/**
+		 * @param board The board, holding the new state; it must be left as it was.
+		 * @param piece The index of the piece moved.
+		 * @return false to stop generating tile-steps; whole slides are generated regardless.
+		 */
+		boolean reached(Board board, int piece);
+	}
+	
+	/**
+	 * Generates every move out of a state. The piece moved last is not known here, so all of them
+	 *  are tried; the duplicates this makes are merged away with the rest.
+	 */
+	private void expand(Board board, final Successors successors)
+	{
+		if(metric == MoveMetric.TILE_STEP)
+		{
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				for(Direction direction : DIRECTIONS)
+				{
+					if(!board.shiftOmino(piece, direction))
+						continue;
+					boolean goOn = successors.reached(board, piece);
+					board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+					if(!goOn)
+						return;
+				}
+			}
+		} else
+		{
+			SlideWalker.Visitor visitor = new SlideWalker.Visitor() {
+				public void reached(Board board, int piece, Direction direction, int cell)
+				{
+					successors.reached(board, piece);
+				}
+			};
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+				walker.walk(board, piece, visitor);
+		}
+	}
+	
+	/**
+	 * Buffers a generated state, spilling the buffer to a run once it is full, and remembers it if
+	 *  it is a winning one.
+	 */
+	private void add(Board board)
+	{
+		StateCode code = codec.encode(board);
+		int offset = numBuffered * numWords;
+		for(int i = 0; i < numWords; i++)
+			buffer[offset + i] = code.getWord(i);
+		if(solved.meetsTheseConditions(board)
+				&& (bestCandidate == null || StateFiles.compare(buffer, offset, bestCandidate, 0, numWords) < 0))
+			bestCandidate = Arrays.copyOfRange(buffer, offset, offset + numWords);
+		if(++numBuffered == bufferStates)
+		{
+			try {
+				spillRun();
+			} catch(IOException e) {
+				throw new RuntimeIOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Sorts the buffer and writes it out as a run, without duplicates.
+	 */
+	private void spillRun() throws IOException
+	{
+		if(numBuffered == 0)
+			return;
+		File run = new File(directory, "run-" + runs.size() + ".bin");
+		runs.add(run);
+		StateFiles.Writer writer = new StateFiles.Writer(run);
+		try {
+			if(numWords == 1)
+			{
+				Arrays.sort(buffer, 0, numBuffered);
+				for(int i = 0; i < numBuffered; i++)
+				{
+					if(i == 0 || buffer[i] != buffer[i-1])
+						writer.write(buffer, i, 1);
+				}
+			} else
+			{
+				Integer[] order = new Integer[numBuffered];
+				for(int i = 0; i < numBuffered; i++)
+					order[i] = i;
+				Arrays.sort(order, new Comparator<Integer>() {
+					public int compare(Integer a, Integer b)
+					{
+						return StateFiles.compare(buffer, a * numWords, buffer, b * numWords, numWords);
+					}
+				});
+				for(int i = 0; i < numBuffered; i++)
+				{
+					if(i == 0 || StateFiles.compare(buffer, order[i] * numWords, buffer, order[i-1] * numWords, numWords) != 0)
+						writer.write(buffer, order[i] * numWords, numWords);
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		numBuffered = 0;
+	}
+	
+	/**
+	 * Merges the runs into the next layer file, dropping duplicates and the states of the current
+	 *  layer and the one before it, then deletes the runs.
+	 * @param depth The current layer.
+	 * @return The number of states in the new layer.
+	 */
+	private long mergeRuns(int depth) throws IOException
+	{
+		List<StateFiles.Reader> inputs = new ArrayList<StateFiles.Reader>();
+		List<StateFiles.Reader> previous = new ArrayList<StateFiles.Reader>();
+		StateFiles.Writer writer = new StateFiles.Writer(layerFile(depth + 1));
+		long[] last = null;
+		try {
+			for(File run : runs)
+				inputs.add(new StateFiles.Reader(run, numWords));
+			for(int d = Math.max(0, depth - 1); d <= depth; d++)
+				previous.add(new StateFiles.Reader(layerFile(d), numWords));
+			while(true)
+			{
+				StateFiles.Reader lowest = null;
+				for(StateFiles.Reader input : inputs)
+				{
+					if(!input.atEnd() && (lowest == null || StateFiles.compare(input.current(), 0, lowest.current(), 0, numWords) < 0))
+						lowest = input;
+				}
+				if(lowest == null)
+					break;
+				long[] code = lowest.current().clone();
+				lowest.next();
+				if(last != null && StateFiles.compare(code, 0, last, 0, numWords) == 0)
+					continue;
+				last = code;
+				boolean seen = false;
+				for(StateFiles.Reader layer : previous)
+				{
+					while(!layer.atEnd() && StateFiles.compare(layer.current(), 0, code, 0, numWords) < 0)
+						layer.next();
+					seen |= !layer.atEnd() && StateFiles.compare(layer.current(), 0, code, 0, numWords) == 0;
+				}
+				if(!seen)
+					writer.write(code, 0, numWords);
+			}
+		} finally {
+			writer.close();
+			for(StateFiles.Reader reader : inputs)
+				reader.close();
+			for(StateFiles.Reader reader : previous)
+				reader.close();
+			for(File run : runs)
+				run.delete();
+			runs.clear();
+		}
+		return writer.getNumCodes();
+	}
+	
+	private File layerFile(int depth)
+	{
+		return new File(directory, "layer-" + depth + ".bin");
+	}
+	
+	private long[] wordsOf(StateCode code)
+	{
+		long[] words = new long[numWords];
+		for(int i = 0; i < numWords; i++)
+			words[i] = code.getWord(i);
+		return words;
+	}
+	
+	/**
+	 * Carries an IOException out of a move generator, which cannot throw one itself.
+	 */
+	private static final class RuntimeIOException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	
+		RuntimeIOException(IOException cause)
+		{
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.bfallstrom.ominoslide.areastructure.BitBoard;
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * An estimate of the moves still needed to reach a WinningPosition, which never overstates them:
+ *  - every piece of the WinningPosition is given its distance to its goal on the empty layout,
+ *    measured once up front;
+ *  - every other piece covering a goal cell of one of those pieces is a blocker that must move
+ *    at least once.
+ * Under TILE_STEP the estimate is the sum of the distances plus the number of blockers. Under
+ *  SAME_PIECE it is the number of goal pieces not yet in place plus the number of blockers, not
+ *  counting the piece moved last, since it can carry on for free. Both estimates change by at
+ *  most the cost of a move.
+ * It keeps scratch space, so an instance must not be used by two threads at once.
+ * @author bfallstrom
+ *
+ */
+final class GoalEstimate {
+	static final int UNREACHABLE = Integer.MAX_VALUE;	// estimate for a state that cannot be solved
+	
+	private final MoveMetric		metric;
+	private final int[]				targets;		// [goal piece] index of the piece on the board
+	private final boolean[]			isTarget;		// [piece]
+	private final int[][]			goalDistances;	// [goal piece][cell] shifts from that cell to its goal
+	private final Tile[]			goalCells;		// every cell covered by a goal piece in the WinningPosition
+	private final int[]				blockerMarks;	// [piece] scratch space for counting blockers
+	private int						blockerStamp = 0;
+	
+	/**
+	 * Measures the goal distances.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @param metric How to count moves.
+	 */
+	GoalEstimate(Board startingPosition, WinningPosition winningPosition, MoveMetric metric)
+	{
+		this.metric = metric;
+		BitBoard bits = startingPosition.getBitBoard();
+		int numPieces = startingPosition.getNumPieces();
+		this.targets = new int[winningPosition.getNumPieces()];
+		this.isTarget = new boolean[numPieces];
+		this.goalDistances = new int[targets.length][];
+		this.blockerMarks = new int[numPieces];
+		List<Tile> cells = new ArrayList<Tile>();
+		for(int t = 0; t < targets.length; t++)
+		{
+			Omino omino = winningPosition.getOmino(t);
+			Tile goalTile = winningPosition.getOminoPosition(t);
+			targets[t] = -1;
+			for(int i = 0; i < numPieces; i++)
+			{
+				if(startingPosition.getOmino(i) == omino)
+					targets[t] = i;
+			}
+			if(targets[t] < 0)
+				throw new IllegalArgumentException("Error: a piece of the winning position is not on the starting board!");
+			isTarget[targets[t]] = true;
+			goalDistances[t] = bits.slideDistances(targets[t], bits.cellIndex(goalTile));
+			for(int i = 0; i < omino.getNumTiles(); i++)
+			{
+				int tile = omino.getPackedTile(i);
+				cells.add(new Tile(goalTile.getX() + Omino.packedX(tile), goalTile.getY() + Omino.packedY(tile)));
+			}
+		}
+		this.goalCells = cells.toArray(new Tile[cells.size()]);
+	}
+	
+	/**
+	 * Estimates the moves still needed from a state, never overstating them.
+	 * @param board The state.
+	 * @param lastPiece The index on that board of the piece moved last, or -1.
+	 * @return The estimate, or UNREACHABLE if a goal piece can never get to its goal.
+	 */
+	int estimate(Board board, int lastPiece)
+	{
+		BitBoard bits = board.getBitBoard();
+		int h = 0;
+		for(int t = 0; t < targets.length; t++)
+		{
+			int distance = goalDistances[t][bits.cellIndex(board.getOminoPosition(targets[t]))];
+			if(distance < 0)
+				return UNREACHABLE;
+			if(metric == MoveMetric.TILE_STEP)
+				h += distance;
+			else if(distance > 0 && targets[t] != lastPiece)
+				h++;
+		}
+		blockerStamp++;
+		for(Tile cell : goalCells)
+		{
+			int piece = board.getOminoIndexAt(cell);
+			if(piece >= 0 && !isTarget[piece] && piece != lastPiece && blockerMarks[piece] != blockerStamp)
+			{
+				blockerMarks[piece] = blockerStamp;
+				h++;
+			}
+		}
+		return h;
+	}
+}
@@ -0,0 +1,359 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * An iterative-deepening A* search for the shortest solution, under either MoveMetric, in a fixed
+ *  amount of memory. Each pass is a depth-first search on a single Board, shifting a piece on the
+ *  way down and back on the way up, that gives up on any state whose moves so far plus its
+ *  GoalEstimate exceed a bound. The first pass's bound is the estimate of the starting position,
+ *  and each later pass's is the lowest total that went over it. The first solution found is then
+ *  a shortest one.
+ * Repeated states are cut by a transposition table of a fixed number of slots, each holding a
+ *  state, the piece moved last, and the fewest moves it was reached in during the pass; a state
+ *  reached again in this pass with no fewer moves is not searched again. Where two states want the
+ *  same slot a TableReplacement decides which stays. States on the current path are also never
+ *  revisited, so the search cannot cycle when an entry is lost.
+ * At each state the moves are tried in order of a history score, raised for moves that led closest
+ *  to the goal in earlier passes; under SAME_PIECE the piece moved last, being free, goes first.
+ * Memory use is the table plus the current path, whatever the size of the puzzle.
+ * @author bfallstrom
+ *
+ */
+public class IdaStarSolver implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int FOUND = -1;
+	private static final int MAX_STORED = 0xFFFF;	// g and the search left are kept in 16 bits each
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final GoalEstimate		estimate;
+	private final Board				board;			// the one board every pass shifts pieces on
+	private final TableReplacement	replacement;
+	
+	private final int				numWords;
+	private final long[]			tableCodes;		// [slot * numWords + word]
+	private final long[]			tableMeta;		// [slot] pass << 48 | search left << 32 | g << 16 | last piece + 1; 0 if empty
+	private final int				tableMask;
+	private final int[]				history;		// [piece * 4 + direction ordinal]
+	private final Set<StateCode>	onPath = new HashSet<StateCode>();
+	private int[]					pathMoves = new int[64];	// piece * 4 + direction ordinal of each move on the path
+	private int[][]					moveOrders = new int[64][];	// the ordered moves at each depth of the path
+	private final int[]				moveScores;		// scratch for ordering the moves
+	private int						pathLength = 0;
+	private int[]					solution = null;
+	
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private int						bound;
+	private int						pass = 0;
+	private long					numExpanded = 0;
+	private long					numStored = 0;
+	private long					numTableCuts = 0;
+	private int						tableUsed = 0;
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek. Its pieces must be the same objects as on the board.
+	 * @param metric How to count moves.
+	 * @param tableBytes The memory to give the transposition table; the number of slots is the
+	 *  largest power of two that fits.
+	 * @param replacement Which entry keeps a slot when two want it.
+	 */
+	public IdaStarSolver(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, long tableBytes,
+			TableReplacement replacement)
+	{
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.replacement = replacement;
+		this.codec = new StateCodec(startingPosition);
+		this.estimate = new GoalEstimate(startingPosition, winningPosition, metric);
+		this.board = new Board(startingPosition);
+		this.numWords = codec.getNumWords();
+		long slots = Math.max(1, Math.min(1 << 30, tableBytes / (8L * (numWords + 1))));
+		int numSlots = Integer.highestOneBit((int)slots);
+		if((long)numSlots * numWords > Integer.MAX_VALUE - 8)
+			numSlots >>= 1;
+		this.tableCodes = new long[numSlots * numWords];
+		this.tableMeta = new long[numSlots];
+		this.tableMask = numSlots - 1;
+		this.history = new int[startingPosition.getNumPieces() * DIRECTIONS.length];
+		this.moveScores = new int[history.length];
+		this.bound = estimate.estimate(board, -1);
+		if(bound == GoalEstimate.UNREACHABLE)
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+	}
+	
+	/**
+	 * Makes one pass with the current bound, and raises the bound if no solution was found.
+	 * @return true if a complete solution was found
+	 */
+	public boolean iterate()
+	{
+		if(solution != null)
+			return true;
+		long time = System.currentTimeMillis();
+		long expandedBefore = numExpanded;
+		long storedBefore = numStored;
+		pass++;
+		int next = search(0, -1, -1);
+		layerStats.add(new LayerStats(bound, (int)Math.min(Integer.MAX_VALUE, numExpanded - expandedBefore),
+				(int)Math.min(Integer.MAX_VALUE, numExpanded - expandedBefore), (int)Math.min(Integer.MAX_VALUE, numStored - storedBefore),
+				tableUsed, System.currentTimeMillis() - time));
+		if(next == FOUND)
+		{
+			solution = new int[pathLength];
+			System.arraycopy(pathMoves, 0, solution, 0, pathLength);
+			return true;
+		}
+		if(next == GoalEstimate.UNREACHABLE)
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		bound = next;
+		return false;
+	}
+	
+	/**
+	 * Makes passes until a solution is found.
+	 * @return true once a shortest solution has been found.
+	 */
+	public boolean solve()
+	{
+		while(!iterate());
+		return true;
+	}
+	
+	/**
+	 * Gets the solution as a List of Move objects, one per tile-step.
+	 * @return the solution in List<Move> form.
+	 */
+	public List<Move> getSolution()
+	{
+		if(solution == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<Move> moves = new ArrayList<Move>();
+		Board current = rootPosition;
+		for(int move : solution)
+		{
+			Move step = new Move(current, DIRECTIONS[move % 4], move / 4);
+			step.resolveMove(solved);
+			step.setStatus(MoveStatus.WINNING);
+			moves.add(step);
+			current = step.getNextBoard();
+		}
+		SolutionReplay.setDepths(moves, metric);
+		return moves;
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, counted by the metric of this search.
+	 */
+	public int getSolutionLength()
+	{
+		if(solution == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return bound;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far, over all passes.
+	 */
+	public long getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return The number of times a state was not searched because the table had it.
+	 */
+	public long getNumberOfTableCuts()
+	{
+		return numTableCuts;
+	}
+	
+	/**
+	 *
+	 * @return The number of slots in the transposition table.
+	 */
+	public int getTableSize()
+	{
+		return tableMeta.length;
+	}
+	
+	/**
+	 *
+	 * @return The memory taken by the transposition table, in bytes.
+	 */
+	public long getTableBytes()
+	{
+		return 8L * (tableCodes.length + tableMeta.length);
+	}
+	
+	/**
+	 *
+	 * @return What each pass so far did, in order; the layer of each is its bound.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Searches below the current state of the board.
+	 * @param g The moves made to get here.
+	 * @param lastPiece The piece moved last, or -1.
+	 * @param lastMove The move made last, as piece * 4 + direction ordinal, or -1.
+	 * @return FOUND if a solution was found, leaving its moves on the path; otherwise the lowest
+	 *  total that went over the bound, or UNREACHABLE if none did.
+	 */
+	private int search(int g, int lastPiece, int lastMove)
+	{
+		int h = estimate.estimate(board, lastPiece);
+		if(h == GoalEstimate.UNREACHABLE)
+			return GoalEstimate.UNREACHABLE;
+		if(g + h > bound)
+			return g + h;
+		if(solved.meetsTheseConditions(board))
+			return FOUND;
+		StateCode code = codec.encode(board);
+		int key = (metric == MoveMetric.SAME_PIECE && lastPiece >= 0) ? board.getCanonicalIndex(lastPiece) : -1;
+		if(!visit(code, key, g))
+			return GoalEstimate.UNREACHABLE;
+		onPath.add(code);
+		numExpanded++;
+	
+		int[] moves = orderedMoves(lastPiece, pathLength);
+		int best = GoalEstimate.UNREACHABLE;
+		int bestMove = -1;
+		for(int move : moves)
+		{
+			int piece = move / 4;
+			Direction direction = DIRECTIONS[move % 4];
+			if(lastMove >= 0 && lastMove / 4 == piece && DIRECTIONS[lastMove % 4] == direction.opposite())
+				continue;	// straight back to where it came from
+			if(!board.shiftOmino(piece, direction))
+				continue;
+			if(onPath.contains(codec.encode(board)))
+			{
+				board.shiftOmino(piece, direction.opposite());
+				continue;
+			}
+			push(move);
+			int cost = (metric == MoveMetric.SAME_PIECE && piece == lastPiece) ? 0 : 1;
+			int result = search(g + cost, piece, move);
+			if(result == FOUND)
+				return FOUND;	// the board and path are left as they are, to be read off
+			pathLength--;
+			board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+			if(result < best)
+			{
+				best = result;
+				bestMove = move;
+			}
+		}
+		onPath.remove(code);
+		if(bestMove >= 0)
+			history[bestMove] += Math.max(1, bound - g);
+		return best;
+	}
+	
+	/**
+	 * Lists the moves of every piece, the free ones first and the rest by history score, in an array
+	 *  kept for the given depth so that a pass allocates nothing once it has been that deep.
+	 */
+	private int[] orderedMoves(int lastPiece, int depth)
+	{
+		if(depth == moveOrders.length)
+		{
+			int[][] bigger = new int[moveOrders.length * 2][];
+			System.arraycopy(moveOrders, 0, bigger, 0, depth);
+			moveOrders = bigger;
+		}
+		if(moveOrders[depth] == null)
+			moveOrders[depth] = new int[history.length];
+		int[] moves = moveOrders[depth];
+		int[] scores = moveScores;
+		for(int i = 0; i < moves.length; i++)
+		{
+			int score = history[i];
+			if(metric == MoveMetric.SAME_PIECE && i / 4 == lastPiece)
+				score = Integer.MAX_VALUE;
+			int j = i;
+			while(j > 0 && scores[j-1] < score)
+			{
+				moves[j] = moves[j-1];
+				scores[j] = scores[j-1];
+				j--;
+			}
+			moves[j] = i;
+			scores[j] = score;
+		}
+		return moves;
+	}
+	
+	private void push(int move)
+	{
+		if(pathLength == pathMoves.length)
+		{
+			int[] bigger = new int[pathMoves.length * 2];
+			System.arraycopy(pathMoves, 0, bigger, 0, pathLength);
+			pathMoves = bigger;
+		}
+		pathMoves[pathLength++] = move;
+	}
+	
+	/**
+	 * Checks a state against the table, and records it there if it is to be searched.
+	 * @return false if it was already reached in this pass with no more moves.
+	 */
+	private boolean visit(StateCode code, int lastPiece, int g)
+	{
+		long hash = StateCode.mix(code.mixedHash(), lastPiece + 1);	// the same state after a different piece is another entry
+		int slot = (int)hash & tableMask;
+		long meta = tableMeta[slot];
+		boolean samePass = meta != 0 && (meta >>> 48) == (pass & MAX_STORED);
+		if(samePass && (int)(meta & MAX_STORED) == lastPiece + 1 && sameCode(slot, code))
+		{
+			if((int)((meta >>> 16) & MAX_STORED) <= g)
+			{
+				numTableCuts++;
+				return false;
+			}
+		} else if(samePass && replacement == TableReplacement.DEEPER
+				&& (int)((meta >>> 32) & MAX_STORED) > Math.min(MAX_STORED, bound - g))
+			return true;	// searched, but the slot keeps the bigger subtree
+		if(meta == 0)
+			tableUsed++;
+		for(int i = 0; i < numWords; i++)
+			tableCodes[slot * numWords + i] = code.getWord(i);
+		tableMeta[slot] = (long)(pass & MAX_STORED) << 48 | (long)Math.min(MAX_STORED, bound - g) << 32
+				| (long)Math.min(MAX_STORED, g) << 16 | (lastPiece + 1);
+		numStored++;
+		return true;
+	}
+	
+	private boolean sameCode(int slot, StateCode code)
+	{
+		for(int i = 0; i < numWords; i++)
+		{
+			if(tableCodes[slot * numWords + i] != code.getWord(i))
+				return false;
+		}
+		return true;
+	}
+}
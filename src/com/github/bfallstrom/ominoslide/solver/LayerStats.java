@@ -0,0 +1,87 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * What one pass of a layered search did: how many states were waiting in its frontier, how many of
+ *  them had their moves generated, how many states were new or reached more cheaply than before,
+ *  and how long it took.
+ * @author bfallstrom
+ *
+ */
+public final class LayerStats {
+	private final int layer;
+	private final int frontierSize;
+	private final int numExpanded;
+	private final int numNewStates;
+	private final int totalStates;
+	private final long millis;
+	
+	LayerStats(int layer, int frontierSize, int numExpanded, int numNewStates, int totalStates, long millis)
+	{
+		this.layer = layer;
+		this.frontierSize = frontierSize;
+		this.numExpanded = numExpanded;
+		this.numNewStates = numNewStates;
+		this.totalStates = totalStates;
+		this.millis = millis;
+	}
+	
+	/**
+	 *
+	 * @return The number of the pass, starting at 1.
+	 */
+	public int getLayer()
+	{
+		return layer;
+	}
+	
+	/**
+	 *
+	 * @return The number of entries waiting in the frontier when the pass began, stale ones included.
+	 */
+	public int getFrontierSize()
+	{
+		return frontierSize;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves were generated during the pass.
+	 */
+	public int getNumExpanded()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return The number of states added to the next frontier: new ones, and known ones reached in fewer moves.
+	 */
+	public int getNumNewStates()
+	{
+		return numNewStates;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states seen by the end of the pass.
+	 */
+	public int getTotalStates()
+	{
+		return totalStates;
+	}
+	
+	/**
+	 *
+	 * @return The time the pass took, in milliseconds.
+	 */
+	public long getMillis()
+	{
+		return millis;
+	}
+	
+	public String toString()
+	{
+		return String.format("Layer %d: %d expanded of %d queued, %d new, %d total, %d ms",
+				layer, numExpanded, frontierSize, numNewStates, totalStates, millis);
+	}
+}
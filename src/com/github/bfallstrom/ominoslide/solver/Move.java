@@ -36,11 +36,14 @@ public class Move {
 	 */
 	public MoveStatus resolveMove(WinningPosition winner)
 	{
-		leadsTo = new Board(this.startsAt);
-		leadsTo.setPreviousMove(this);
-		if(!leadsTo.shiftOmino(piece, direction)) // If the shift fails, then this move is BLOCKED!
+		leadsTo = startsAt.shiftedCopy(piece, direction);	// Only copied if the shift can be made.
+		if(leadsTo == null) // If the shift fails, then this move is BLOCKED!
+		{
 			this.setStatus(MoveStatus.BLOCKED);
-		else if(winner.meetsTheseConditions(leadsTo))
+			return status;
+		}
+		leadsTo.setPreviousMove(this);
+		if(winner.meetsTheseConditions(leadsTo))
 			this.setStatus(MoveStatus.WINNING);
 		return status;
 	}
@@ -68,10 +71,9 @@ public class Move {
 	 *  informational and serves only to optimize solutions. It is unset when a status other than
 	 *  WINNING is set on the move; unset is defined as maximum integer value as it is then less
 	 *  optimal than any other value.
-	 * This is not the depth at which the move exists; that is more properly in the Moves class.
-	 *  Instead, this represents the Moves depth at which a solution was found when applying the
-	 *  WINNING status to this Move, even if this Move is closer to the start than that winning
-	 *  move.
+	 * The Moves of a finished solution instead carry the depth of the position each is made from,
+	 *  counted by the metric of the search that found it; the solver reports the length of the
+	 *  solution itself.
 	 * @param depth The move depth to set.
 	 */
 	public void setDepth(int depth)
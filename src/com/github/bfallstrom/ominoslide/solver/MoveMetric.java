@@ -0,0 +1,11 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * The ways of counting the length of a solution.
+ * @author bfallstrom
+ *
+ */
+public enum MoveMetric {
+	TILE_STEP,	// Every shift of a piece by one tile is a move.
+	SAME_PIECE	// Consecutive shifts of the same piece, however many, count as a single move.
+}
@@ -0,0 +1,197 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+
+/**
+ * Keeps the visited states of a search on the heap in parallel arrays of primitives, one entry per
+ *  id: the words of the packed code, the parent's id, the depth, and the move in two bytes. No
+ *  object is kept per state, so a state costs a few dozen bytes, and the garbage collector only
+ *  ever sees a handful of large arrays. A StateCode is only built when one is asked for.
+ * Codes are found through an open-addressing index of ids, probed linearly, which is rebuilt twice
+ *  the size when it is half full.
+ * @author bfallstrom
+ *
+ */
+public final class NodeStore implements VisitedStates {
+	private static final int MAX_PIECES = (0xFFFF - 4) / 4;	// so that piece * 4 + direction + 1 fits in a char
+	private static final int MAX_INDEX_SLOTS = 1 << 30;	// the biggest power of two an array can hold
+	
+	private final StateCodec	codec;
+	private final int			numWords;
+	private long[]				codes;		// [id * numWords + word]
+	private int[]				parents;	// [id]
+	private int[]				depths;		// [id]
+	private char[]				moves;		// [id] move + 1; 0 for the starting position
+	private long[]				expanded;	// [id / 64] bit id % 64 set once its moves are generated
+	private int[]				index;		// [slot] id + 1; 0 if empty
+	private int					size = 0;
+	
+	/**
+	 * Creates an empty store.
+	 * @param codec The codec of the states to be kept.
+	 * @param numPieces The number of pieces on the board, at most 16382.
+	 * @param expectedStates How many states the store should hold before it has to grow.
+	 */
+	public NodeStore(StateCodec codec, int numPieces, int expectedStates)
+	{
+		if(numPieces > MAX_PIECES)
+			throw new IllegalArgumentException("WARNING! A node store can only record moves of up to " + MAX_PIECES + " pieces!");
+		this.codec = codec;
+		this.numWords = codec.getNumWords();
+		int capacity = 64;
+		while(capacity < expectedStates && capacity < MAX_INDEX_SLOTS / 2)
+			capacity <<= 1;
+		this.codes = new long[capacity * numWords];
+		this.parents = new int[capacity];
+		this.depths = new int[capacity];
+		this.moves = new char[capacity];
+		this.expanded = new long[capacity / 64];
+		this.index = new int[capacity * 2];
+	}
+	
+	/**
+	 * The most states a store can hold with codes of the given number of words, its arrays being
+	 *  doubled as they fill.
+	 */
+	static long maxStates(int numWords)
+	{
+		long capacity = MAX_INDEX_SLOTS / 2;
+		while(capacity * numWords > Integer.MAX_VALUE - 8)
+			capacity >>= 1;
+		return capacity;
+	}
+	
+	public int find(StateCode code)
+	{
+		int mask = index.length - 1;
+		for(int slot = hash(code) & mask; index[slot] != 0; slot = (slot + 1) & mask)
+		{
+			if(matches(index[slot] - 1, code))
+				return index[slot] - 1;
+		}
+		return -1;
+	}
+	
+	public int add(StateCode code, int depth, int parent, int move)
+	{
+		if(size == parents.length)
+			grow();
+		int id = size++;
+		for(int i = 0; i < numWords; i++)
+			codes[id * numWords + i] = code.getWord(i);
+		parents[id] = parent;
+		depths[id] = depth;
+		moves[id] = (char)(move + 1);
+		insert(id, hash(code));
+		return id;
+	}
+	
+	public void update(int id, int depth, int parent, int move)
+	{
+		parents[id] = parent;
+		depths[id] = depth;
+		moves[id] = (char)(move + 1);
+		expanded[id >>> 6] &= ~(1L << id);
+	}
+	
+	public StateCode getCode(int id)
+	{
+		long[] words = new long[numWords];
+		System.arraycopy(codes, id * numWords, words, 0, numWords);
+		return codec.fromWords(words);
+	}
+	
+	public int getDepth(int id)
+	{
+		return depths[id];
+	}
+	
+	public int getParent(int id)
+	{
+		return parents[id];
+	}
+	
+	public int getMove(int id)
+	{
+		return moves[id] - 1;
+	}
+	
+	public boolean isExpanded(int id)
+	{
+		return (expanded[id >>> 6] & (1L << id)) != 0;
+	}
+	
+	public void setExpanded(int id)
+	{
+		expanded[id >>> 6] |= 1L << id;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public long getMemoryBytes()
+	{
+		return 8L * (codes.length + expanded.length) + 4L * (parents.length + depths.length + index.length) + 2L * moves.length;
+	}
+	
+	/**
+	 * Doubles the arrays, and the index with them.
+	 */
+	private void grow()
+	{
+		long wanted = parents.length * 2L;	// in long, since the index needs twice as many slots again
+		if(wanted * 2 > MAX_INDEX_SLOTS || wanted * numWords > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Error: the node store cannot hold any more states!");
+		int capacity = (int)wanted;
+		long[] newCodes = new long[capacity * numWords];
+		System.arraycopy(codes, 0, newCodes, 0, size * numWords);
+		codes = newCodes;
+		int[] newParents = new int[capacity];
+		System.arraycopy(parents, 0, newParents, 0, size);
+		parents = newParents;
+		int[] newDepths = new int[capacity];
+		System.arraycopy(depths, 0, newDepths, 0, size);
+		depths = newDepths;
+		char[] newMoves = new char[capacity];
+		System.arraycopy(moves, 0, newMoves, 0, size);
+		moves = newMoves;
+		long[] newExpanded = new long[capacity / 64];
+		System.arraycopy(expanded, 0, newExpanded, 0, expanded.length);
+		expanded = newExpanded;
+		index = new int[capacity * 2];
+		for(int id = 0; id < size; id++)
+			insert(id, hash(id));
+	}
+	
+	private void insert(int id, int hash)
+	{
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		while(index[slot] != 0)
+			slot = (slot + 1) & mask;
+		index[slot] = id + 1;
+	}
+	
+	private boolean matches(int id, StateCode code)
+	{
+		for(int i = 0; i < numWords; i++)
+		{
+			if(codes[id * numWords + i] != code.getWord(i))
+				return false;
+		}
+		return true;
+	}
+	
+	private int hash(StateCode code)
+	{
+		return (int)code.mixedHash();
+	}
+	
+	private int hash(int id)
+	{
+		return (int)StateCode.mixedHash(codes, id * numWords, numWords);
+	}
+}
@@ -0,0 +1,367 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+
+/**
+ * A table of visited states kept outside the heap, in direct ByteBuffers, so that tens of millions
+ *  of states cost the garbage collector nothing to trace.
+ * Each state gets a record holding its packed code, its depth, the id of its parent and the move
+ *  that reached it. Records are numbered in the order their ids are handed out and stored in
+ *  segments of fixed size, so ids never change. A separate open-addressing index, probed linearly,
+ *  maps codes to ids; each slot holds 32 bits of the code's hash next to the id, so most slots that
+ *  do not match are passed over without reading the record.
+ * putIfAbsent may be called from any number of threads at once: a new record is written first, then
+ *  published by a compare-and-set of an empty index slot. If another thread publishes the same
+ *  state first, the record is marked dead and its id is never used. The other methods that change
+ *  the table, including growing the index, must not run alongside anything else.
+ * The table also counts the slots probed per lookup, for tuning.
+ * @author bfallstrom
+ *
+ */
+public final class OffHeapStateTable implements VisitedStates {
+	private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final int SEGMENT_SHIFT = 16;	// records per segment, as a power of two
+	private static final int MAX_INDEX_SLOTS = 1 << 27;	// the most slots one ByteBuffer can hold
+	private static final float MAX_LOAD = 0.75f;
+	static final long MAX_STATES = (long)(MAX_LOAD * MAX_INDEX_SLOTS) - 1;	// the most the index takes before it would have to outgrow a ByteBuffer
+	private static final int EXPANDED = 1;
+	private static final int DEAD = 2;
+	
+	private final StateCodec codec;
+	private final int numWords;
+	private final int recordBytes;	// the code, then depth, parent, move and flags as ints
+	private final int fieldsOffset;
+	private final AtomicReferenceArray<ByteBuffer> segments = new AtomicReferenceArray<ByteBuffer>(1 << (31 - SEGMENT_SHIFT));
+	private final AtomicInteger numSegments = new AtomicInteger(0);
+	private final AtomicInteger nextId = new AtomicInteger(0);
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder probes = new LongAdder();
+	private final AtomicInteger maxProbe = new AtomicInteger(0);
+	private ByteBuffer index;
+	private int indexMask;
+	
+	/**
+	 * Creates an empty table.
+	 * @param codec The codec of the states to be kept.
+	 * @param expectedStates How many states the index should hold before it has to grow.
+	 */
+	public OffHeapStateTable(StateCodec codec, int expectedStates)
+	{
+		this.codec = codec;
+		this.numWords = codec.getNumWords();
+		this.fieldsOffset = numWords * 8;
+		this.recordBytes = fieldsOffset + 16;
+		allocateIndex(slotsFor(expectedStates));
+	}
+	
+	/**
+	 * Adds a state unless it is already present. Safe to call from several threads at once, as long
+	 *  as the index does not need to grow.
+	 * @param code The packed state.
+	 * @param depth The number of moves it was reached in.
+	 * @param parent The id of the state it was reached from, or -1.
+	 * @param move The move that reached it, or -1.
+	 * @return The id of the new state; or, if it was already present, -1 - its id.
+	 * @throws IllegalStateException If the index is too full to take another state.
+	 */
+	public int putIfAbsent(StateCode code, int depth, int parent, int move)
+	{
+		if(size.get() >= (int)(MAX_LOAD * (indexMask + 1)))
+			throw new IllegalStateException("Error: the state table is full; it must be grown first!");
+		long hash = hash(code);
+		int slot = (int)hash & indexMask;
+		long tag = hash & 0xFFFFFFFF00000000L;
+		int id = -1;
+		int probed = 1;
+		while(true)
+		{
+			long value = (long)SLOTS.getVolatile(index, slot << 3);
+			if(value == 0)
+			{
+				if(id < 0)
+				{
+					id = nextId.getAndIncrement();
+					writeRecord(id, code, depth, parent, move);
+				}
+				if(SLOTS.compareAndSet(index, slot << 3, 0L, tag | (id + 1L)))
+				{
+					size.incrementAndGet();
+					countProbes(probed);
+					return id;
+				}
+				continue;	// someone else took the slot; look at what they put there
+			}
+			if((value & 0xFFFFFFFF00000000L) == tag && matches((int)value - 1, code))
+			{
+				if(id >= 0)
+					setFlag(id, DEAD);
+				countProbes(probed);
+				return -1 - ((int)value - 1);
+			}
+			slot = (slot + 1) & indexMask;
+			probed++;
+		}
+	}
+	
+	public int find(StateCode code)
+	{
+		long hash = hash(code);
+		int slot = (int)hash & indexMask;
+		long tag = hash & 0xFFFFFFFF00000000L;
+		int probed = 1;
+		while(true)
+		{
+			long value = (long)SLOTS.getVolatile(index, slot << 3);
+			if(value == 0 || ((value & 0xFFFFFFFF00000000L) == tag && matches((int)value - 1, code)))
+			{
+				countProbes(probed);
+				return value == 0 ? -1 : (int)value - 1;
+			}
+			slot = (slot + 1) & indexMask;
+			probed++;
+		}
+	}
+	
+	/**
+	 * Adds a state known not to be present, growing the index first if need be. Not safe to call
+	 *  alongside other threads.
+	 */
+	public int add(StateCode code, int depth, int parent, int move)
+	{
+		ensureCapacity(size.get() + 1);
+		int id = putIfAbsent(code, depth, parent, move);
+		if(id < 0)
+			throw new IllegalArgumentException("Error: the state is already in the table!");
+		return id;
+	}
+	
+	public void update(int id, int depth, int parent, int move)
+	{
+		ByteBuffer segment = segmentOf(id);
+		int offset = offsetOf(id) + fieldsOffset;
+		segment.putInt(offset, depth);
+		segment.putInt(offset + 4, parent);
+		segment.putInt(offset + 8, move);
+		segment.putInt(offset + 12, segment.getInt(offset + 12) & ~EXPANDED);
+	}
+	
+	public StateCode getCode(int id)
+	{
+		ByteBuffer segment = segmentOf(id);
+		int offset = offsetOf(id);
+		long[] words = new long[numWords];
+		for(int i = 0; i < numWords; i++)
+			words[i] = segment.getLong(offset + i * 8);
+		return codec.fromWords(words);
+	}
+	
+	public int getDepth(int id)
+	{
+		return segmentOf(id).getInt(offsetOf(id) + fieldsOffset);
+	}
+	
+	public int getParent(int id)
+	{
+		return segmentOf(id).getInt(offsetOf(id) + fieldsOffset + 4);
+	}
+	
+	public int getMove(int id)
+	{
+		return segmentOf(id).getInt(offsetOf(id) + fieldsOffset + 8);
+	}
+	
+	public boolean isExpanded(int id)
+	{
+		return (segmentOf(id).getInt(offsetOf(id) + fieldsOffset + 12) & EXPANDED) != 0;
+	}
+	
+	public void setExpanded(int id)
+	{
+		setFlag(id, EXPANDED);
+	}
+	
+	public int size()
+	{
+		return size.get();
+	}
+	
+	/**
+	 * Grows the index, if need be, so that it can take the given number of states without going
+	 *  over its load limit. Not safe to call alongside other threads.
+	 * @param states The number of states to make room for.
+	 */
+	public void ensureCapacity(int states)
+	{
+		if(states < (int)(MAX_LOAD * (indexMask + 1)))
+			return;
+		if(indexMask + 1 >= MAX_INDEX_SLOTS)
+			throw new IllegalStateException("Error: the state table cannot grow any further!");
+		allocateIndex(Math.min(MAX_INDEX_SLOTS, slotsFor(states) * 2));
+		int numIds = nextId.get();
+		for(int id = 0; id < numIds; id++)
+		{
+			if((segmentOf(id).getInt(offsetOf(id) + fieldsOffset + 12) & DEAD) != 0)
+				continue;
+			long hash = hash(segmentOf(id), offsetOf(id));
+			int slot = (int)hash & indexMask;
+			while(index.getLong(slot << 3) != 0)
+				slot = (slot + 1) & indexMask;
+			index.putLong(slot << 3, (hash & 0xFFFFFFFF00000000L) | (id + 1L));
+		}
+	}
+	
+	/**
+	 *
+	 * @return The number of slots in the index.
+	 */
+	public int getCapacity()
+	{
+		return indexMask + 1;
+	}
+	
+	/**
+	 *
+	 * @return The fraction of the index slots in use.
+	 */
+	public double getLoadFactor()
+	{
+		return (double)size.get() / (indexMask + 1);
+	}
+	
+	/**
+	 *
+	 * @return The mean number of index slots looked at per lookup or insert so far.
+	 */
+	public double getAverageProbeLength()
+	{
+		long count = lookups.sum();
+		return count == 0 ? 0 : (double)probes.sum() / count;
+	}
+	
+	/**
+	 *
+	 * @return The most index slots looked at by any one lookup or insert so far.
+	 */
+	public int getMaxProbeLength()
+	{
+		return maxProbe.get();
+	}
+	
+	/**
+	 *
+	 * @return The number of bytes of direct memory taken by the index and the record segments.
+	 */
+	public long getMemoryBytes()
+	{
+		return (long)index.capacity() + (long)numSegments.get() * (recordBytes << SEGMENT_SHIFT);
+	}
+	
+	private static int slotsFor(int states)
+	{
+		int slots = 16;
+		while(slots < MAX_INDEX_SLOTS && slots * MAX_LOAD <= states)
+			slots <<= 1;
+		return slots;
+	}
+	
+	private void allocateIndex(int slots)
+	{
+		index = ByteBuffer.allocateDirect(slots * 8).order(ByteOrder.nativeOrder());
+		indexMask = slots - 1;
+	}
+	
+	private ByteBuffer segmentOf(int id)
+	{
+		int number = id >>> SEGMENT_SHIFT;
+		ByteBuffer segment = segments.get(number);
+		if(segment == null)
+		{
+			synchronized(segments)
+			{
+				segment = segments.get(number);
+				if(segment == null)
+				{
+					segment = ByteBuffer.allocateDirect(recordBytes << SEGMENT_SHIFT).order(ByteOrder.nativeOrder());
+					segments.set(number, segment);
+					numSegments.incrementAndGet();
+				}
+			}
+		}
+		return segment;
+	}
+	
+	private int offsetOf(int id)
+	{
+		return (id & ((1 << SEGMENT_SHIFT) - 1)) * recordBytes;
+	}
+	
+	private void writeRecord(int id, StateCode code, int depth, int parent, int move)
+	{
+		ByteBuffer segment = segmentOf(id);
+		int offset = offsetOf(id);
+		for(int i = 0; i < numWords; i++)
+			segment.putLong(offset + i * 8, code.getWord(i));
+		segment.putInt(offset + fieldsOffset, depth);
+		segment.putInt(offset + fieldsOffset + 4, parent);
+		segment.putInt(offset + fieldsOffset + 8, move);
+		segment.putInt(offset + fieldsOffset + 12, 0);
+	}
+	
+	private void setFlag(int id, int flag)
+	{
+		ByteBuffer segment = segmentOf(id);
+		int offset = offsetOf(id) + fieldsOffset + 12;
+		segment.putInt(offset, segment.getInt(offset) | flag);
+	}
+	
+	private boolean matches(int id, StateCode code)
+	{
+		ByteBuffer segment = segmentOf(id);
+		int offset = offsetOf(id);
+		for(int i = 0; i < numWords; i++)
+		{
+			if(segment.getLong(offset + i * 8) != code.getWord(i))
+				return false;
+		}
+		return true;
+	}
+	
+	private void countProbes(int probed)
+	{
+		lookups.increment();
+		probes.add(probed);
+		int max = maxProbe.get();
+		while(probed > max && !maxProbe.compareAndSet(max, probed))
+			max = maxProbe.get();
+	}
+	
+	/**
+	 * Mixes the words of a code into 64 well-spread bits: the low bits pick the slot and the high 32
+	 *  are kept in it.
+	 */
+	private long hash(StateCode code)
+	{
+		return code.mixedHash();
+	}
+	
+	/**
+	 * Hashes a code in its record as hash(StateCode) hashes the code itself.
+	 */
+	private long hash(ByteBuffer segment, int offset)
+	{
+		long hash = StateCode.HASH_SEED;
+		for(int i = 0; i < numWords; i++)
+			hash = StateCode.mix(hash, segment.getLong(offset + i * 8));
+		return hash;
+	}
+}
@@ -0,0 +1,354 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.ImmutableBoard;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * A breadth-first search that expands each layer on several threads. The frontier is split into
+ *  ranges and handed to a ForkJoinPool; each task generates the moves of its states and offers the
+ *  results to a ConcurrentHashMap of visited states. A layer is finished before the next one
+ *  starts, so every state is reached at its shortest depth.
+ * The states of the frontier are kept as ImmutableBoards, which every thread can read without
+ *  locks and which derive their children without unpacking a code or copying a Board. Only the
+ *  packed codes are kept once a state has been expanded.
+ * Under TILE_STEP each move is a single tile-step. Under SAME_PIECE each move is a whole slide of
+ *  one piece, as in the macro mode of Boards, so each layer is exactly one move deeper either way.
+ * The result does not depend on thread timing. Every move out of a layer gets a rank from the
+ *  position of its state in the frontier and the move's own number; where several moves reach the
+ *  same new state, the lowest rank wins. The next frontier is sorted by rank, and of the winning
+ *  states found in a layer the one with the lowest rank is taken.
+ * @author bfallstrom
+ *
+ */
+public class ParallelBfs implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int TASK_SIZE = 64;	// states per task, below which a range is not split further
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateCodec		codec;
+	private final ForkJoinPool		pool;
+	private final int				numThreads;
+	private final int				numCells;
+	private final long				movesPerState;	// an upper bound on move numbers out of one state
+	
+	private final ConcurrentHashMap<StateCode,Node> visited;
+	private final ConcurrentLinkedQueue<StateCode> winners = new ConcurrentLinkedQueue<StateCode>();
+	private List<StateCode>			frontier = new ArrayList<StateCode>();
+	private List<ImmutableBoard>	frontierStates = new ArrayList<ImmutableBoard>();	// [i] the state of frontier[i]
+	private List<LayerStats>		layerStats = new ArrayList<LayerStats>();
+	private StateCode				winningState = null;
+	private int						depth = 0;
+	private int						numExpanded = 0;
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @param metric How to count moves, and so how moves are generated.
+	 * @param numThreads The number of threads to expand each layer with.
+	 */
+	public ParallelBfs(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, int numThreads)
+	{
+		if(numThreads < 1)
+			throw new IllegalArgumentException("Error: the search needs at least one thread!");
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.numThreads = numThreads;
+		this.codec = new StateCodec(startingPosition);
+		this.numCells = startingPosition.getBitBoard().getNumCells();
+		this.movesPerState = (long)startingPosition.getNumPieces() * Math.max(numCells, DIRECTIONS.length);
+		this.visited = new ConcurrentHashMap<StateCode,Node>(1024, 0.75f, numThreads);
+		this.pool = new ForkJoinPool(numThreads);
+		StateCode start = codec.encode(startingPosition);
+		visited.put(start, new Node(0, null, -1, 0, null));
+		frontier.add(start);
+		frontierStates.add(new ImmutableBoard(startingPosition));
+		if(solved.meetsTheseConditions(startingPosition))
+			winningState = start;
+	}
+	
+	/**
+	 * Expands one layer: generates the moves out of every state in the frontier, on all threads,
+	 *  and waits for them to finish.
+	 * @return true if a complete solution was found
+	 */
+	public boolean iterate()
+	{
+		if(winningState != null)
+			return true;
+		long time = System.currentTimeMillis();
+		int statesBefore = visited.size();
+		List<StateCode> found = pool.invoke(new Expand(0, frontier.size()));
+		numExpanded += frontier.size();
+		depth++;
+	
+		StateCode[] next = found.toArray(new StateCode[found.size()]);
+		ImmutableBoard[] nextStates = new ImmutableBoard[next.length];
+		final long[] ranks = new long[next.length];
+		Integer[] order = new Integer[next.length];
+		for(int i = 0; i < next.length; i++)
+		{
+			Node node = visited.get(next[i]);	// final now that the layer is done
+			ranks[i] = node.rank;
+			nextStates[i] = node.state;
+			visited.put(next[i], node.settled());	// the state is only needed until it is expanded
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				return ranks[a] < ranks[b] ? -1 : (ranks[a] > ranks[b] ? 1 : 0);
+			}
+		});
+		layerStats.add(new LayerStats(depth, frontier.size(), frontier.size(), visited.size() - statesBefore,
+				visited.size(), System.currentTimeMillis() - time));
+		frontier = new ArrayList<StateCode>(next.length);
+		frontierStates = new ArrayList<ImmutableBoard>(next.length);
+		for(Integer i : order)
+		{
+			frontier.add(next[i]);
+			frontierStates.add(nextStates[i]);
+		}
+	
+		for(StateCode winner : winners)
+		{
+			if(winningState == null || visited.get(winner).rank < visited.get(winningState).rank)
+				winningState = winner;
+		}
+		if(winningState != null || frontier.isEmpty())
+			pool.shutdown();
+		if(winningState == null && frontier.isEmpty())
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		return winningState != null;
+	}
+	
+	/**
+	 * Expands layers until a solution is found.
+	 * @return true once a shortest solution has been found.
+	 */
+	public boolean solve()
+	{
+		while(!iterate());
+		return true;
+	}
+	
+	/**
+	 * Stops the threads of the search, if it is to be abandoned before it finishes. They are
+	 *  stopped on their own once a solution is found.
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+	
+	/**
+	 * Gets the solution as a List of Move objects, one per tile-step.
+	 * @return the solution in List<Move> form.
+	 */
+	public List<Move> getSolution()
+	{
+		if(winningState == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<StateCode> path = new ArrayList<StateCode>();
+		List<Integer> movedPieces = new ArrayList<Integer>();
+		for(StateCode code = winningState; visited.get(code).parent != null; code = visited.get(code).parent)
+		{
+			path.add(code);
+			movedPieces.add(visited.get(code).piece);
+		}
+		Collections.reverse(path);
+		Collections.reverse(movedPieces);
+		return SolutionReplay.replay(rootPosition, codec, solved, path, movedPieces, metric);
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, counted by the metric of this search.
+	 */
+	public int getSolutionLength()
+	{
+		if(winningState == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return visited.get(winningState).depth;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states seen so far.
+	 */
+	public int getNumberOfStates()
+	{
+		return visited.size();
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public int getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return What each layer so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 *
+	 * @return The number of threads each layer is expanded with.
+	 */
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+	
+	/**
+	 * Offers a state reached by a move out of the current layer. It is kept if it is new, or if it
+	 *  was already reached in this layer by a move of higher rank.
+	 * @return true if the state was new, and so belongs in the next frontier.
+	 */
+	private boolean offer(StateCode code, Node node)
+	{
+		while(true)
+		{
+			Node known = visited.putIfAbsent(code, node);
+			if(known == null)
+				break;
+			if(known.depth < node.depth || known.rank <= node.rank)
+				return false;
+			if(visited.replace(code, known, node))
+				return false;	// already queued by whoever got there first
+		}
+		if(solved.meetsTheseConditions(node.state))
+			winners.add(code);
+		return true;
+	}
+	
+	/**
+	 * Expands a range of the frontier, splitting it in two while it is large.
+	 */
+	private final class Expand extends RecursiveTask<List<StateCode>> {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+	
+		Expand(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+	
+		@Override
+		protected List<StateCode> compute()
+		{
+			if(to - from > TASK_SIZE)
+			{
+				int middle = (from + to) >>> 1;
+				Expand left = new Expand(from, middle);
+				left.fork();
+				List<StateCode> found = new Expand(middle, to).compute();
+				List<StateCode> leftFound = left.join();
+				leftFound.addAll(found);
+				return leftFound;
+			}
+			List<StateCode> found = new ArrayList<StateCode>();
+			for(int i = from; i < to; i++)
+			{
+				StateCode code = frontier.get(i);
+				ImmutableBoard state = frontierStates.get(i);
+				long baseRank = i * movesPerState;
+				if(metric == MoveMetric.TILE_STEP)
+				{
+					for(int piece = 0; piece < state.getNumPieces(); piece++)
+					{
+						for(Direction direction : DIRECTIONS)
+						{
+							if(state.canShiftOmino(piece, direction))
+								reach(state, code, piece, state.getOriginCell(piece) + state.getBitBoard().directionOffset(direction),
+										baseRank + piece * DIRECTIONS.length + direction.ordinal(), found);
+						}
+					}
+				} else
+				{
+					int lastPiece = visited.get(code).piece;
+					for(int piece = 0; piece < state.getNumPieces(); piece++)
+					{
+						if(state.getCanonicalIndex(piece) == lastPiece)	// anything it could reach now was reachable one move ago
+							continue;
+						for(int cell : state.getSlideTargets(piece))
+							reach(state, code, piece, cell, baseRank + (long)piece * numCells + cell, found);
+					}
+				}
+			}
+			return found;
+		}
+	
+		/**
+		 * Offers the state reached by moving one piece of a frontier state. Its code is worked out
+		 *  first, and the state itself is only built if the code has not already been reached by a
+		 *  better move.
+		 */
+		private void reach(ImmutableBoard state, StateCode code, int piece, int to, long rank, List<StateCode> found)
+		{
+			StateCode childCode = codec.encode(state, piece, to);
+			Node known = visited.get(childCode);
+			if(known != null && (known.depth <= depth || known.rank <= rank))
+				return;
+			ImmutableBoard child = state.withSlide(piece, to);
+			if(offer(childCode, new Node(depth + 1, code, child.getCanonicalIndex(piece), rank, child)))
+				found.add(childCode);
+		}
+	}
+	
+	/**
+	 * What is known about a visited state. Immutable, so that a better route to a state replaces
+	 *  the whole node in one compare-and-set.
+	 */
+	private static final class Node {
+		final int depth;
+		final StateCode parent;		// null for the starting position
+		final int piece;			// the piece moved to get here, as numbered once unpacked; -1 at the start
+		final long rank;			// orders the moves out of a layer; the lowest wins a tie
+		final ImmutableBoard state;	// the state as reached by this route; null once it is in the frontier
+	
+		Node(int depth, StateCode parent, int piece, long rank, ImmutableBoard state)
+		{
+			this.depth = depth;
+			this.parent = parent;
+			this.piece = piece;
+			this.rank = rank;
+			this.state = state;
+		}
+	
+		/**
+		 * @return The same node without its state.
+		 */
+		Node settled()
+		{
+			return new Node(depth, parent, piece, rank, null);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.StateRanker;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * What a quick look at a puzzle tells about how hard it is to search, for EngineChoice to pick an
+ *  engine by: the number of pieces and free cells, the size of a packed state, the branching
+ *  factor, and an estimate of the number of states.
+ * The branching factor and a first count of states come from a short breadth-first probe by whole
+ *  slides, under a small SearchBudget; small puzzles are solved outright by it. The estimate of the
+ *  states is the larger of what the probe saw and what StateRanker estimates from a sample of
+ *  ranks. The latter counts every arrangement of the pieces on cells they could reach, so it errs
+ *  high, which is the safe side when the question is whether the states will fit in memory.
+ * @author bfallstrom
+ *
+ */
+public final class PuzzleProfile {
+	private static final int	PROBE_STATES = 20000;
+	private static final long	PROBE_MILLIS = 500;
+	private static final int	RANK_SAMPLES = 4096;
+	private static final long	SEED = 1;
+	
+	private final int			numPieces;
+	private final int			numFreeCells;
+	private final int			numWords;
+	private final double		branchingFactor;
+	private final long			estimatedStates;
+	private final SolveStatus	probeStatus;
+	
+	private PuzzleProfile(int numPieces, int numFreeCells, int numWords, double branchingFactor, long estimatedStates,
+			SolveStatus probeStatus)
+	{
+		this.numPieces = numPieces;
+		this.numFreeCells = numFreeCells;
+		this.numWords = numWords;
+		this.branchingFactor = branchingFactor;
+		this.estimatedStates = estimatedStates;
+		this.probeStatus = probeStatus;
+	}
+	
+	/**
+	 * Looks over a puzzle. Takes well under a second.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 * @return The profile of the puzzle.
+	 */
+	public static PuzzleProfile sample(Board startingPosition, WinningPosition winningPosition)
+	{
+		int freeCells = startingPosition.getLayout().size();
+		for(int piece = 0; piece < startingPosition.getNumPieces(); piece++)
+			freeCells -= startingPosition.getOmino(piece).getNumTiles();
+		long estimate;
+		try {
+			estimate = new StateRanker(startingPosition).estimateValidStates(RANK_SAMPLES, SEED);
+		} catch (IllegalArgumentException e) {
+			estimate = Long.MAX_VALUE;	// too many to number
+		}
+		Boards probe = new Boards(startingPosition, winningPosition, true);
+		SolveResult result = probe.solve(new SearchBudget(PROBE_MILLIS, PROBE_STATES, 0), null);
+		if(result.getStatus() == SolveStatus.UNSOLVABLE)
+			estimate = result.getNumberOfStates();	// the probe saw every state there is
+		else
+			estimate = Math.max(estimate, result.getNumberOfStates());
+		double branching = (result.getNumberOfStates() - 1) / (double)Math.max(1, result.getNumberOfExpansions());
+		return new PuzzleProfile(startingPosition.getNumPieces(), freeCells, new StateCodec(startingPosition).getNumWords(),
+				branching, estimate, result.getStatus());
+	}
+	
+	/**
+	 *
+	 * @return The number of pieces on the board.
+	 */
+	public int getNumPieces()
+	{
+		return numPieces;
+	}
+	
+	/**
+	 *
+	 * @return The number of cells of the layout that no piece covers.
+	 */
+	public int getNumFreeCells()
+	{
+		return numFreeCells;
+	}
+	
+	/**
+	 *
+	 * @return The number of longs in a packed state.
+	 */
+	public int getNumWords()
+	{
+		return numWords;
+	}
+	
+	/**
+	 *
+	 * @return The average number of new states found per state expanded by the probe, by whole slides.
+	 */
+	public double getBranchingFactor()
+	{
+		return branchingFactor;
+	}
+	
+	/**
+	 *
+	 * @return The estimated number of reachable states, erring high; Long.MAX_VALUE if too many to count.
+	 */
+	public long getEstimatedStates()
+	{
+		return estimatedStates;
+	}
+	
+	/**
+	 *
+	 * @return How the probe ended: SOLVED or UNSOLVABLE if it settled the puzzle, or why it stopped.
+	 */
+	public SolveStatus getProbeStatus()
+	{
+		return probeStatus;
+	}
+}
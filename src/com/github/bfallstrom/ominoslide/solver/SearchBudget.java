@@ -0,0 +1,63 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * Limits on how far a search may go before it gives up: its wall time, the number of states it
+ *  keeps, and the memory its tables take. A limit of 0 is no limit. The limits are checked every
+ *  few dozen expansions, so a search may overshoot the number of states by the moves of that many
+ *  states.
+ * The memory counted is the search's own: the arrays or off-heap table of its visited states and
+ *  its frontiers, as allocated, whatever other searches in the same process are doing. Boards and
+ *  codes made along the way and not yet collected are not counted, so the heap the JVM needs is
+ *  somewhat more.
+ * @author bfallstrom
+ *
+ */
+public final class SearchBudget {
+	public static final SearchBudget UNLIMITED = new SearchBudget(0, 0, 0);
+	
+	private final long maxMillis;
+	private final int maxStates;
+	private final long maxMemoryBytes;
+	
+	/**
+	 * Sets the limits of a budget.
+	 * @param maxMillis The most milliseconds the search may take, or 0.
+	 * @param maxStates The most states the search may keep, or 0.
+	 * @param maxMemoryBytes The most bytes the search's tables may take, or 0.
+	 */
+	public SearchBudget(long maxMillis, int maxStates, long maxMemoryBytes)
+	{
+		if(maxMillis < 0 || maxStates < 0 || maxMemoryBytes < 0)
+			throw new IllegalArgumentException("WARNING! The limits of a budget cannot be negative!");
+		this.maxMillis = maxMillis;
+		this.maxStates = maxStates;
+		this.maxMemoryBytes = maxMemoryBytes;
+	}
+	
+	/**
+	 *
+	 * @return The most milliseconds a search may take, or 0 for no limit.
+	 */
+	public long getMaxMillis()
+	{
+		return maxMillis;
+	}
+	
+	/**
+	 *
+	 * @return The most states a search may keep, or 0 for no limit.
+	 */
+	public int getMaxStates()
+	{
+		return maxStates;
+	}
+	
+	/**
+	 *
+	 * @return The most bytes a search's tables may take, or 0 for no limit.
+	 */
+	public long getMaxMemoryBytes()
+	{
+		return maxMemoryBytes;
+	}
+}
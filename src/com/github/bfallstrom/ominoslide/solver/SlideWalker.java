@@ -0,0 +1,87 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import com.github.bfallstrom.ominoslide.areastructure.BitBoard;
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+
+/**
+ * Walks one piece of a board through every position it can reach by sliding on its own. The walk
+ *  is depth-first, shifting the piece with Board.shiftOmino and stepping back the way it came, so
+ *  only a single Board is needed and it is left as it was found.
+ * A walker keeps its scratch space between walks; it must only be used by one thread at a time.
+ * @author bfallstrom
+ *
+ */
+final class SlideWalker {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	/**
+	 * Told about each position reached during a walk.
+	 */
+	interface Visitor {
+		/**
+		 * Called once for each new position of the piece, while the board holds it there. The
+		 *  board must be left as it was.
+		 * @param board The board, with the piece in its new position.
+		 * @param piece The index of the piece being walked.
+		 * @param direction The last tile-step taken to get there.
+		 * @param cell The BitBoard cell index of the piece's new origin.
+		 */
+		void reached(Board board, int piece, Direction direction, int cell);
+	}
+	
+	private final int[] seen;		// the walk number that last reached each cell
+	private final int[] cameFrom;	// direction ordinal of each step on the walk
+	private final int[] nextTry;	// next direction to try at each depth of the walk
+	private int walk = 0;
+	
+	/**
+	 * Creates a walker for boards sharing the given BitBoard.
+	 * @param bits The BitBoard of the boards to be walked.
+	 */
+	SlideWalker(BitBoard bits)
+	{
+		this.seen = new int[bits.getNumCells()];
+		this.cameFrom = new int[bits.getNumCells() + 1];
+		this.nextTry = new int[bits.getNumCells() + 1];
+	}
+	
+	/**
+	 * Walks a piece through every position it can slide to, not counting the one it starts in.
+	 * @param board The board; it is shifted during the walk and restored at the end.
+	 * @param piece The index of the piece to walk.
+	 * @param visitor Told about each position reached.
+	 */
+	void walk(Board board, int piece, Visitor visitor)
+	{
+		BitBoard bits = board.getBitBoard();
+		int cell = bits.cellIndex(board.getOminoPosition(piece));
+		walk++;
+		seen[cell] = walk;
+		int depth = 0;
+		nextTry[0] = 0;
+		while(depth >= 0)
+		{
+			if(nextTry[depth] == DIRECTIONS.length)
+			{	// done here; step back
+				if(depth > 0)
+				{
+					Direction back = DIRECTIONS[cameFrom[depth]].opposite();
+					board.shiftOmino(piece, back);
+					cell += bits.directionOffset(back);
+				}
+				depth--;
+				continue;
+			}
+			Direction direction = DIRECTIONS[nextTry[depth]++];
+			int next = cell + bits.directionOffset(direction);
+			if(seen[next] == walk || !board.shiftOmino(piece, direction))
+				continue;
+			seen[next] = walk;
+			cell = next;
+			cameFrom[++depth] = direction.ordinal();
+			nextTry[depth] = 0;
+			visitor.reached(board, piece, direction, cell);
+		}
+	}
+}
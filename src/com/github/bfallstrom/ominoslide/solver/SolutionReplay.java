@@ -0,0 +1,203 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.bfallstrom.ominoslide.areastructure.BitBoard;
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.Symmetries;
+import com.github.bfallstrom.ominoslide.areastructure.Tile;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * Turns a path of packed states found by a search back into the List of Move objects the views
+ *  expect, one single-tile step per Move. The searches only keep packed states, so the Boards are
+ *  built here, once, by replaying the moves from the starting position. Each Move is given the
+ *  depth of the position it is made from, counted by the metric of the search; the length of the
+ *  solution is for the search to report.
+ * @author bfallstrom
+ *
+ */
+final class SolutionReplay {
+	private SolutionReplay() {
+	}
+	
+	/**
+	 * Replays a path of states.
+	 * @param root The starting position.
+	 * @param codec The codec the states were packed with.
+	 * @param solved The position sought; the Moves are resolved against it.
+	 * @param path The packed states after each move, in order, not including the starting position.
+	 * @param movedPieces For each state in the path, the index of the moved piece as numbered once
+	 *  that state is unpacked.
+	 * @param metric How the search counted moves.
+	 * @return The solution in List<Move> form.
+	 */
+	static List<Move> replay(Board root, StateCodec codec, WinningPosition solved, List<StateCode> path,
+			List<Integer> movedPieces, MoveMetric metric)
+	{
+		List<Move> solution = new ArrayList<Move>();
+		Board board = root;
+		for(int i = 0; i < path.size(); i++)
+		{
+			Board after = codec.decode(path.get(i));
+			int movedPiece = movedPieces.get(i);
+			int piece = findMovedPiece(board, after, movedPiece);
+			board = slide(solution, board, piece, after.getOminoPosition(movedPiece), solved);
+		}
+		setDepths(solution, metric);
+		return solution;
+	}
+	
+	/**
+	 * Replays a path of states, each of which may have been stored as any of its mirror images.
+	 *  Each move is found by trying the images of the next state for the one a single piece of the
+	 *  current board can slide to.
+	 * @param root The starting position.
+	 * @param codec The codec the states were packed with.
+	 * @param symmetries The symmetries the states were folded by.
+	 * @param solved The position sought; the Moves are resolved against it.
+	 * @param path The packed states after each move, in order, not including the starting position.
+	 * @param metric How the search counted moves.
+	 * @return The solution in List<Move> form.
+	 */
+	static List<Move> replay(Board root, StateCodec codec, Symmetries symmetries, WinningPosition solved,
+			List<StateCode> path, MoveMetric metric)
+	{
+		List<Move> solution = new ArrayList<Move>();
+		Board board = root;
+		for(StateCode code : path)
+		{
+			Board next = null;
+			for(Board after : symmetries.images(codec, code))
+			{
+				int piece = findMovedPiece(board, after);
+				if(piece < 0)
+					continue;
+				Tile target = findNewPosition(board, after, piece);
+				if(board.getSlidePath(piece, target) != null)
+				{
+					next = slide(solution, board, piece, target, solved);
+					break;
+				}
+			}
+			if(next == null)
+				throw new RuntimeException("WARNING! The solution path does not connect!");
+			board = next;
+		}
+		setDepths(solution, metric);
+		return solution;
+	}
+	
+	/**
+	 * Gives each Move of a solution the depth of the position it is made from: the number of moves
+	 *  before it, counted by the given metric.
+	 * @param solution The tile-steps of a solution, in order.
+	 * @param metric How the search counted moves.
+	 */
+	static void setDepths(List<Move> solution, MoveMetric metric)
+	{
+		int depth = -1;
+		int lastPiece = -1;
+		for(Move move : solution)
+		{
+			if(metric == MoveMetric.TILE_STEP || move.getOminoIndex() != lastPiece)
+				depth++;
+			move.setDepth(depth);
+			lastPiece = move.getOminoIndex();
+		}
+	}
+	
+	/**
+	 * Adds the tile-steps sliding one piece to a new position to the solution.
+	 * @return The board after the last of them.
+	 */
+	private static Board slide(List<Move> solution, Board board, int piece, Tile target, WinningPosition solved)
+	{
+		for(Direction direction : board.getSlidePath(piece, target))
+		{
+			Move move = new Move(board, direction, piece);
+			move.resolveMove(solved);
+			move.setStatus(MoveStatus.WINNING);
+			solution.add(move);
+			board = move.getNextBoard();
+		}
+		return board;
+	}
+	
+	/**
+	 * Finds the one piece of a board whose position is held by no piece of its class in another
+	 *  state.
+	 * @return The index of the piece, or -1 if there is not exactly one.
+	 */
+	private static int findMovedPiece(Board board, Board after)
+	{
+		BitBoard bits = board.getBitBoard();
+		int moved = -1;
+		for(int i = 0; i < board.getNumPieces(); i++)
+		{
+			if(heldBy(after, bits.getShapeClass(i), board.getOminoPosition(i)))
+				continue;
+			if(moved >= 0)
+				return -1;
+			moved = i;
+		}
+		return moved;
+	}
+	
+	/**
+	 * Finds where a moved piece went: the position in the other state, of a piece of its class, that
+	 *  no piece of its class holds on the board.
+	 */
+	private static Tile findNewPosition(Board board, Board after, int piece)
+	{
+		BitBoard bits = board.getBitBoard();
+		for(int j = 0; j < after.getNumPieces(); j++)
+		{
+			if(bits.getShapeClass(j) == bits.getShapeClass(piece) && !heldBy(board, bits.getShapeClass(piece), after.getOminoPosition(j)))
+				return after.getOminoPosition(j);
+		}
+		throw new RuntimeException("WARNING! The solution path does not connect!");
+	}
+	
+	private static boolean heldBy(Board board, int shapeClass, Tile position)
+	{
+		BitBoard bits = board.getBitBoard();
+		for(int j = 0; j < board.getNumPieces(); j++)
+		{
+			if(bits.getShapeClass(j) == shapeClass && board.getOminoPosition(j).equals(position))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds which piece of a board was moved to reach the next state. Searches record the piece as
+	 *  numbered in the unpacked state, where interchangeable pieces may have traded places, so the
+	 *  piece is matched by shape class: it is the one whose position is no longer held by any piece
+	 *  of its class.
+	 * @param board The board the move is made from.
+	 * @param after The state reached by the move.
+	 * @param movedPiece The index of the moved piece in that state.
+	 * @return The index of the moved piece on the given board.
+	 */
+	private static int findMovedPiece(Board board, Board after, int movedPiece)
+	{
+		BitBoard bits = board.getBitBoard();
+		int shapeClass = bits.getShapeClass(movedPiece);
+		for(int i = 0; i < board.getNumPieces(); i++)
+		{
+			if(bits.getShapeClass(i) != shapeClass)
+				continue;
+			boolean stillHeld = false;
+			for(int j = 0; j < after.getNumPieces() && !stillHeld; j++)
+				stillHeld = bits.getShapeClass(j) == shapeClass && after.getOminoPosition(j).equals(board.getOminoPosition(i));
+			if(!stillHeld)
+				return i;
+		}
+		throw new RuntimeException("WARNING! The solution path does not connect!");
+	}
+}
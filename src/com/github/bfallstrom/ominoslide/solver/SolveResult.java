@@ -0,0 +1,114 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.List;
+
+/**
+ * What a search run under a SearchBudget came to: how it ended, how far it got, and the solution,
+ *  if one was found before it stopped.
+ * @author bfallstrom
+ *
+ */
+public final class SolveResult {
+	private final SolveStatus status;
+	private final int depthReached;
+	private final int numStates;
+	private final int numExpanded;
+	private final List<Move> solution;
+	private final int solutionLength;
+	private final long peakMemoryBytes;
+	private final long millis;
+	
+	SolveResult(SolveStatus status, int depthReached, int numStates, int numExpanded, List<Move> solution, int solutionLength,
+			long peakMemoryBytes, long millis)
+	{
+		this.status = status;
+		this.depthReached = depthReached;
+		this.numStates = numStates;
+		this.numExpanded = numExpanded;
+		this.solution = solution;
+		this.solutionLength = solutionLength;
+		this.peakMemoryBytes = peakMemoryBytes;
+		this.millis = millis;
+	}
+	
+	/**
+	 *
+	 * @return How the search ended.
+	 */
+	public SolveStatus getStatus()
+	{
+		return status;
+	}
+	
+	/**
+	 *
+	 * @return The most moves from the start of any state whose moves were generated.
+	 */
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states seen.
+	 */
+	public int getNumberOfStates()
+	{
+		return numStates;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves were generated.
+	 */
+	public int getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return true if a solution was found. It is only known to be a shortest one if the status is SOLVED.
+	 */
+	public boolean hasSolution()
+	{
+		return solution != null;
+	}
+	
+	/**
+	 *
+	 * @return The solution in List<Move> form, or null if none was found.
+	 */
+	public List<Move> getSolution()
+	{
+		return solution;
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, or -1 if none was found.
+	 */
+	public int getSolutionLength()
+	{
+		return solutionLength;
+	}
+	
+	/**
+	 *
+	 * @return The most memory the search's tables took at any check of the budget, in bytes.
+	 */
+	public long getPeakMemoryBytes()
+	{
+		return peakMemoryBytes;
+	}
+	
+	/**
+	 *
+	 * @return The wall time taken, in milliseconds.
+	 */
+	public long getMillis()
+	{
+		return millis;
+	}
+}
@@ -0,0 +1,15 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * How a search run under a SearchBudget ended.
+ * @author bfallstrom
+ *
+ */
+public enum SolveStatus {
+	SOLVED,			// A shortest solution was found.
+	UNSOLVABLE,		// Every reachable state was searched without reaching the goal.
+	OUT_OF_TIME,	// The budget's wall time ran out first.
+	OUT_OF_STATES,	// The budget's number of states ran out first.
+	OUT_OF_MEMORY,	// The search's tables grew past the budget's bytes first.
+	CANCELLED		// The search's CancellationToken was cancelled first.
+}
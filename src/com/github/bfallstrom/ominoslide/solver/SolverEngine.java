@@ -0,0 +1,48 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A search for a shortest solution that can be run a step at a time, whatever its strategy:
+ *  breadth-first like Boards, ParallelBfs, ExternalBfs and ZeroOneBfs, heuristic like AStarSolver
+ *  and AnytimeSolver, or memory-bounded like IdaStarSolver. All count moves by SAME_PIECE when
+ *  set up by an EngineChoice, so their solutions can be compared.
+ * Each engine has more to offer through its own class; this is only what a caller needs to drive
+ *  any of them and report on it.
+ * There is no SearchBudget or CancellationToken here: a step runs to its end however long it
+ *  takes, and only Boards.solve(SearchBudget, CancellationToken) stops inside one. A caller that
+ *  needs a budget must set up its search with EngineChoice.createBudgeted(), which only hands
+ *  out a Boards.
+ * @author bfallstrom
+ *
+ */
+public interface SolverEngine {
+	/**
+	 * Takes one step of the search: a layer of a breadth-first search, an iteration of deepening,
+	 *  or a pass of a beam. An engine without such steps runs to the end.
+	 * @return true once a shortest solution has been found.
+	 * @throws IllegalArgumentException If the puzzle turns out to be unsolvable.
+	 * @throws IOException If an engine keeping its states on disk cannot read or write them.
+	 */
+	boolean iterate() throws IOException;
+	
+	/**
+	 * Gets the solution as a List of Move objects, one per tile-step.
+	 * @return the solution in List<Move> form.
+	 * @throws IOException If an engine keeping its states on disk cannot read them.
+	 */
+	List<Move> getSolution() throws IOException;
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, counted by the metric of the search.
+	 */
+	int getSolutionLength();
+	
+	/**
+	 *
+	 * @return What each step so far did, in order.
+	 */
+	List<LayerStats> getLayerStats();
+}
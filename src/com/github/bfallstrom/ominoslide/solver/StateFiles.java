@@ -0,0 +1,161 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential files of packed state codes, each a fixed number of longs, read and written through a
+ *  FileChannel with a direct buffer. Used by ExternalBfs for its sorted layer and run files.
+ * @author bfallstrom
+ *
+ */
+final class StateFiles {
+	private static final int BUFFER_BYTES = 1 << 20;
+	
+	private StateFiles() {
+	}
+	
+	/**
+	 * Compares two codes held in long arrays, word by word from the first.
+	 */
+	static int compare(long[] a, int aOffset, long[] b, int bOffset, int numWords)
+	{
+		for(int i = 0; i < numWords; i++)
+		{
+			if(a[aOffset + i] != b[bOffset + i])
+				return a[aOffset + i] < b[bOffset + i] ? -1 : 1;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Appends codes to a new file.
+	 */
+	static final class Writer {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		private long numCodes = 0;
+	
+		Writer(File path) throws IOException
+		{
+			this.file = new RandomAccessFile(path, "rw");
+			this.file.setLength(0);
+			this.channel = file.getChannel();
+		}
+	
+		/**
+		 * Writes one code.
+		 * @param words The array holding the code.
+		 * @param offset The index of its first word.
+		 * @param numWords The number of words in a code.
+		 */
+		void write(long[] words, int offset, int numWords) throws IOException
+		{
+			if(buffer.remaining() < numWords * 8)
+				flush();
+			for(int i = 0; i < numWords; i++)
+				buffer.putLong(words[offset + i]);
+			numCodes++;
+		}
+	
+		/**
+		 *
+		 * @return The number of codes written so far.
+		 */
+		long getNumCodes()
+		{
+			return numCodes;
+		}
+	
+		/**
+		 * Writes out what is buffered and closes the file. The file is not forced to the disk; these
+		 *  are scratch files, read back by the same search, and the operating system serves the reads
+		 *  from its cache. Checkpoints forces its own files.
+		 */
+		void close() throws IOException
+		{
+			flush();
+			file.close();
+		}
+	
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+	
+	/**
+	 * Reads the codes of a file in order, one at a time.
+	 */
+	static final class Reader {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		private final int numWords;
+		private final long[] current;
+		private boolean atEnd = false;
+	
+		/**
+		 * Opens a file and reads its first code, if any.
+		 */
+		Reader(File path, int numWords) throws IOException
+		{
+			this.file = new RandomAccessFile(path, "r");
+			this.channel = file.getChannel();
+			this.numWords = numWords;
+			this.current = new long[numWords];
+			buffer.flip();	// starts empty
+			next();
+		}
+	
+		/**
+		 *
+		 * @return true once every code has been read.
+		 */
+		boolean atEnd()
+		{
+			return atEnd;
+		}
+	
+		/**
+		 *
+		 * @return The current code. The array is reused by the next call to next().
+		 */
+		long[] current()
+		{
+			return current;
+		}
+	
+		/**
+		 * Moves on to the next code.
+		 */
+		void next() throws IOException
+		{
+			if(buffer.remaining() < numWords * 8)
+			{
+				buffer.compact();
+				while(buffer.position() < numWords * 8 && channel.read(buffer) >= 0);
+				buffer.flip();
+				if(buffer.remaining() < numWords * 8)
+				{
+					atEnd = true;
+					return;
+				}
+			}
+			for(int i = 0; i < numWords; i++)
+				current[i] = buffer.getLong();
+		}
+	
+		void close() throws IOException
+		{
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,490 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateRanker;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * Enumerates every state reachable from the starting position, to describe a puzzle rather than
+ *  solve it: how many states there are, how many at each depth, which are farthest from the start,
+ *  and how many shortest solutions there are.
+ * Every state is numbered by a StateRanker, and the search keeps just two bits per rank: 0 for a
+ *  state not yet seen, or 1 plus its depth mod 3. Moves can always be undone, so the states one
+ *  move from a state at depth d are at depths d-1, d or d+1, which mod 3 tells apart; that is
+ *  enough to tell new states from known ones, and to walk back along shortest paths afterwards.
+ * The ranking counts arrangements in which pieces of different shapes overlap, so it can be far
+ *  bigger than the states there are. When its two-bit array would not fit, or would take more
+ *  memory than a hash table of the states the ranker estimates to be valid, the same two bits are
+ *  kept instead in an open-addressing table keyed by rank, which grows with the states found.
+ * Each layer is kept as a list of ranks while it fits in the memory given. Otherwise the next pass
+ *  finds it by scanning the whole array or table for its depth mod 3, which also turns up the layers 3, 6,
+ *  ... moves shallower; expanding those again finds nothing new, so it only costs time.
+ * Under SAME_PIECE a move is a whole slide of one piece, as in ParallelBfs; under TILE_STEP it is
+ *  a single tile-step.
+ * @author bfallstrom
+ *
+ */
+public class StateSpaceAnalyzer {
+	public static final long MAX_RANKS = 1L << 36;	// 32 two-bit entries in each of up to 2^31 longs
+	public static final int MAX_FARTHEST = 8;		// farthest positions kept as examples
+	private static final int MAX_SOLVED = 1 << 20;	// solved states kept for counting shortest solutions
+	private static final int TABLE_BYTES_PER_STATE = 18;	// rank and depth, in a table at most half full
+	private static final int RANK_SAMPLES = 4096;	// ranks sampled to estimate the valid states
+	private static final long SEED = 1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final WinningPosition	solved;
+	private final MoveMetric		metric;
+	private final StateRanker		ranker;
+	private final Board				board;			// the one board states are unpacked onto
+	private final SlideWalker		walker;			// null under TILE_STEP
+	private final long[]			depths;			// [rank / 32] two bits per rank; null if the table is used
+	private long[]					tableRanks;		// [slot] rank + 1, 0 if empty; null if the array is used
+	private byte[]					tableDepths;	// [slot] the two bits of the rank in the slot
+	private int						tableSize = 0;
+	private final long				maxTableBytes;	// the most memory the table may grow to
+	private final long				maxListed;		// the most ranks a layer list may hold
+	
+	private long[]					layer;			// the ranks of the layer being expanded, or null to scan for it
+	private int						layerSize = 0;
+	private long[]					next;			// the ranks of the layer being found, or null once it is too big
+	private int						nextSize = 0;
+	private final List<Long>		layerSizes = new ArrayList<Long>();
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private long[]					farthest = new long[MAX_FARTHEST];	// the first few ranks of the deepest layer found
+	private int						numFarthest = 0;
+	private long[]					nextFarthest = new long[MAX_FARTHEST];
+	private int						numNextFarthest = 0;
+	private long					numStates = 0;
+	private long					numExpanded = 0;
+	private boolean					complete = false;
+	private int						solutionDepth = -1;
+	private final List<Long>		solvedRanks = new ArrayList<Long>();	// the solved states at solutionDepth, if few enough
+	private long					numSolved = 0;
+	
+	/**
+	 * Sets up an analysis.
+	 * @param startingPosition The board to analyze.
+	 * @param winningPosition The position sought, for the solution statistics.
+	 * @param metric How to count moves.
+	 * @param maxBytes The memory to use for the depth array or table and the layer lists.
+	 * @throws IllegalArgumentException If neither the depth array nor the table for this puzzle fits.
+	 */
+	public StateSpaceAnalyzer(Board startingPosition, WinningPosition winningPosition, MoveMetric metric, long maxBytes)
+	{
+		this.solved = winningPosition;
+		this.metric = metric;
+		this.ranker = new StateRanker(startingPosition);
+		long arrayBytes = (ranker.size() + 31) / 32 * 8;
+		if(ranker.size() <= MAX_RANKS && arrayBytes <= maxBytes
+				&& arrayBytes / TABLE_BYTES_PER_STATE <= ranker.estimateValidStates(RANK_SAMPLES, SEED))
+		{
+			this.depths = new long[(int)(arrayBytes / 8)];
+			this.maxTableBytes = 0;
+			this.maxListed = Math.min(Integer.MAX_VALUE - 8, (maxBytes - arrayBytes) / 16);	// two lists of longs
+		} else
+		{	// half the memory for the table, half for the lists
+			this.depths = null;
+			this.maxTableBytes = maxBytes / 2;
+			if(9L * 1024 > maxTableBytes)
+				throw new IllegalArgumentException("WARNING! Analyzing this puzzle needs more than " + (maxBytes >> 20)
+						+ " MB for its " + ranker.size() + " ranks!");
+			this.tableRanks = new long[1024];
+			this.tableDepths = new byte[1024];
+			this.maxListed = Math.min(Integer.MAX_VALUE - 8, (maxBytes - maxTableBytes) / 16);
+		}
+		this.board = new Board(startingPosition);
+		this.walker = metric == MoveMetric.SAME_PIECE ? new SlideWalker(startingPosition.getBitBoard()) : null;
+		long root = ranker.rank(startingPosition);
+		setDepth(root, 0);
+		numStates = 1;
+		layerSizes.add(1L);
+		next = new long[] {root};
+		nextSize = 1;
+		farthest[numFarthest++] = root;
+		if(solved.meetsTheseConditions(startingPosition))
+		{
+			solutionDepth = 0;
+			solvedRanks.add(root);
+			numSolved = 1;
+		}
+	}
+	
+	/**
+	 * Expands the deepest layer found so far, finding the next one.
+	 * @return true once every reachable state has been found.
+	 */
+	public boolean iterate()
+	{
+		if(complete)
+			return true;
+		long time = System.currentTimeMillis();
+		long expandedBefore = numExpanded;
+		final int depth = layerSizes.size() - 1;
+		layer = next;
+		layerSize = nextSize;
+		next = maxListed > 0 ? new long[(int)Math.min(maxListed, 64)] : null;
+		nextSize = 0;
+		numNextFarthest = 0;
+		final long statesBefore = numStates;
+		Visitor visitor = new Visitor() {
+			public void reached(Board board)
+			{
+				long rank = ranker.rank(board);
+				if(getDepth(rank) >= 0)
+					return;
+				setDepth(rank, depth + 1);
+				numStates++;
+				list(rank);
+				if(numNextFarthest < MAX_FARTHEST)
+					nextFarthest[numNextFarthest++] = rank;
+				if((solutionDepth < 0 || solutionDepth == depth + 1) && solved.meetsTheseConditions(board))
+				{
+					solutionDepth = depth + 1;
+					if(numSolved++ < MAX_SOLVED)
+						solvedRanks.add(rank);
+				}
+			}
+		};
+		if(layer != null)
+		{
+			for(int i = 0; i < layerSize; i++)
+				expand(layer[i], visitor);
+		} else
+		{
+			int wanted = depth % 3 + 1;
+			if(depths == null)
+			{	// states added during the scan go into a new table if it grows, leaving this one whole
+				long[] ranks = tableRanks;
+				byte[] marks = tableDepths;
+				for(int slot = 0; slot < ranks.length; slot++)
+				{
+					if(marks[slot] == wanted)
+						expand(ranks[slot] - 1, visitor);
+				}
+			} else for(int w = 0; w < depths.length; w++)
+			{
+				long word = depths[w];
+				for(int j = 0; word != 0; j++, word >>>= 2)
+				{
+					if((int)(word & 3) == wanted)
+						expand(w * 32L + j, visitor);
+				}
+			}
+		}
+		layer = null;
+		long found = numStates - statesBefore;
+		layerStats.add(new LayerStats(depth + 1, (int)Math.min(Integer.MAX_VALUE, layerSizes.get(depth)),
+				(int)Math.min(Integer.MAX_VALUE, numExpanded - expandedBefore), (int)Math.min(Integer.MAX_VALUE, found),
+				(int)Math.min(Integer.MAX_VALUE, numStates), System.currentTimeMillis() - time));
+		if(found == 0)
+		{
+			complete = true;
+			next = null;
+			return true;
+		}
+		layerSizes.add(found);
+		long[] swap = farthest;
+		farthest = nextFarthest;
+		nextFarthest = swap;
+		numFarthest = numNextFarthest;
+		return false;
+	}
+	
+	/**
+	 * Finds every reachable state.
+	 */
+	public void analyze()
+	{
+		while(!iterate());
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states found so far.
+	 */
+	public long getNumberOfStates()
+	{
+		return numStates;
+	}
+	
+	/**
+	 *
+	 * @return The number of states at each depth found so far, from the starting position's on.
+	 */
+	public List<Long> getLayerSizes()
+	{
+		return Collections.unmodifiableList(layerSizes);
+	}
+	
+	/**
+	 *
+	 * @return The most moves any state found so far is from the starting position.
+	 */
+	public int getMaxDepth()
+	{
+		return layerSizes.size() - 1;
+	}
+	
+	/**
+	 * Gets a few of the states deepest in the search so far; once it is complete, the positions
+	 *  farthest from the start.
+	 * @return Up to MAX_FARTHEST new Boards.
+	 */
+	public List<Board> getFarthestPositions()
+	{
+		List<Board> positions = new ArrayList<Board>();
+		for(int i = 0; i < numFarthest; i++)
+		{
+			Board position = new Board(board);
+			ranker.unrank(farthest[i], position);
+			positions.add(position);
+		}
+		return positions;
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in a shortest solution, or -1 if none has been found yet.
+	 */
+	public int getSolutionDepth()
+	{
+		return solutionDepth;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct solved states at the depth of a shortest solution.
+	 */
+	public long getNumberOfSolvedStates()
+	{
+		return numSolved;
+	}
+	
+	/**
+	 * Counts the distinct shortest solutions, as sequences of moves, by walking back from the solved
+	 *  states at the solution depth to the start one layer at a time; a state's predecessors on
+	 *  shortest paths are exactly its neighbours one less mod 3. Counts past Long.MAX_VALUE stay there.
+	 * @return The count, 0 if no solution has been found, or -1 if there are too many solved states
+	 *  at that depth to count from.
+	 */
+	public long countShortestSolutions()
+	{
+		if(solutionDepth < 0)
+			return 0;
+		if(numSolved > MAX_SOLVED)
+			return -1;
+		Map<Long,Long> counts = new HashMap<Long,Long>();
+		for(Long rank : solvedRanks)
+			counts.put(rank, 1L);
+		for(int depth = solutionDepth; depth > 0; depth--)
+		{
+			final int previous = (depth - 1) % 3;
+			final Map<Long,Long> earlier = new HashMap<Long,Long>();
+			for(Map.Entry<Long,Long> entry : counts.entrySet())
+			{
+				final long paths = entry.getValue();
+				ranker.unrank(entry.getKey(), board);
+				neighbours(new Visitor() {
+					public void reached(Board board)
+					{
+						long rank = ranker.rank(board);
+						if(getDepth(rank) == previous)
+						{
+							Long known = earlier.get(rank);
+							earlier.put(rank, known == null ? paths : saturatingAdd(known, paths));
+						}
+					}
+				});
+			}
+			counts = earlier;
+		}
+		return counts.values().iterator().next();
+	}
+	
+	/**
+	 *
+	 * @return The number of ranks, reachable or not, that states are numbered among.
+	 */
+	public long getIndexSize()
+	{
+		return ranker.size();
+	}
+	
+	/**
+	 *
+	 * @return true if the depths are kept in a table keyed by rank rather than an array of every rank.
+	 */
+	public boolean usesTable()
+	{
+		return depths == null;
+	}
+	
+	/**
+	 *
+	 * @return The memory taken by the depth array or table, in bytes.
+	 */
+	public long getArrayBytes()
+	{
+		return depths == null ? 9L * tableRanks.length : 8L * depths.length;
+	}
+	
+	/**
+	 *
+	 * @return What each pass so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Told about each state one move away from the state on the board.
+	 */
+	private interface Visitor {
+		/**
+		 * @param board The board, holding the new state; it must be left as it was.
+		 */
+		void reached(Board board);
+	}
+	
+	private void expand(long rank, Visitor visitor)
+	{
+		ranker.unrank(rank, board);
+		neighbours(visitor);
+		numExpanded++;
+	}
+	
+	/**
+	 * Generates every move out of the state on the board. The piece moved last is not known, so
+	 *  all of them are tried.
+	 */
+	private void neighbours(final Visitor visitor)
+	{
+		if(metric == MoveMetric.TILE_STEP)
+		{
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+			{
+				for(Direction direction : DIRECTIONS)
+				{
+					if(!board.shiftOmino(piece, direction))
+						continue;
+					visitor.reached(board);
+					board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+				}
+			}
+		} else
+		{
+			SlideWalker.Visitor slides = new SlideWalker.Visitor() {
+				public void reached(Board board, int piece, Direction direction, int cell)
+				{
+					visitor.reached(board);
+				}
+			};
+			for(int piece = 0; piece < board.getNumPieces(); piece++)
+				walker.walk(board, piece, slides);
+		}
+	}
+	
+	/**
+	 * Adds a rank to the list of the layer being found, or gives up on the list once it would
+	 *  outgrow its share of memory; the layer is then scanned for instead.
+	 */
+	private void list(long rank)
+	{
+		if(next == null)
+			return;
+		if(nextSize == next.length)
+		{
+			if(nextSize >= maxListed)
+			{
+				next = null;
+				return;
+			}
+			long[] bigger = new long[(int)Math.min(maxListed, 2L * next.length)];
+			System.arraycopy(next, 0, bigger, 0, nextSize);
+			next = bigger;
+		}
+		next[nextSize++] = rank;
+	}
+	
+	/**
+	 * @return The depth of a state mod 3, or -1 if it has not been seen.
+	 */
+	private int getDepth(long rank)
+	{
+		if(depths == null)
+		{
+			int slot = findSlot(rank);
+			return tableRanks[slot] == 0 ? -1 : tableDepths[slot] - 1;
+		}
+		return (int)((depths[(int)(rank >>> 5)] >>> ((rank & 31) << 1)) & 3) - 1;
+	}
+	
+	/**
+	 * Records the depth of a state not seen before.
+	 */
+	private void setDepth(long rank, int depth)
+	{
+		if(depths == null)
+		{
+			if(2 * (tableSize + 1) > tableRanks.length)
+				growTable();
+			int slot = findSlot(rank);
+			tableRanks[slot] = rank + 1;
+			tableDepths[slot] = (byte)(depth % 3 + 1);
+			tableSize++;
+			return;
+		}
+		depths[(int)(rank >>> 5)] |= (long)(depth % 3 + 1) << ((rank & 31) << 1);
+	}
+	
+	/**
+	 * @return The slot of the table holding the rank, or the empty slot it would go in.
+	 */
+	private int findSlot(long rank)
+	{
+		int mask = tableRanks.length - 1;
+		long hash = (rank + 1) * 0x9E3779B97F4A7C15L;
+		int slot = (int)(hash ^ (hash >>> 32)) & mask;
+		while(tableRanks[slot] != 0 && tableRanks[slot] != rank + 1)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	/**
+	 * Doubles the table. The old arrays are left as they were, for a scan that may be going over them.
+	 */
+	private void growTable()
+	{
+		long slots = 2L * tableRanks.length;
+		if(9 * slots > maxTableBytes || slots > 1 << 30)
+			throw new IllegalArgumentException("WARNING! Analyzing this puzzle needs more than " + (2 * maxTableBytes >> 20)
+					+ " MB; it has over " + tableSize + " states!");
+		long[] oldRanks = tableRanks;
+		byte[] oldDepths = tableDepths;
+		tableRanks = new long[(int)slots];
+		tableDepths = new byte[(int)slots];
+		for(int i = 0; i < oldRanks.length; i++)
+		{
+			if(oldRanks[i] != 0)
+			{
+				int slot = findSlot(oldRanks[i] - 1);
+				tableRanks[slot] = oldRanks[i];
+				tableDepths[slot] = oldDepths[i];
+			}
+		}
+	}
+	
+	private static long saturatingAdd(long a, long b)
+	{
+		return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+/**
+ * What a fixed-size transposition table does when a new entry lands on a slot that is in use.
+ * @author bfallstrom
+ *
+ */
+public enum TableReplacement {
+	ALWAYS,	// The new entry always takes the slot.
+	DEEPER	// The new entry only takes the slot from one of the same pass if it has at least as much search left below it.
+}
@@ -0,0 +1,66 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+
+/**
+ * Where Boards keeps the states it has seen, and how each was reached. Every state gets an integer
+ *  id when it is added, which never changes; the parent of a state is the id of the state it was
+ *  reached from.
+ * @author bfallstrom
+ *
+ */
+interface VisitedStates {
+	/**
+	 * Looks up a state.
+	 * @param code The packed state.
+	 * @return Its id, or -1 if it has not been added.
+	 */
+	int find(StateCode code);
+	
+	/**
+	 * Adds a state that has not been seen before.
+	 * @param code The packed state.
+	 * @param depth The number of moves it was reached in.
+	 * @param parent The id of the state it was reached from, or -1 for the starting position.
+	 * @param move The move that reached it, as piece index * 4 + direction ordinal, or -1.
+	 * @return The id of the new state.
+	 */
+	int add(StateCode code, int depth, int parent, int move);
+	
+	/**
+	 * Records a cheaper route to a known state, which then needs expanding again.
+	 * @param id The id of the state.
+	 * @param depth The number of moves it is now reached in.
+	 * @param parent The id of the state it is now reached from.
+	 * @param move The move that now reaches it.
+	 */
+	void update(int id, int depth, int parent, int move);
+	
+	/**
+	 *
+	 * @return The packed state with the given id.
+	 */
+	StateCode getCode(int id);
+	
+	int getDepth(int id);
+	
+	int getParent(int id);
+	
+	int getMove(int id);
+	
+	boolean isExpanded(int id);
+	
+	void setExpanded(int id);
+	
+	/**
+	 *
+	 * @return The number of distinct states added.
+	 */
+	int size();
+	
+	/**
+	 *
+	 * @return The number of bytes taken by the states and their index, on the heap or off it.
+	 */
+	long getMemoryBytes();
+}
@@ -0,0 +1,264 @@
+package com.github.bfallstrom.ominoslide.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.Direction;
+import com.github.bfallstrom.ominoslide.areastructure.StateCode;
+import com.github.bfallstrom.ominoslide.areastructure.StateCodec;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+
+/**
+ * A search for the shortest solution in the puzzle's own count, where a tile-step of the piece
+ *  moved last is free and any other tile-step costs one move (MoveMetric.SAME_PIECE).
+ * With costs of only zero and one, a deque does the work of a priority queue: a state reached for
+ *  free goes on the front, at the cost of the state it came from, and a state reached for one move
+ *  goes on the back. The deque then always holds at most two costs, in order, and each state comes
+ *  off it at its lowest cost first. It is settled then, and its moves generated; later copies of it
+ *  on the deque are skipped. No state is ever expanded twice.
+ * A state is an arrangement together with the piece moved last, since the same arrangement can be
+ *  worth a move more or less depending on which piece may carry on for free.
+ * @author bfallstrom
+ *
+ */
+public class ZeroOneBfs implements SolverEngine {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final Board				rootPosition;
+	private final WinningPosition	solved;
+	private final StateCodec		codec;
+	
+	private final Map<Key,Entry>	entries = new HashMap<Key,Entry>();
+	private final ArrayDeque<Queued> deque = new ArrayDeque<Queued>();
+	private final List<LayerStats>	layerStats = new ArrayList<LayerStats>();
+	private Key						goal = null;
+	private int						numExpanded = 0;
+	
+	/**
+	 * Sets up a search.
+	 * @param startingPosition The board to solve.
+	 * @param winningPosition The position to seek.
+	 */
+	public ZeroOneBfs(Board startingPosition, WinningPosition winningPosition)
+	{
+		this.rootPosition = startingPosition;
+		this.solved = winningPosition;
+		this.codec = new StateCodec(startingPosition);
+		Key start = new Key(codec.encode(startingPosition), -1);
+		entries.put(start, new Entry(0, null));
+		deque.add(new Queued(start, 0));
+	}
+	
+	/**
+	 * Settles every state of the lowest cost still on the deque.
+	 * @return true if a complete solution was found
+	 */
+	public boolean iterate()
+	{
+		if(goal != null)
+			return true;
+		if(deque.isEmpty())
+			throw new IllegalArgumentException("WARNING! This puzzle appears to be unsolvable!");
+		long time = System.currentTimeMillis();
+		int cost = deque.peekFirst().cost;
+		int popped = 0;	// including stale copies, and states queued at this cost during the level
+		int statesBefore = entries.size();
+		int expandedBefore = numExpanded;
+		while(!deque.isEmpty() && goal == null)
+		{
+			if(deque.peekFirst().cost > cost)
+				break;
+			Key key = deque.pollFirst().key;
+			popped++;
+			Entry entry = entries.get(key);
+			if(entry.settled)
+				continue;	// already settled through a cheaper copy
+			entry.settled = true;
+			Board board = codec.decode(key.code);
+			if(solved.meetsTheseConditions(board))
+				goal = key;
+			else
+			{
+				expand(board, key, cost);
+				numExpanded++;
+			}
+		}
+		layerStats.add(new LayerStats(cost, popped, numExpanded - expandedBefore, entries.size() - statesBefore,
+				entries.size(), System.currentTimeMillis() - time));
+		return goal != null;
+	}
+	
+	/**
+	 * Runs the search to the end.
+	 * @return true once a shortest solution has been found.
+	 */
+	public boolean solve()
+	{
+		while(!iterate());
+		return true;
+	}
+	
+	/**
+	 * Gets the solution as a List of Move objects, one per tile-step.
+	 * @return the solution in List<Move> form.
+	 */
+	public List<Move> getSolution()
+	{
+		if(goal == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		List<StateCode> path = new ArrayList<StateCode>();
+		List<Integer> movedPieces = new ArrayList<Integer>();
+		for(Key key = goal; entries.get(key).parent != null; key = entries.get(key).parent)
+		{
+			path.add(key.code);
+			movedPieces.add(key.lastPiece);
+		}
+		Collections.reverse(path);
+		Collections.reverse(movedPieces);
+		return SolutionReplay.replay(rootPosition, codec, solved, path, movedPieces, MoveMetric.SAME_PIECE);
+	}
+	
+	/**
+	 *
+	 * @return The number of moves in the solution, runs of tile-steps of one piece counting as one.
+	 */
+	public int getSolutionLength()
+	{
+		if(goal == null)
+			throw new RuntimeException("WARNING! You must complete solving before getting the solution!");
+		return entries.get(goal).cost;
+	}
+	
+	/**
+	 *
+	 * @return The number of states whose moves have been generated so far.
+	 */
+	public int getNumberOfExpansions()
+	{
+		return numExpanded;
+	}
+	
+	/**
+	 *
+	 * @return The number of distinct states, with the piece moved last, seen so far.
+	 */
+	public int getNumberOfStates()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 *
+	 * @return The number of states settled so far, counted afresh from the table of states.
+	 */
+	public int getNumberOfSettledStates()
+	{
+		int settled = 0;
+		for(Entry entry : entries.values())
+		{
+			if(entry.settled)
+				settled++;
+		}
+		return settled;
+	}
+	
+	/**
+	 *
+	 * @return What each cost level so far did, in order.
+	 */
+	public List<LayerStats> getLayerStats()
+	{
+		return Collections.unmodifiableList(layerStats);
+	}
+	
+	/**
+	 * Generates every tile-step out of a settled state, queueing each resulting state that is new
+	 *  or reached more cheaply than before.
+	 */
+	private void expand(Board board, Key key, int cost)
+	{
+		for(int piece = 0; piece < board.getNumPieces(); piece++)
+		{
+			boolean free = piece == key.lastPiece;
+			for(Direction direction : DIRECTIONS)
+			{
+				if(!board.shiftOmino(piece, direction))
+					continue;
+				Key child = new Key(codec.encode(board), board.getCanonicalIndex(piece));
+				int childCost = free ? cost : cost + 1;
+				Entry known = entries.get(child);
+				if(known == null || (!known.settled && known.cost > childCost))
+				{
+					entries.put(child, new Entry(childCost, key));
+					if(free)
+						deque.addFirst(new Queued(child, childCost));
+					else
+						deque.addLast(new Queued(child, childCost));
+				}
+				board.shiftOmino(piece, direction.opposite());	// always possible, since we just came from there
+			}
+		}
+	}
+	
+	/**
+	 * A state of the search: the packed arrangement and the piece moved last, as numbered once the
+	 *  arrangement is unpacked; -1 for the starting position.
+	 */
+	private static final class Key {
+		final StateCode code;
+		final int lastPiece;
+	
+		Key(StateCode code, int lastPiece)
+		{
+			this.code = code;
+			this.lastPiece = lastPiece;
+		}
+	
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Key))
+				return false;
+			return ((Key)o).lastPiece == this.lastPiece && ((Key)o).code.equals(this.code);
+		}
+	
+		public int hashCode()
+		{
+			return code.hashCode() * 31 + lastPiece;
+		}
+	}
+	
+	/**
+	 * What is known about a state: the fewest moves it has been reached in, and from where.
+	 */
+	private static final class Entry {
+		final int cost;
+		final Key parent;		// null for the starting position
+		boolean settled = false;
+	
+		Entry(int cost, Key parent)
+		{
+			this.cost = cost;
+			this.parent = parent;
+		}
+	}
+	
+	/**
+	 * An entry of the deque. A state may be queued again when a cheaper route to it is found; the
+	 *  copies left behind are skipped when they come up.
+	 */
+	private static final class Queued {
+		final Key key;
+		final int cost;
+	
+		Queued(Key key, int cost)
+		{
+			this.key = key;
+			this.cost = cost;
+		}
+	}
+}
@@ -16,6 +16,7 @@ import java.util.Set;
 
 import com.github.bfallstrom.ominoslide.areastructure.Board;
 import com.github.bfallstrom.ominoslide.areastructure.Omino;
+import com.github.bfallstrom.ominoslide.areastructure.ShapeCatalog;
 import com.github.bfallstrom.ominoslide.areastructure.Tile;
 import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
 
@@ -197,6 +198,7 @@ public class LayoutFileReader {
 		}
 		layoutZero = Collections.min(boardLayout);
 		letters = startingOminos.keySet();
+		ShapeCatalog shapes = new ShapeCatalog();
 		// Now initialize the starting position
 		for(Character eachLetter : letters)
 		{
@@ -205,7 +207,7 @@ public class LayoutFileReader {
 			Omino initOmino;
 			if(uniqueOminos.containsKey(eachLetter))
 				initOmino = uniqueOminos.get(eachLetter);	// Use the existing omino if it exists
-			else initOmino = new Omino(normalizeLayout(ominoShape));
+			else initOmino = shapes.newOmino(normalizeLayout(ominoShape));	// so identical pieces share a shape
 			if(!startingBoard.placeOmino(initOmino, ominoZero.minus(layoutZero)))
 				throw new RuntimeException("Placement of omino " + eachLetter + " failed--parse algorithm must need fixing!");
 		}
@@ -1,5 +1,6 @@
 package com.github.bfallstrom.ominoslide.view;
 
+import java.util.Arrays;
 import java.util.Set;
 
 import com.github.bfallstrom.ominoslide.areastructure.Board;
@@ -24,37 +25,36 @@ public class BoardViewPlaintext {
 			throw new IllegalArgumentException("Error: null board cannot be viewed.");
 		lowerLeft = board.getLowerLeftBound();
 		boardSize = board.getUpperRightBound().minus(lowerLeft);	// actually size -1 in both directions
-		boardVisual = new String[boardSize.getY()+1];
-		for(int i = 0; i < boardVisual.length; i++)
+		char[][] rows = new char[boardSize.getY()+1][boardSize.getX()+1];	// filled in place, then made into Strings once
+		for(int i = 0; i < rows.length; i++)
 		{
-			boardVisual[i] = new String(new char[boardSize.getX()+1]).replace('\0', WALL);
+			Arrays.fill(rows[i], WALL);
 		}
 		Set<Tile> boardLayout = board.getLayout();
 		for(Tile tile : boardLayout)
 		{
-			Tile tmp = tile.minus(lowerLeft);
-			int x = tmp.getX();
-			int y = tmp.getY();
-			StringBuilder b = new StringBuilder(boardVisual[boardVisual.length-y-1]);
-			b.setCharAt(x, OPEN);
-			boardVisual[boardVisual.length-y-1] = b.toString(); 
+			int x = tile.getX() - lowerLeft.getX();
+			int y = tile.getY() - lowerLeft.getY();
+			rows[rows.length-y-1][x] = OPEN;
 		}
 		int numberOfOminos = board.getNumPieces();
 		for(int i = 0; i < numberOfOminos; i++)
 		{
 			Omino omino = board.getOmino(i);
-			Tile ominoZero = board.getOminoPosition(i).minus(lowerLeft);
-			Set<Tile> ominoLayout = omino.getShape();
-			for(Tile tile : ominoLayout)
+			Tile ominoZero = board.getOminoPosition(i);
+			for(int j = 0; j < omino.getNumTiles(); j++)
 			{
-				Tile tmp = new Tile(tile, ominoZero);
-				int x = tmp.getX();
-				int y = tmp.getY();
-				StringBuilder b = new StringBuilder(boardVisual[boardVisual.length-y-1]);
-				b.setCharAt(x, PIECES.charAt(i));	// WARNING: Unchecked StringIndexOutOfBoundsException here if there are more than 62 pieces!
-				boardVisual[boardVisual.length-y-1] = b.toString(); 
+				int tile = omino.getPackedTile(j);
+				int x = Omino.packedX(tile) + ominoZero.getX() - lowerLeft.getX();
+				int y = Omino.packedY(tile) + ominoZero.getY() - lowerLeft.getY();
+				rows[rows.length-y-1][x] = PIECES.charAt(i);	// WARNING: Unchecked StringIndexOutOfBoundsException here if there are more than 62 pieces!
 			}
 		}
+		boardVisual = new String[rows.length];
+		for(int i = 0; i < rows.length; i++)
+		{
+			boardVisual[i] = new String(rows[i]);
+		}
 	}
 	
 	public String toString()
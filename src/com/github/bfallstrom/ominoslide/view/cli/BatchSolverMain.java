@@ -0,0 +1,200 @@
+package com.github.bfallstrom.ominoslide.view.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.bfallstrom.ominoslide.areastructure.Board;
+import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.EngineChoice;
+import com.github.bfallstrom.ominoslide.solver.SearchBudget;
+import com.github.bfallstrom.ominoslide.solver.SolveResult;
+import com.github.bfallstrom.ominoslide.solver.SolveStatus;
+import com.github.bfallstrom.ominoslide.tilereader.LayoutFileReader;
+
+/**
+ * Solves many layout files in one JVM, so that start-up and warm-up are paid once rather than once
+ *  per puzzle. Each argument is a layout file, a directory standing for every file in it, or
+ *  "@FILE" for a manifest listing one layout file per line; blank lines and lines starting with
+ *  "//" are skipped, and relative paths are taken from the manifest's directory.
+ * Files are read and parsed on virtual threads where the JVM has them, and on a pool of platform
+ *  threads otherwise. The solves run on a fixed pool of one worker per processor, or as many as
+ *  "-t N" gives. Each is a search by whole slides, as CliSolverMain's is, so the moves and states
+ *  recorded match a single solve; "-m" is accepted for older scripts and ignored. Only a few puzzles
+ *  per worker are parsed ahead of the oldest unfinished one, so a long batch does not fill the heap
+ *  with boards.
+ * One tab-separated record is printed per puzzle, in the order given: the file, the outcome as a
+ *  SolveStatus or "error", the number of moves, the states seen, the milliseconds taken, and the
+ *  most memory the solve's tables took, in megabytes, then any error message.
+ * With "--timeout MS" each solve gets a SearchBudget of MS milliseconds. One still running then
+ *  stops within a few dozen expansions and is recorded as out of time, and its worker moves on to
+ *  the next puzzle.
+ * @author bfallstrom
+ *
+ */
+public class BatchSolverMain {
+	private static final String			USAGE = "Usage: BatchSolverMain [-t N] [--timeout MS] (FILE | DIR | @MANIFEST)...";
+	private static final String			HEADER = "file\tresult\tmoves\tstates\tms\tpeak MB\tmessage";
+	private static final String			RECORD_FORMAT = "%s\t%s\t%d\t%d\t%d\t%d\t%s";
+	private static final int			READ_AHEAD = 4;	// puzzles in hand per worker
+	
+	private static final String			ERROR = "error";
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int numWorkers = Runtime.getRuntime().availableProcessors();
+		long timeoutMillis = 0;	// 0 for no limit
+		List<File> files = new ArrayList<File>();
+		try {
+			for(int i = 0; i < args.length; i++)
+			{
+				if((args[i].equals("-t") || args[i].equals("--threads")) && i + 1 < args.length)
+					numWorkers = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-m") || args[i].equals("--macro"))
+					continue;	// whole slides are always searched now
+				else if(args[i].equals("--timeout") && i + 1 < args.length)
+					timeoutMillis = Long.parseLong(args[++i]);
+				else if(args[i].startsWith("@"))
+					readManifest(new File(args[i].substring(1)), files);
+				else if(new File(args[i]).isDirectory())
+					listDirectory(new File(args[i]), files);
+				else
+					files.add(new File(args[i]));
+			}
+		} catch (NumberFormatException n) {
+			numWorkers = 0;
+		}
+		if(files.isEmpty() || numWorkers < 1 || timeoutMillis < 0)
+		{
+			System.err.println(USAGE);
+			return;
+		}
+		ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+		ExecutorService readers = newReaderExecutor(numWorkers * READ_AHEAD);
+		try {
+			System.out.println(HEADER);
+			int window = numWorkers * READ_AHEAD;
+			LinkedList<Future<String>> pending = new LinkedList<Future<String>>();
+			int next = 0;
+			for(int done = 0; done < files.size(); done++)
+			{
+				while(next < files.size() && next - done < window)
+					pending.add(readers.submit(newTask(files.get(next++), workers, timeoutMillis)));
+				String record;
+				try {
+					record = pending.removeFirst().get();
+				} catch (ExecutionException e) {
+					record = String.format(RECORD_FORMAT, files.get(done).getPath(), ERROR, 0, 0, 0, 0, e.getCause().getMessage());
+				}
+				System.out.println(record);
+			}
+		} finally {
+			readers.shutdownNow();
+			workers.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Makes the task that reads one file, then hands it to a worker and waits for its record. The
+	 *  wait only ties up a platform thread if virtual threads are not available.
+	 */
+	private static Callable<String> newTask(final File file, final ExecutorService workers, final long timeoutMillis)
+	{
+		return new Callable<String>() {
+			public String call() throws Exception
+			{
+				final LayoutFileReader input;
+				InputStream in = new FileInputStream(file);
+				try {
+					input = new LayoutFileReader(in);
+					input.readAndParse();
+				} finally {
+					in.close();
+				}
+				return workers.submit(new Callable<String>() {
+					public String call()
+					{
+						return solve(file.getPath(), input.getStartingBoard(), input.getWinningBoard(), timeoutMillis);
+					}
+				}).get();
+			}
+		};
+	}
+	
+	/**
+	 * Solves one puzzle under a budget of the time limit, until it is solved, proven unsolvable, or
+	 *  out of time.
+	 * @return Its record.
+	 */
+	private static String solve(String name, Board startingBoard, WinningPosition winningBoard, long timeoutMillis)
+	{
+		long time = System.currentTimeMillis();
+		try {
+			SolveResult result = EngineChoice.bfs(false, false).createBudgeted(startingBoard, winningBoard)
+					.solve(new SearchBudget(timeoutMillis, 0, 0), null);
+			return String.format(RECORD_FORMAT, name, result.getStatus().name().toLowerCase(),
+					result.getStatus() == SolveStatus.SOLVED ? result.getSolutionLength() : 0, result.getNumberOfStates(),
+					result.getMillis(), result.getPeakMemoryBytes() >> 20, "");
+		} catch (RuntimeException r) {
+			return String.format(RECORD_FORMAT, name, ERROR, 0, 0, System.currentTimeMillis() - time, 0, r.getMessage());
+		} catch (OutOfMemoryError e) {	// the solver's states are dropped with it, so the batch can carry on
+			return String.format(RECORD_FORMAT, name, ERROR, 0, 0, System.currentTimeMillis() - time, 0, "out of memory");
+		}
+	}
+	
+	/**
+	 * Gets a virtual thread per task where the JVM has them, from Java 21 on; found by reflection
+	 *  so that this still builds and runs on older JVMs, which get a fixed pool instead.
+	 * @param numThreads The size of the pool, if one is needed.
+	 */
+	private static ExecutorService newReaderExecutor(int numThreads)
+	{
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(numThreads);
+		}
+	}
+	
+	private static void readManifest(File manifest, List<File> files) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(manifest));
+		try {
+			String line;
+			while((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if(line.length() == 0 || line.startsWith("//"))
+					continue;
+				File file = new File(line);
+				files.add(file.isAbsolute() ? file : new File(manifest.getAbsoluteFile().getParentFile(), line));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+	
+	private static void listDirectory(File directory, List<File> files)
+	{
+		File[] entries = directory.listFiles();
+		if(entries == null)
+			return;
+		Arrays.sort(entries);
+		for(File entry : entries)
+		{
+			if(entry.isFile())
+				files.add(entry);
+		}
+	}
+}
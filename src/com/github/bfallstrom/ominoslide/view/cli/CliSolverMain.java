@@ -3,12 +3,24 @@ package com.github.bfallstrom.ominoslide.view.cli;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import com.github.bfallstrom.ominoslide.areastructure.Board;
 import com.github.bfallstrom.ominoslide.areastructure.WinningPosition;
+import com.github.bfallstrom.ominoslide.solver.AnytimeSolver;
+import com.github.bfallstrom.ominoslide.solver.BitstateBfs;
 import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.EngineChoice;
+import com.github.bfallstrom.ominoslide.solver.ExternalBfs;
+import com.github.bfallstrom.ominoslide.solver.IdaStarSolver;
+import com.github.bfallstrom.ominoslide.solver.LayerStats;
 import com.github.bfallstrom.ominoslide.solver.Move;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.OffHeapStateTable;
+import com.github.bfallstrom.ominoslide.solver.PuzzleProfile;
+import com.github.bfallstrom.ominoslide.solver.SolverEngine;
+import com.github.bfallstrom.ominoslide.solver.StateSpaceAnalyzer;
 import com.github.bfallstrom.ominoslide.tilereader.LayoutFileReader;
 import com.github.bfallstrom.ominoslide.view.BoardViewPlaintext;
 
@@ -16,6 +28,35 @@ public class CliSolverMain {
 	private static final String[]		HELP_OPTIONS = {"-h","--help","-?"};
 	private static final String[]		VERBOSE_OPTIONS = {"-v","--verbose"};
 	private static final String[]		SILENT_OPTIONS = {"-s","--silent"};
+	private static final String[]		MACRO_OPTIONS = {"-m","--macro"};
+	private static final String[]		THREADS_OPTIONS = {"-t","--threads"};
+	private static final String[]		DISK_OPTIONS = {"-d","--disk"};
+	private static final String[]		OFF_HEAP_OPTIONS = {"-o","--off-heap"};
+	private static final String[]		BITSTATE_OPTIONS = {"-b","--bitstate"};
+	private static final String[]		ZERO_ONE_OPTIONS = {"-z","--zero-one"};
+	private static final String[]		SYMMETRY_OPTIONS = {"-y","--symmetry"};
+	private static final String[]		IDA_OPTIONS = {"-i","--ida"};
+	private static final String[]		MAX_MEMORY_OPTIONS = {"--max-memory"};
+	private static final String[]		ANYTIME_OPTIONS = {"-a","--anytime"};
+	private static final String[]		ANALYZE_OPTIONS = {"-n","--analyze"};
+	private static final String[]		CHECKPOINT_OPTIONS = {"--checkpoint"};
+	private static final String[]		RESUME_OPTIONS = {"--resume"};
+	private static final String[]		ENGINE_OPTIONS = {"-e","--engine"};
+	
+	private static final String			ENGINE_AUTO = "auto";
+	private static final String			ENGINE_BFS = "bfs";
+	private static final String			ENGINE_PARALLEL = "parallel";
+	private static final String			ENGINE_DISK = "disk";
+	private static final String			ENGINE_ZERO_ONE = "zero-one";
+	private static final String			ENGINE_A_STAR = "astar";
+	private static final String			ENGINE_IDA = "ida";
+	private static final String			ENGINE_ANYTIME = "anytime";
+	private static final String[]		ENGINE_NAMES = {ENGINE_AUTO, ENGINE_BFS, ENGINE_PARALLEL, ENGINE_DISK, ENGINE_ZERO_ONE,
+			ENGINE_A_STAR, ENGINE_IDA, ENGINE_ANYTIME};
+	
+	private static final long			DEFAULT_TABLE_BYTES = 256L << 20;
+	private static final long			DEFAULT_ANALYSIS_BYTES = 1L << 30;
+	private static final long			CHECKPOINT_MILLIS = 60 * 1000;	// the least time between checkpoints
 	
 	private static final String			LF = System.getProperty( "line.separator" );
 	private static final String			HELP_MESSAGE =
@@ -24,6 +65,39 @@ public class CliSolverMain {
 			+ "-h, -?, or --help displays this help message." + LF
 			+ "-v or --verbose gives additional information during a solve." + LF
 			+ "-s or --silent suppresses error messages." + LF
+			+ "-m or --macro is kept for older scripts; every search now takes whole slides of" + LF
+			+ "   a piece as single moves, the only way to be sure of a shortest solution." + LF
+			+ "-t N or --threads N searches whole slides on N threads at once." + LF
+			+ "-d DIR or --disk DIR searches whole slides, keeping the states in files in DIR." + LF
+			+ "-o or --off-heap keeps the visited states outside the Java heap." + LF
+			+ "-b MB or --bitstate MB only checks whether the puzzle can be solved, and in how" + LF
+			+ "   many whole slides, remembering states as bits in MB megabytes. Some states" + LF
+			+ "   may be missed; the chance of that is reported." + LF
+			+ "-z or --zero-one finds a shortest solution, steps of the piece moved last being" + LF
+			+ "   free, settling each state once." + LF
+			+ "-y or --symmetry stores a state and its mirror images only once, where the" + LF
+			+ "   layout, the pieces and the goal allow it." + LF
+			+ "-i or --ida finds a shortest solution by iterative deepening, in a fixed amount" + LF
+			+ "   of memory." + LF
+			+ "--max-memory SIZE gives the iterative deepening search SIZE bytes for its table;" + LF
+			+ "   a k, m or g suffix counts kilobytes, megabytes or gigabytes. Implies -i," + LF
+			+ "   unless -n is given; then it bounds the analysis, which otherwise takes 1g." + LF
+			+ "   With -e auto, it is the memory the choice of engine plans for instead of the" + LF
+			+ "   most the heap can grow to." + LF
+			+ "-a MS or --anytime MS reports a first solution as soon as it is found, then" + LF
+			+ "   better ones, for up to MS milliseconds or until the best is proven shortest." + LF
+			+ "-n or --analyze finds every reachable state and reports how many there are at" + LF
+			+ "   each depth, the farthest positions, and the number of shortest solutions." + LF
+			+ "--checkpoint FILE saves the search to FILE between passes, at most once a minute," + LF
+			+ "   so that it can be resumed; the file is deleted once the puzzle is solved." + LF
+			+ "--resume FILE carries on the search saved in FILE, and keeps saving it there. The" + LF
+			+ "   layout and options must be those of the search that was saved." + LF
+			+ "-e NAME or --engine NAME runs the named search: bfs, the default, uses -o and" + LF
+			+ "   -y; parallel uses -t, or every processor; disk needs -d; zero-one; astar;" + LF
+			+ "   ida uses --max-memory; anytime uses -a, or runs until the best is proven" + LF
+			+ "   shortest. auto looks the puzzle over and picks the search, and where to keep" + LF
+			+ "   its states, expected to be fastest in the memory there is; given -d, it keeps" + LF
+			+ "   the states in DIR if there are too many for memory." + LF
 			+ "If there is no file, the layout is read from standard input rather than a file." + LF + LF
 			+ "Layout file must have two identically shaped boards. The first board represents" + LF
 			+ "the initial condition of the board, with all pieces that are ever to be moved." + LF
@@ -37,12 +111,50 @@ public class CliSolverMain {
 	private static final String			ERROR_MESSAGE_FILE_NOT_FOUND = "Error; file \"%s\" was not found.";
 	private static final String			ERROR_MESSAGE_FILE_ARGS = "Error; more than one file path was input.";
 	private static final String			ERROR_MESSAGE_INVALID_OPTION = "Error; invalid option \"%s\".";
+	private static final String			ERROR_MESSAGE_THREADS = "Error; the number of threads must be a positive whole number.";
+	private static final String			ERROR_MESSAGE_DISK = "Error; a directory must follow the disk option.";
+	private static final String			ERROR_MESSAGE_BITSTATE = "Error; the bitstate size must be a whole number of megabytes, from 1 to "
+			+ (BitstateBfs.MAX_BITS >> 23) + ".";
+	private static final String			ERROR_MESSAGE_ANYTIME = "Error; the time limit must be a positive whole number of milliseconds.";
+	private static final String			ERROR_MESSAGE_NOT_IN_TIME = "Error; no solution was found in time.";
+	private static final String			ERROR_MESSAGE_MAX_MEMORY = "Error; the memory size must be a whole number of bytes, optionally followed by k, m or g.";
+	private static final String			ERROR_MESSAGE_CHECKPOINT = "Error; a file must follow the checkpoint and resume options.";
+	private static final String			ERROR_MESSAGE_CHECKPOINT_ENGINE = "Error; only the default search, with or without -o or -y, can be checkpointed.";
+	private static final String			ERROR_MESSAGE_ENGINE = "Error; the engine must be one of auto, bfs, parallel, disk, zero-one, astar, ida or anytime.";
+	private static final String			ERROR_MESSAGE_NO_CHECKPOINT = "Error; there is no checkpoint \"%s\" to resume.";
 	
-	private static final String			ITERATION_STRING = "Iteration #%d complete in %d milliseconds.";
+	private static final String			TABLE_STRING = "Off-heap table: %d states in %d slots, load %.2f, %.2f probes on average, %d at most, %d MB.";
+	private static final String			BITSTATE_STRING = "Solvable in %d moves, or fewer if states were missed.";
+	private static final String			OMISSION_STRING = "%d states in %d MB of bits, %.1f%% set; estimated omission probability %.3g, about %.1f states missed.";
+	private static final String			SYMMETRY_STRING = "Symmetries of the puzzle, counting the identity: %d.";
+	private static final String			ANYTIME_STRING = "Solution of %d moves found after %d milliseconds%s.";
+	private static final String			STATES_STRING = "Reachable states: %d, ranked among %d in %d MB.";
+	private static final String			DEPTH_STRING = "Depth %d: %d states.";
+	private static final String			FARTHEST_STRING = "Farthest positions: %d moves from the start, %d of them, such as:";
+	private static final String			SHORTEST_STRING = "Shortest solution: %d moves; %d solved positions at that depth, reached by %s shortest solutions.";
+	private static final String			UNREACHABLE_STRING = "No solution: the goal cannot be reached.";
+	private static final String			IDA_STRING = "Transposition table: %d slots, %d MB; %d states expanded, %d cut by the table.";
+	private static final String			CHECKPOINT_STRING = "Checkpoint saved in %d milliseconds.";
+	private static final String			RESUME_STRING = "Resumed after iteration #%d, with %d states known.";
+	private static final String			PROFILE_STRING = "Puzzle: %d pieces, %d free cells, branching factor %.2f, %s states.";
+	private static final String			ENGINE_STRING = "Engine: %s%s; %s.";
+	private static final String			ITERATION_STRING = "Iteration #%d complete in %d milliseconds: %d of %d queued states expanded, %d new, %d total.";
 	
 	private static boolean				silent = false;
 	private static boolean				displayHelp = false;
 	private static boolean				verbose = false;
+	private static int					numThreads = 0;	// 0 for the single-threaded search
+	private static File					diskDirectory = null;	// null to keep the states in memory
+	private static boolean				offHeap = false;
+	private static int					bitstateMegabytes = 0;	// 0 to store whole states
+	private static boolean				zeroOne = false;
+	private static boolean				useSymmetries = false;
+	private static long					idaTableBytes = 0;	// 0 for a search that is not iterative deepening
+	private static long					anytimeMillis = 0;	// 0 to wait for a shortest solution
+	private static boolean				analyze = false;
+	private static File					checkpointFile = null;	// null to never save the search
+	private static boolean				resume = false;
+	private static String				engineName = null;	// null to let the other options pick the engine
 	private static boolean				abort = false;
 	private static File					inputFile = null;
 	
@@ -52,6 +164,20 @@ public class CliSolverMain {
 		HELP,
 		VERBOSE,
 		SILENT,
+		MACRO,
+		THREADS,
+		DISK,
+		OFF_HEAP,
+		BITSTATE,
+		ZERO_ONE,
+		SYMMETRY,
+		IDA,
+		MAX_MEMORY,
+		ANYTIME,
+		ANALYZE,
+		CHECKPOINT,
+		RESUME,
+		ENGINE,
 		FILEPATH,
 		INVALID
 	}
@@ -63,7 +189,24 @@ public class CliSolverMain {
 	 * Otherwise, arguments starting with dash characters will be parsed first. "-" alone takes an
 	 *  input file directly from standard in; any file path will be ignored in that case. "-v" or
 	 *  "--verbose" gives additional information to standard out. "-s" or "--silent" suppresses
-	 *  error messages.
+	 *  error messages. "-m" or "--macro" is accepted and ignored: the search always treats a
+	 *  whole slide of one piece as a single move. "-t N" or "--threads N" searches by whole
+	 *  slides with N threads at once. "-d DIR" or "--disk DIR" searches by whole slides, keeping the states in files in DIR.
+	 *  "-o" or "--off-heap" keeps the visited states of the single-threaded search off the heap.
+	 *  "-b MB" or "--bitstate MB" only finds the length of a solution by whole slides, keeping
+	 *  the visited states as bits in MB megabytes, and reports the chance that some were missed.
+	 *  "-z" or "--zero-one" finds a shortest solution with a 0-1 breadth-first search, in which
+	 *  steps of the piece moved last are free. "-y" or "--symmetry" makes the single-threaded
+	 *  search store each state and its mirror images once, if the puzzle has any symmetries.
+	 *  "-i" or "--ida" finds a shortest solution with an iterative-deepening A* search, whose
+	 *  transposition table takes 256 megabytes, or as much as "--max-memory SIZE" gives it.
+	 *  "-a MS" or "--anytime MS" runs an anytime weighted A* search, reporting each better solution as
+	 *  it is found, for up to MS milliseconds, and shows the best. "-n" or "--analyze" reports on
+	 *  the whole state space instead of solving, using as much memory as "--max-memory" gives it.
+	 *  "--checkpoint FILE" saves the default search to FILE between passes, at most once a minute,
+	 *  and "--resume FILE" carries on the search saved there, still saving it. "-e NAME" or
+	 *  "--engine NAME" runs the named engine; "auto" profiles the puzzle and picks one,
+	 *  searching on disk in DIR if "-d DIR" is given and the states will not fit in memory.
 	 *  
 	 * Afterwards, if there is one argument, it will be parsed as a file path to read. Failure to
 	 *  read that file will result in an error message to standard error.
@@ -88,6 +231,87 @@ public class CliSolverMain {
 			case SILENT:
 				silent = true;
 				break;
+			case MACRO:
+				break;	// whole slides are always searched now
+			case THREADS:
+				numThreads = -1;
+				if(i + 1 < args.length)
+				{
+					try {
+						numThreads = Integer.parseInt(args[++i]);
+					} catch (NumberFormatException n) {
+						numThreads = -1;
+					}
+				}
+				if(numThreads < 1)
+					outputInvalidArgument(ERROR_MESSAGE_THREADS);
+				break;
+			case DISK:
+				if(i + 1 < args.length)
+					diskDirectory = new File(args[++i]);
+				else
+					outputInvalidArgument(ERROR_MESSAGE_DISK);
+				break;
+			case OFF_HEAP:
+				offHeap = true;
+				break;
+			case BITSTATE:
+				bitstateMegabytes = -1;
+				if(i + 1 < args.length)
+				{
+					try {
+						bitstateMegabytes = Integer.parseInt(args[++i]);
+					} catch (NumberFormatException n) {
+						bitstateMegabytes = -1;
+					}
+				}
+				if(bitstateMegabytes < 1 || bitstateMegabytes > BitstateBfs.MAX_BITS >> 23)
+					outputInvalidArgument(ERROR_MESSAGE_BITSTATE);
+				break;
+			case ZERO_ONE:
+				zeroOne = true;
+				break;
+			case SYMMETRY:
+				useSymmetries = true;
+				break;
+			case IDA:
+				if(idaTableBytes == 0)
+					idaTableBytes = DEFAULT_TABLE_BYTES;
+				break;
+			case MAX_MEMORY:
+				idaTableBytes = i + 1 < args.length ? parseSize(args[++i]) : -1;
+				if(idaTableBytes <= 0)
+					outputInvalidArgument(ERROR_MESSAGE_MAX_MEMORY);
+				break;
+			case ANYTIME:
+				anytimeMillis = -1;
+				if(i + 1 < args.length)
+				{
+					try {
+						anytimeMillis = Long.parseLong(args[++i]);
+					} catch (NumberFormatException n) {
+						anytimeMillis = -1;
+					}
+				}
+				if(anytimeMillis < 1)
+					outputInvalidArgument(ERROR_MESSAGE_ANYTIME);
+				break;
+			case ANALYZE:
+				analyze = true;
+				break;
+			case CHECKPOINT:
+			case RESUME:
+				resume |= parseArgument(args[i]) == ArgValue.RESUME;
+				if(i + 1 < args.length)
+					checkpointFile = new File(args[++i]);
+				else
+					outputInvalidArgument(ERROR_MESSAGE_CHECKPOINT);
+				break;
+			case ENGINE:
+				engineName = i + 1 < args.length ? args[++i] : null;
+				if(engineName == null || !Arrays.asList(ENGINE_NAMES).contains(engineName))
+					outputInvalidArgument(ERROR_MESSAGE_ENGINE);
+				break;
 			case FILEPATH:
 				if(inputFile == null)
 					inputFile = new File(args[i]);
@@ -101,6 +325,13 @@ public class CliSolverMain {
 			}
 		}
 		
+		if(checkpointFile != null && (analyze || bitstateMegabytes > 0 || anytimeMillis > 0 || idaTableBytes > 0 || zeroOne
+				|| diskDirectory != null || numThreads > 0 || (engineName != null && !engineName.equals(ENGINE_BFS)
+				&& !engineName.equals(ENGINE_AUTO))))
+			outputInvalidArgument(ERROR_MESSAGE_CHECKPOINT_ENGINE);
+		if(resume && !abort && !checkpointFile.isFile())
+			outputInvalidArgument(String.format(ERROR_MESSAGE_NO_CHECKPOINT, checkpointFile.getPath()));
+		
 		if(displayHelp)
 			displayHelp();
 		
@@ -132,19 +363,47 @@ public class CliSolverMain {
 			try {
 				Board initialBoard = input.getStartingBoard();
 				WinningPosition finalBoard = input.getWinningBoard();
-				Boards solver = new Boards(initialBoard, finalBoard);
-				int j = 0;
-				long iterTime = System.currentTimeMillis();
-				long fullTime = iterTime;
-				while(!solver.iterate())
+				List<Move> solution;
+				long fullTime = System.currentTimeMillis();
+				if(analyze)
 				{
-					if(verbose)
-						System.out.println(String.format(ITERATION_STRING, ++j, System.currentTimeMillis() - iterTime));
-					iterTime = System.currentTimeMillis();
+					analyze(initialBoard, finalBoard, idaTableBytes > 0 ? idaTableBytes : DEFAULT_ANALYSIS_BYTES);
+					return;
+				}
+				if(bitstateMegabytes > 0)
+				{
+					BitstateBfs solver = new BitstateBfs(initialBoard, finalBoard, MoveMetric.SAME_PIECE,
+							(long)bitstateMegabytes << 23, BitstateBfs.DEFAULT_HASHES);
+					try {
+						while(!solver.iterate())
+						{
+							if(verbose)
+								printLayer(solver.getLayerStats().get(solver.getLayerStats().size()-1));
+						}
+						System.out.println(String.format(BITSTATE_STRING, solver.getSolutionLength()));
+					} finally {
+						if(verbose)
+							System.out.println(String.format(OMISSION_STRING, solver.getNumberOfStates(), bitstateMegabytes,
+									100 * solver.getFillRatio(), solver.getOmissionProbability(), solver.getExpectedMisses()));
+					}
+					return;
+				}
+				EngineChoice choice = chooseEngine(initialBoard, finalBoard);
+				SolverEngine solver = choice.create(initialBoard, finalBoard);
+				try {
+					if(checkpointFile != null && !(solver instanceof Boards))
+						throw new IllegalArgumentException(ERROR_MESSAGE_CHECKPOINT_ENGINE);
+					if(solver instanceof AnytimeSolver)
+						runAnytime((AnytimeSolver)solver, fullTime);
+					else
+						run(solver);
+					solution = solver.getSolution();
+				} finally {
+					if(solver instanceof ExternalBfs)
+						((ExternalBfs)solver).deleteFiles();
 				}
-				List<Move> solution = solver.getSolution();
 				if(verbose)
-					System.out.println("Solution found in " + (solution.get(0).getDepth()+1) + " moves and " + (System.currentTimeMillis()-fullTime) + " milliseconds!");
+					System.out.println("Solution found in " + solver.getSolutionLength() + " moves and " + (System.currentTimeMillis()-fullTime) + " milliseconds!");
 				System.out.println(new BoardViewPlaintext(solution.get(0).getStartingBoard()));
 				for(int i = 0; i < solution.size(); i++)
 				{
@@ -156,7 +415,181 @@ public class CliSolverMain {
 			} catch(IllegalArgumentException e)
 			{
 				outputInvalidArgument(e.getMessage());
+			} catch(IllegalStateException s)	// a search that has outgrown its tables or layers
+			{
+				outputInvalidArgument(s.getMessage());
+			} catch(IOException io)
+			{
+				outputInvalidArgument(io.getMessage());
+			}
+		}
+	}
+	
+	private static void analyze(Board initialBoard, WinningPosition finalBoard, long maxBytes)
+	{
+		StateSpaceAnalyzer analyzer = new StateSpaceAnalyzer(initialBoard, finalBoard, MoveMetric.SAME_PIECE, maxBytes);
+		while(!analyzer.iterate())
+		{
+			if(verbose)
+				printLayer(analyzer.getLayerStats().get(analyzer.getLayerStats().size()-1));
+		}
+		System.out.println(String.format(STATES_STRING, analyzer.getNumberOfStates(), analyzer.getIndexSize(),
+				analyzer.getArrayBytes() >> 20));
+		List<Long> layerSizes = analyzer.getLayerSizes();
+		for(int depth = 0; depth < layerSizes.size(); depth++)
+			System.out.println(String.format(DEPTH_STRING, depth, layerSizes.get(depth)));
+		System.out.println(String.format(FARTHEST_STRING, analyzer.getMaxDepth(), layerSizes.get(analyzer.getMaxDepth())));
+		System.out.println(new BoardViewPlaintext(analyzer.getFarthestPositions().get(0)));
+		if(analyzer.getSolutionDepth() < 0)
+			System.out.println(UNREACHABLE_STRING);
+		else
+		{
+			long count = analyzer.countShortestSolutions();
+			System.out.println(String.format(SHORTEST_STRING, analyzer.getSolutionDepth(), analyzer.getNumberOfSolvedStates(),
+					count < 0 ? "too many" : (count == Long.MAX_VALUE ? "at least " + count : Long.toString(count))));
+		}
+	}
+	
+	/**
+	 * Picks the engine named with "--engine", or else the one the other options call for, in the
+	 *  order they have always taken precedence.
+	 */
+	private static EngineChoice chooseEngine(Board initialBoard, WinningPosition finalBoard)
+	{
+		String engine = engineName;
+		if(engine == null)
+			engine = anytimeMillis > 0 ? ENGINE_ANYTIME : idaTableBytes > 0 ? ENGINE_IDA : zeroOne ? ENGINE_ZERO_ONE
+					: diskDirectory != null ? ENGINE_DISK : numThreads > 0 ? ENGINE_PARALLEL : ENGINE_BFS;
+		if(engine.equals(ENGINE_AUTO))
+		{
+			PuzzleProfile profile = PuzzleProfile.sample(initialBoard, finalBoard);
+			EngineChoice choice = EngineChoice.auto(profile, idaTableBytes > 0 ? idaTableBytes : Runtime.getRuntime().maxMemory(),
+					Runtime.getRuntime().availableProcessors(), diskDirectory);
+			if(verbose)
+			{
+				System.out.println(String.format(PROFILE_STRING, profile.getNumPieces(), profile.getNumFreeCells(),
+						profile.getBranchingFactor(), profile.getEstimatedStates() == Long.MAX_VALUE ? "uncountably many"
+								: "about " + profile.getEstimatedStates()));
+				System.out.println(String.format(ENGINE_STRING, choice.getType(), choice.isOffHeap() ? " off the heap" : "",
+						choice.getReason()));
 			}
+			return choice;
+		}
+		if(engine.equals(ENGINE_ANYTIME))
+			return EngineChoice.anytime(AnytimeSolver.DEFAULT_WIDTH);
+		if(engine.equals(ENGINE_IDA))
+			return EngineChoice.idaStar(idaTableBytes > 0 ? idaTableBytes : DEFAULT_TABLE_BYTES);
+		if(engine.equals(ENGINE_ZERO_ONE))
+			return EngineChoice.zeroOne();
+		if(engine.equals(ENGINE_DISK))
+		{
+			if(diskDirectory == null)
+				throw new IllegalArgumentException(ERROR_MESSAGE_DISK);
+			return EngineChoice.disk(diskDirectory);
+		}
+		if(engine.equals(ENGINE_PARALLEL))
+			return EngineChoice.parallel(numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors());
+		if(engine.equals(ENGINE_A_STAR))
+			return EngineChoice.aStar();
+		return EngineChoice.bfs(offHeap, useSymmetries);
+	}
+	
+	/**
+	 * Runs an engine until it has a shortest solution, reporting on each step if verbose, and
+	 *  checkpointing the default search if asked to.
+	 */
+	private static void run(SolverEngine solver) throws IOException
+	{
+		Boards boards = solver instanceof Boards ? (Boards)solver : null;
+		if(verbose && boards != null && useSymmetries)
+			System.out.println(String.format(SYMMETRY_STRING, boards.getNumberOfSymmetries()));
+		if(resume)
+		{
+			boards.resume(checkpointFile);
+			if(verbose)
+				System.out.println(String.format(RESUME_STRING, boards.getLayerStats().size(), boards.getNumberOfStates()));
+		}
+		long lastCheckpoint = System.currentTimeMillis();
+		while(!solver.iterate())
+		{
+			if(verbose)
+				printLayer(solver.getLayerStats().get(solver.getLayerStats().size()-1));
+			if(checkpointFile != null && System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_MILLIS)
+			{
+				long time = System.currentTimeMillis();
+				boards.checkpoint(checkpointFile);
+				lastCheckpoint = System.currentTimeMillis();
+				if(verbose)
+					System.out.println(String.format(CHECKPOINT_STRING, lastCheckpoint - time));
+			}
+		}
+		if(checkpointFile != null)
+			checkpointFile.delete();
+		if(verbose && solver instanceof IdaStarSolver)
+		{
+			IdaStarSolver ida = (IdaStarSolver)solver;
+			System.out.println(String.format(IDA_STRING, ida.getTableSize(), ida.getTableBytes() >> 20,
+					ida.getNumberOfExpansions(), ida.getNumberOfTableCuts()));
+		}
+		OffHeapStateTable table = boards == null ? null : boards.getOffHeapTable();
+		if(verbose && table != null)
+			System.out.println(String.format(TABLE_STRING, table.size(), table.getCapacity(), table.getLoadFactor(),
+					table.getAverageProbeLength(), table.getMaxProbeLength(), table.getMemoryBytes() >> 20));
+	}
+	
+	/**
+	 * Runs an anytime search for as long as "-a" allows, or until its best solution is proven
+	 *  shortest, reporting each better solution as it is found.
+	 */
+	private static void runAnytime(AnytimeSolver solver, final long startTime)
+	{
+		solver.solve(anytimeMillis > 0 ? startTime + anytimeMillis : Long.MAX_VALUE, new AnytimeSolver.Listener() {
+			public void found(List<Move> solution, int length, boolean optimal)
+			{
+				System.out.println(String.format(ANYTIME_STRING, length, System.currentTimeMillis() - startTime,
+						optimal ? ", proven shortest" : ""));
+			}
+		});
+		if(verbose)
+		{
+			for(LayerStats layer : solver.getLayerStats())
+				printLayer(layer);
+		}
+		if(!solver.hasSolution())
+			throw new IllegalArgumentException(ERROR_MESSAGE_NOT_IN_TIME);
+	}
+	
+	private static void printLayer(LayerStats layer)
+	{
+		System.out.println(String.format(ITERATION_STRING, layer.getLayer(), layer.getMillis(),
+				layer.getNumExpanded(), layer.getFrontierSize(), layer.getNumNewStates(), layer.getTotalStates()));
+	}
+	
+	/**
+	 * Reads a number of bytes, with an optional k, m or g suffix.
+	 * @return The number of bytes, or -1 if it cannot be read.
+	 */
+	private static long parseSize(String size)
+	{
+		if(size.length() == 0)
+			return -1;
+		int shift = 0;
+		switch (Character.toLowerCase(size.charAt(size.length()-1))) {
+		case 'k':
+			shift = 10;
+			break;
+		case 'm':
+			shift = 20;
+			break;
+		case 'g':
+			shift = 30;
+			break;
+		}
+		try {
+			long value = Long.parseLong(shift == 0 ? size : size.substring(0, size.length()-1));
+			return value > 0 && value < (1L << (62 - shift)) ? value << shift : -1;
+		} catch (NumberFormatException n) {
+			return -1;
 		}
 	}
 	
@@ -191,6 +624,76 @@ public class CliSolverMain {
 			if(opt.equals(arg))
 				return ArgValue.SILENT;
 		}
+		for(String opt : MACRO_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.MACRO;
+		}
+		for(String opt : THREADS_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.THREADS;
+		}
+		for(String opt : DISK_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.DISK;
+		}
+		for(String opt : OFF_HEAP_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.OFF_HEAP;
+		}
+		for(String opt : BITSTATE_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.BITSTATE;
+		}
+		for(String opt : ZERO_ONE_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.ZERO_ONE;
+		}
+		for(String opt : SYMMETRY_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.SYMMETRY;
+		}
+		for(String opt : IDA_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.IDA;
+		}
+		for(String opt : MAX_MEMORY_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.MAX_MEMORY;
+		}
+		for(String opt : ANYTIME_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.ANYTIME;
+		}
+		for(String opt : ANALYZE_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.ANALYZE;
+		}
+		for(String opt : CHECKPOINT_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.CHECKPOINT;
+		}
+		for(String opt : RESUME_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.RESUME;
+		}
+		for(String opt : ENGINE_OPTIONS)
+		{
+			if(opt.equals(arg))
+				return ArgValue.ENGINE;
+		}
 		if(arg == null || arg.length() == 0 || arg.charAt(0) == '-')
 			return ArgValue.INVALID;
 		return ArgValue.FILEPATH;
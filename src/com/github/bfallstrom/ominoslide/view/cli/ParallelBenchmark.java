@@ -0,0 +1,67 @@
+package com.github.bfallstrom.ominoslide.view.cli;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.solver.ParallelBfs;
+import com.github.bfallstrom.ominoslide.tilereader.LayoutFileReader;
+
+/**
+ * Solves each layout file given on the command line with ParallelBfs on 1, 2, 4... threads, up to
+ *  the number of processors or the number given with "-t N", and prints the time taken by each run
+ *  and its speedup over the single-threaded run. Each run searches by whole slides.
+ * Every run should find a solution of the same length and see the same number of states; a line
+ *  is marked if one does not.
+ * @author bfallstrom
+ *
+ */
+public class ParallelBenchmark {
+	private static final String			ROW_FORMAT = "%8s %8s %8s %10s %6s";
+	
+	public static void main(String[] args) throws IOException {
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		int first = 0;
+		if(args.length >= 2 && (args[0].equals("-t") || args[0].equals("--threads")))
+		{
+			maxThreads = Integer.parseInt(args[1]);
+			first = 2;
+		}
+		if(args.length == first || maxThreads < 1)
+		{
+			System.err.println("Usage: ParallelBenchmark [-t N] [FILE]...");
+			return;
+		}
+		for(int f = first; f < args.length; f++)
+		{
+			System.out.println(args[f]);
+			System.out.println(String.format(ROW_FORMAT, "threads", "ms", "speedup", "states", "moves"));
+			long baseTime = 0;
+			int baseStates = 0;
+			int baseMoves = 0;
+			for(int threads = 1; ; threads = Math.min(threads * 2, maxThreads))
+			{
+				LayoutFileReader input = new LayoutFileReader(new File(args[f]));
+				input.readAndParse();
+				long time = System.currentTimeMillis();
+				ParallelBfs solver = new ParallelBfs(input.getStartingBoard(), input.getWinningBoard(), MoveMetric.SAME_PIECE, threads);
+				solver.solve();
+				time = Math.max(1, System.currentTimeMillis() - time);
+				if(threads == 1)
+				{
+					baseTime = time;
+					baseStates = solver.getNumberOfStates();
+					baseMoves = solver.getSolutionLength();
+				}
+				String row = String.format(ROW_FORMAT, threads, time, String.format("%.2f", (double)baseTime / time),
+						solver.getNumberOfStates(), solver.getSolutionLength());
+				if(solver.getNumberOfStates() != baseStates || solver.getSolutionLength() != baseMoves)
+					row += "  MISMATCH";
+				System.out.println(row);
+				if(threads == maxThreads)
+					break;
+			}
+			System.out.println();
+		}
+	}
+}
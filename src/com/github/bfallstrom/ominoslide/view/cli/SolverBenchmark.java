@@ -0,0 +1,80 @@
+package com.github.bfallstrom.ominoslide.view.cli;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.bfallstrom.ominoslide.solver.AStarSolver;
+import com.github.bfallstrom.ominoslide.solver.Boards;
+import com.github.bfallstrom.ominoslide.solver.MoveMetric;
+import com.github.bfallstrom.ominoslide.tilereader.LayoutFileReader;
+
+/**
+ * Solves each layout file given on the command line with the breadth-first Boards search and with
+ *  the A* search, with and without its estimate, and prints a line per search giving the solution
+ *  length, the states expanded, the states seen and the time taken.
+ * Boards always counts a run of shifts of one piece as a single move, so its lines are grouped with
+ *  the SAME_PIECE ones. Only in macro mode is its count a shortest one.
+ * @author bfallstrom
+ *
+ */
+public class SolverBenchmark {
+	private static final String			ROW_FORMAT = "%-24s %6s %10s %10s %8s";
+	
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0)
+		{
+			System.err.println("Usage: SolverBenchmark [FILE]...");
+			return;
+		}
+		for(String path : args)
+		{
+			System.out.println(path);
+			System.out.println(String.format(ROW_FORMAT, "search", "moves", "expanded", "states", "ms"));
+			try {
+				runAStar(path, MoveMetric.TILE_STEP, false);
+				runAStar(path, MoveMetric.TILE_STEP, true);
+				runBoards(path, false);
+				runBoards(path, true);
+				runAStar(path, MoveMetric.SAME_PIECE, false);
+				runAStar(path, MoveMetric.SAME_PIECE, true);
+			} catch(IllegalArgumentException e)
+			{
+				System.err.println(e.getMessage());
+			}
+			System.out.println();
+		}
+	}
+	
+	private static LayoutFileReader read(String path) throws IOException
+	{
+		LayoutFileReader input = new LayoutFileReader(new File(path));
+		input.readAndParse();
+		return input;
+	}
+	
+	private static void runBoards(String path, boolean macroMoves) throws IOException
+	{
+		LayoutFileReader input = read(path);
+		long time = System.currentTimeMillis();
+		Boards solver = new Boards(input.getStartingBoard(), input.getWinningBoard(), macroMoves);
+		while(!solver.iterate());
+		int moves = solver.getSolutionLength();
+		printRow(macroMoves ? "BFS by slides" : "BFS by tile-steps", moves, solver.getNumberOfExpansions(),
+				solver.getNumberOfStates(), System.currentTimeMillis() - time);
+	}
+	
+	private static void runAStar(String path, MoveMetric metric, boolean useHeuristic) throws IOException
+	{
+		LayoutFileReader input = read(path);
+		long time = System.currentTimeMillis();
+		AStarSolver solver = new AStarSolver(input.getStartingBoard(), input.getWinningBoard(), metric, useHeuristic);
+		solver.solve();
+		printRow((useHeuristic ? "A* " : "uniform cost ") + metric, solver.getSolutionLength(),
+				solver.getNumberOfExpansions(), solver.getNumberOfStates(), System.currentTimeMillis() - time);
+	}
+	
+	private static void printRow(String name, int moves, int expanded, int states, long millis)
+	{
+		System.out.println(String.format(ROW_FORMAT, name, moves, expanded, states, millis));
+	}
+}